@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EntityScan(basePackages = {"commons"})
 @ComponentScan(basePackages = { "commons", "nl.tudelft.sem.template.basket"})
 @SpringBootApplication
+@EnableScheduling
 //@EntityScan(basePackages = { "commons", "basket-microservice"})
 public class Application {
     public static void main(String[] args) {
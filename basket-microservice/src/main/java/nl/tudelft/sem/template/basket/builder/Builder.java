@@ -7,9 +7,7 @@ import java.util.List;
 
 public interface Builder {
 
-    void setName(String name);
+    Pizza build(String name, List<Ingredient> ingredients);
 
-    void setIngredients(List<Ingredient> ingredients);
-
-    Pizza build();
-}
\ No newline at end of file
+    Pizza build(Pizza pizza);
+}
@@ -5,25 +5,157 @@ import commons.Pizza;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Pizza Builder to build default/custom pizzas that will be added to a basket.
+ * Built pizzas are immutable and interned: building the same pizza twice returns the same instance, so every basket
+ * with a Margherita references one shared pizza, whose hash code is computed only once.
+ * Interned pizzas are looked up by their id, name and ingredients before anything is copied, so building a pizza that
+ * was built before allocates nothing and takes no lock.
+ * The pool of interned pizzas is bounded. When it is full it drops the pizza that was interned longest ago, unless that
+ * pizza was built again since the last time the pool was full, in which case the pizza gets a second chance. That way
+ * custom pizzas cannot fill up the memory while the pizzas on the menu, which are built all the time, stay shared. A
+ * dropped pizza stays valid in the baskets that hold it; building it again just interns a new instance.
+ * The builder holds no state of a single pizza, so one builder is shared by all requests.
  */
 @Component
 public class PizzaBuilder implements Builder {
 
-    private transient String name;
-    private transient List<Ingredient> ingredients;
+    /**
+     * The maximum number of distinct pizzas that are interned.
+     */
+    public static final int MAX_INTERNED = 10_000;
 
-    public void setName(String name) {
-        this.name = name;
+    private final transient Map<Key, Interned> interned = new ConcurrentHashMap<>();
+    // keys of the interned pizzas, longest interned first
+    private final transient Queue<Key> order = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Builds the pizza with the given name and ingredients, for example a custom pizza.
+     * If the same pizza has been built before, that instance is returned instead of a new one.
+     *
+     * @param name        the name of the pizza
+     * @param ingredients the ingredients of the pizza
+     * @return the shared immutable pizza
+     */
+    public Pizza build(String name, List<Ingredient> ingredients) {
+        return build(null, name, ingredients);
+    }
+
+    /**
+     * Builds an immutable copy of a pizza on the menu, which keeps the ids of the pizza and its ingredients.
+     * If the same pizza has been built before, that instance is returned instead of a new one.
+     *
+     * @param pizza the pizza on the menu
+     * @return the shared immutable pizza
+     */
+    public Pizza build(Pizza pizza) {
+        return build(pizza.getId(), pizza.getName(), pizza.getIngredients());
+    }
+
+    private Pizza build(Long id, String name, List<Ingredient> ingredients) {
+        if (name == null) {
+            return Pizza.immutableOf(id, null, ingredients);
+        }
+        Interned found = interned.get(new Key(id, name, ingredients));
+        if (found != null) {
+            found.used = true;
+            return found.pizza;
+        }
+
+        Pizza pizza = Pizza.immutableOf(id, name, ingredients);
+        // the key keeps the copied ingredients of the pizza, which do not change when the given ones do
+        Key key = new Key(id, name, pizza.getIngredients());
+        Interned raced = interned.putIfAbsent(key, new Interned(pizza));
+        if (raced != null) {
+            raced.used = true;
+            return raced.pizza;
+        }
+        order.offer(key);
+        evict();
+        return pizza;
+    }
+
+    /**
+     * Drops the pizzas that were interned longest ago and not built since, until the pool is no longer too full.
+     */
+    private void evict() {
+        while (interned.size() > MAX_INTERNED) {
+            Key eldest = order.poll();
+            if (eldest == null) {
+                return;
+            }
+            Interned entry = interned.get(eldest);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.used) {
+                entry.used = false;
+                order.offer(eldest);
+            } else {
+                interned.remove(eldest, entry);
+            }
+        }
     }
 
-    public void setIngredients(List<Ingredient> ingredients) {
-        this.ingredients = ingredients;
+    /**
+     * Number of distinct pizzas that are interned.
+     *
+     * @return the number of interned pizzas
+     */
+    public int internedCount() {
+        return interned.size();
     }
 
-    public Pizza build() {
-        return new Pizza(this.name, this.ingredients);
+    /**
+     * What an interned pizza is looked up by: the id, name and ingredients it was built from.
+     */
+    private static final class Key {
+        private final Long id;
+        private final String name;
+        private final List<Ingredient> ingredients;
+        private final int hash;
+
+        private Key(Long id, String name, List<Ingredient> ingredients) {
+            this.id = id;
+            this.name = name;
+            this.ingredients = ingredients;
+            this.hash = Objects.hash(id, name, ingredients);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return hash == that.hash && Objects.equals(id, that.id) && name.equals(that.name)
+                    && ingredients.equals(that.ingredients);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * An interned pizza, and whether it was built again since the pool was last full.
+     */
+    private static final class Interned {
+        private final Pizza pizza;
+        private volatile boolean used;
+
+        private Interned(Pizza pizza) {
+            this.pizza = pizza;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package nl.tudelft.sem.template.basket.config;
+
+import commons.strategies.StrategyConverter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import nl.tudelft.sem.template.basket.services.CouponRedemptionLedger;
+import nl.tudelft.sem.template.basket.services.PermissiveCouponRedemptionLedger;
+import nl.tudelft.sem.template.basket.store.BasketJournal;
+import nl.tudelft.sem.template.basket.store.BasketStore;
+import nl.tudelft.sem.template.basket.store.InMemoryBasketStore;
+import nl.tudelft.sem.template.basket.store.OffHeapBasketStore;
+import nl.tudelft.sem.template.basket.store.RemoteBasketStore;
+import nl.tudelft.sem.template.basket.store.StripedBasketStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Selects where the live baskets are kept.
+ * basket.store=heap keeps them as objects on the heap, basket.store=off-heap keeps them encoded outside of it.
+ * basket.store=remote keeps them on a shared basket store server, so that several basket nodes can serve the same
+ * customers.
+ * With basket.wal.enabled=true the baskets are also written to a journal and restored on startup.
+ * Single-use coupons are reserved in a ledger in the memory of the node, which needs the baskets on the same node;
+ * with a remote store every basket may use them until they are deleted at checkout.
+ */
+@Configuration
+public class BasketStoreConfig {
+
+    /**
+     * The store that holds the live baskets.
+     *
+     * @param type        heap, off-heap or remote
+     * @param idleTtl     how long a basket may go without being accessed
+     * @param absoluteTtl how long a basket may outlive its pickup time
+     * @param host        the host of the basket store server, for a remote store
+     * @param port        the port of the basket store server, for a remote store
+     * @param connections the number of connections kept open to the server, for a remote store
+     * @param timeout     how long to wait for the server, for a remote store
+     * @param strategies  the converter of the strategies of coupons
+     * @return the basket store
+     */
+    @Bean
+    BasketStore basketStore(@Value("${basket.store:heap}") String type,
+                            @Value("${basket.expiry.idle-ttl:30m}") Duration idleTtl,
+                            @Value("${basket.expiry.absolute-ttl:2h}") Duration absoluteTtl,
+                            @Value("${basket.store.remote.host:localhost}") String host,
+                            @Value("${basket.store.remote.port:7070}") int port,
+                            @Value("${basket.store.remote.connections:16}") int connections,
+                            @Value("${basket.store.remote.timeout:5s}") Duration timeout,
+                            StrategyConverter strategies) {
+        switch (type) {
+            case "heap":
+                return new InMemoryBasketStore(idleTtl, absoluteTtl);
+            case "off-heap":
+                return new OffHeapBasketStore(idleTtl, absoluteTtl, strategies);
+            case "remote":
+                return new RemoteBasketStore(new InetSocketAddress(host, port), connections, timeout, strategies);
+            default:
+                throw new IllegalArgumentException("Unknown basket store " + type + ", use heap, off-heap or remote");
+        }
+    }
+
+    /**
+     * The journal that restores the baskets on startup and logs every change to them.
+     *
+     * @param store            the basket store
+     * @param directory        where the journal is kept
+     * @param segmentSize      the size of one segment of the log
+     * @param flushInterval    how often the log is forced to disk
+     * @param snapshotInterval how often all baskets are written to a snapshot
+     * @param strategies       the converter of the strategies of coupons
+     * @return the journal, closed when the application shuts down
+     * @throws IOException if the journal cannot be read or created
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "basket.wal.enabled", havingValue = "true")
+    BasketJournal basketJournal(BasketStore store,
+                                @Value("${basket.wal.directory:./basket-wal}") String directory,
+                                @Value("${basket.wal.segment-size:64MB}") DataSize segmentSize,
+                                @Value("${basket.wal.flush-interval:10ms}") Duration flushInterval,
+                                @Value("${basket.wal.snapshot-interval:5m}") Duration snapshotInterval,
+                                StrategyConverter strategies) throws IOException {
+        if (!(store instanceof StripedBasketStore)) {
+            throw new IllegalStateException("The basket journal needs a heap or off-heap store, "
+                    + "disable basket.wal.enabled for a remote store");
+        }
+        return BasketJournal.open((StripedBasketStore<?>) store, Path.of(directory), (int) segmentSize.toBytes(),
+                flushInterval, snapshotInterval, strategies);
+    }
+
+    /**
+     * The ledger that keeps a single-use coupon in at most one basket.
+     * Reservations are renewed whenever their basket is used, so they have to outlive an idle basket.
+     * The ledger is kept in the memory of the node, so with a remote store it is replaced by one that reserves nothing.
+     *
+     * @param store          the basket store
+     * @param reservationTtl how long a reservation is kept without being renewed
+     * @param idleTtl        how long a basket may go without being accessed
+     * @return the ledger
+     */
+    @Bean
+    CouponRedemptionLedger couponRedemptionLedger(BasketStore store,
+                                                  @Value("${basket.coupons.reservation-ttl:1h}") Duration reservationTtl,
+                                                  @Value("${basket.expiry.idle-ttl:30m}") Duration idleTtl) {
+        if (store instanceof RemoteBasketStore) {
+            return new PermissiveCouponRedemptionLedger();
+        }
+        if (!idleTtl.isZero() && reservationTtl.compareTo(idleTtl) <= 0) {
+            throw new IllegalStateException("basket.coupons.reservation-ttl must be longer than basket.expiry.idle-ttl");
+        }
+        return new CouponRedemptionLedger(reservationTtl);
+    }
+}
@@ -4,6 +4,7 @@ import commons.Coupon;
 import commons.Pizza;
 import commons.strategies.*;
 import nl.tudelft.sem.template.basket.repositories.CouponRepository;
+import nl.tudelft.sem.template.basket.services.PizzaService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +12,19 @@ import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class CouponConfig {
+
+    /**
+     * The converter that the basket stores read the strategies of coupons with, which looks up the pizzas of custom
+     * coupons on the menu.
+     *
+     * @param pizzaService the menu
+     * @return the converter
+     */
+    @Bean
+    StrategyConverter strategyConverter(PizzaService pizzaService) {
+        return new StrategyConverter(pizzaService);
+    }
+
     @Bean
     CommandLineRunner commandLineRunner2(CouponRepository repo) {
         return args -> {
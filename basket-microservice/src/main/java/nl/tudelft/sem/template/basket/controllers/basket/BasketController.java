@@ -4,53 +4,136 @@ import commons.Basket;
 import commons.Pizza;
 import commons.authentication.AuthenticationManager;
 import commons.Coupon;
+import nl.tudelft.sem.template.basket.models.Checkout;
 import nl.tudelft.sem.template.basket.models.TimeRequestModel;
 import nl.tudelft.sem.template.basket.services.*;
+import nl.tudelft.sem.template.basket.store.BasketStoreStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Optional;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @SuppressWarnings("PMD")
 @RestController
 @RequestMapping("/api/basket")
 public class BasketController {
 
+    /**
+     * Maximum number of rendered overviews that are kept.
+     */
+    static final int MAX_CACHED_OVERVIEWS = 4096;
+
     private final BasketService basketService;
+    private final BasketEventService basketEvents;
     private final transient AuthenticationManager authManager;
 
+    /**
+     * Rendered overviews by customer id and basket version, least recently used first.
+     */
+    private final transient Map<String, String> overviews = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_CACHED_OVERVIEWS;
+                }
+            });
+
     @Autowired
     private RestService restService;
 
+    @Autowired
+    private CouponService couponService;
+
     /**
      * Constructor for the basket handler.
      *
      * @param basketService BasketManager instance
+     * @param basketEvents  BasketEventService instance
      */
     @Autowired
-    public BasketController(BasketService basketService, AuthenticationManager authManager) {
+    public BasketController(BasketService basketService, BasketEventService basketEvents,
+                            AuthenticationManager authManager) {
         this.basketService = basketService;
+        this.basketEvents = basketEvents;
         this.authManager = authManager;
     }
 
     /**
      * GET endpoint for the Order MS to retrieve the basket of the customer.
      * Called when the customer decides to checkout
-     * Removes the basket from the baskets collection
+     * Removes the basket from the baskets collection in the same step, so a basket can only be checked out once.
+     * A single-use coupon in the basket is redeemed and deleted, so no other basket can use it anymore.
+     * If another basket has used that coupon already, the basket is not checked out: the coupon is taken out of it,
+     * its price is calculated again, and the basket as it is now is returned with Conflict.
+     *
+     * If the If-None-Match header holds the ETag of the current basket, the basket is not removed and Not Modified is
+     * returned instead. The ETag is compared in the same step that removes the basket, so a basket that changes in
+     * between is never removed by a request that meant to keep it.
      *
-     * @return the basket of the customer
+     * @param request the request, for its If-None-Match header
+     * @return the basket of the customer, not found if the customer has no basket
      */
     @GetMapping("/get")
-    public ResponseEntity<Basket> getBasket() {
+    public ResponseEntity<Basket> getBasket(WebRequest request) {
         String customerId = authManager.getNetId();
-        Basket basket = basketService.getBasket(customerId);
-        basketService.removeBasket(customerId);
-        return ResponseEntity.of(Optional.of(basket));
+        Checkout checkout = basketService.checkout(customerId, current -> request.checkNotModified(eTag(current)));
+        Basket basket = checkout.getBasket();
+        switch (checkout.getStatus()) {
+            case NO_BASKET:
+                return ResponseEntity.notFound().build();
+            case NOT_MODIFIED:
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(basket)).build();
+            case COUPON_TAKEN:
+                return ResponseEntity.status(HttpStatus.CONFLICT).eTag(eTag(basket)).body(basket);
+            default:
+                break;
+        }
+        Coupon coupon = basket.getBasketInfo().getCoupon();
+        if (coupon != null && !coupon.isLimitedTime()) {
+            Coupon stored = couponService.getByCode(coupon.getCode());
+            if (stored != null) {
+                couponService.delete(stored);
+            }
+        }
+        return ResponseEntity.ok().eTag(eTag(basket)).body(basket);
+    }
+
+    /**
+     * Server-sent event stream of the changes to the basket of the customer.
+     * Every change is pushed as an event named after the kind of change, with the version of the basket as its id
+     * and a {@link nl.tudelft.sem.template.basket.models.BasketDelta} as its data, so clients do not have to poll
+     * the overview to stay up to date.
+     *
+     * @return the event stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return basketEvents.subscribe(authManager.getNetId());
+    }
+
+    /**
+     * GET endpoint with the number of live baskets and the number of abandoned baskets that were evicted.
+     * Only stores and managers are allowed to see the statistics.
+     *
+     * @return the basket statistics, bad request for customers
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<BasketStoreStatistics> statistics() {
+        if (authManager.getRole().equals("customer")) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(basketService.getStatistics());
     }
 
     /**
@@ -81,7 +164,7 @@ public class BasketController {
             return ResponseEntity.badRequest().body("Please enter valid time!");
         }
 
-        basket.setTime(pickUpTime);
+        basketService.setPickupTime(customerId, pickUpTime);
         return ResponseEntity.ok("Your selected time: " + date.getMonthValue() + "/" + date.getDayOfMonth() + " "
                 + time.getHour() + ":" + time.getMinute());
     }
@@ -90,16 +173,43 @@ public class BasketController {
      * Displays the overview of the basket
      * Contains list of pizzas (name and price), the coupon that has been applied, and the total price of the basket.
      * If there is no basket with the provided customerId, it tells that the basket is empty.
+     * The response has the version of the basket as its ETag; if the If-None-Match header holds that ETag, Not
+     * Modified is returned. The overview is rendered once per version of the basket.
      *
+     * @param request the request, for its If-None-Match header
      * @return the String overview of the basket
      */
     @GetMapping("/overview")
-    public ResponseEntity<String> overview() {
+    public ResponseEntity<String> overview(WebRequest request) {
         String customerId = authManager.getNetId();
-        if (basketService.getBasket(customerId) == null) {
+        Basket basket = basketService.getBasket(customerId);
+        if (basket == null) {
             return ResponseEntity.ok("Your basket is empty!");
         }
-        Basket basket = basketService.getBasket(customerId);
+        String eTag = eTag(basket);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        String key = customerId + '@' + basket.getVersion();
+        String overview = overviews.get(key);
+        if (overview == null) {
+            overview = renderOverview(basket);
+            overviews.put(key, overview);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(overview);
+    }
+
+    /**
+     * The ETag of a version of a basket.
+     *
+     * @param basket the basket
+     * @return the quoted version of the basket
+     */
+    static String eTag(Basket basket) {
+        return "\"" + basket.getVersion() + "\"";
+    }
+
+    private String renderOverview(Basket basket) {
         StringBuilder sb = new StringBuilder();
         sb.append("Pizzas:\n");
         if (basket.getBasketInfo().getPizzas().isEmpty()) sb.append("Nothing is in the basket yet!\n");
@@ -108,7 +218,7 @@ public class BasketController {
         sb.append(printCoupon(basket.getBasketInfo().getCoupon()));
         sb.append("\n\nYour order will be ready at ").append(basket.timeToString()).append(".");
 
-        return ResponseEntity.ok(sb.toString());
+        return sb.toString();
     }
 
     /**
@@ -9,6 +9,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 @SuppressWarnings("PMD")
 @RestController
@@ -50,15 +52,19 @@ public class BasketCouponController {
     public ResponseEntity<String> couponChecker(String customerId, String code) {
         Basket basket = basketService.getBasket(customerId);
 
-        if (couponService.getByCode(code) == null) {
+        Coupon coupon = couponService.getByCode(code);
+        if (coupon == null) {
             return ResponseEntity.badRequest().body("Coupon code: " + code + " is invalid.");
         }
         if (basket.getBasketInfo().getCoupon() != null
                 && basket.getBasketInfo().getCoupon().getCode().equalsIgnoreCase(code)) {
             return ResponseEntity.badRequest().body("This coupon is already applied.");
         }
+        if (basketService.couponTaken(customerId, coupon)) {
+            return ResponseEntity.badRequest().body("Coupon code: " + code + " has already been used.");
+        }
 
-        return couponApplier(customerId, couponService.getByCode(code));
+        return couponApplier(customerId, coupon);
     }
 
     public ResponseEntity<String> couponApplier(String customerId, Coupon coupon) {
@@ -72,6 +78,41 @@ public class BasketCouponController {
                 + "Current price: €" + df.format(basket.getBasketInfo().getPrice()));
     }
 
+    /**
+     * Applies the coupon that makes the basket cheapest.
+     * The coupons to choose from are the given codes, for example the coupons in the wallet of the customer, or all
+     * coupons that can be used more than once if no codes are given. Codes that are not coupons are skipped.
+     *
+     * @param codes the activation codes of the coupons to choose from, or nothing for all reusable coupons
+     * @return ok with the applied coupon and the new price, bad_request if no coupon makes the basket cheaper
+     */
+    @PostMapping("/applyBestCoupon")
+    public ResponseEntity<String> applyBestCouponToBasket(@RequestBody(required = false) List<String> codes) {
+        String customerId = authManager.getNetId();
+        if (basketService.getBasket(customerId) == null)
+            return ResponseEntity.badRequest().body("Your basket is empty!");
+
+        List<Coupon> candidates;
+        if (codes == null || codes.isEmpty()) {
+            candidates = couponService.reusableCoupons();
+        } else {
+            candidates = new ArrayList<>(codes.size());
+            for (String code : codes) {
+                Coupon coupon = couponService.getByCode(code);
+                if (coupon != null) candidates.add(coupon);
+            }
+        }
+
+        Coupon applied = basketService.applyBestCoupon(customerId, candidates);
+        if (applied == null) return ResponseEntity.badRequest().body(
+                "None of the coupons makes your basket cheaper than it is now.");
+
+        Basket basket = basketService.getBasket(customerId);
+        DecimalFormat df = new DecimalFormat("0.00");
+        return ResponseEntity.ok("Coupon code: " + applied.getCode() + " is the best coupon for your basket.\n"
+                + applied.getMessage() + "Current price: €" + df.format(basket.getBasketInfo().getPrice()));
+    }
+
     /**
      * Removes the coupon that has been applied to the basket.
      *
@@ -86,6 +127,7 @@ public class BasketCouponController {
         }
         Coupon coupon = basket.getBasketInfo().getCoupon();
         basketService.removeCouponFromBasket(customerId);
+        basket = basketService.getBasket(customerId);
         StringBuilder sb = new StringBuilder();
         DecimalFormat df = new DecimalFormat("0.00");
 
@@ -1,17 +1,23 @@
 package nl.tudelft.sem.template.basket.controllers.basket;
 
+import commons.Basket;
+import commons.Coupon;
 import commons.Ingredient;
 import commons.Pizza;
 import commons.authentication.AuthenticationManager;
 import nl.tudelft.sem.template.basket.builder.PizzaBuilder;
+import nl.tudelft.sem.template.basket.models.BasketOperationModel;
 import nl.tudelft.sem.template.basket.models.PizzaRequestModel;
 import nl.tudelft.sem.template.basket.services.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @SuppressWarnings("PMD")
 @RestController
@@ -21,6 +27,7 @@ public class BasketPizzaController {
     private final PizzaService pizzaService;
     private final BasketService basketService;
     private final IngredientService ingredientService;
+    private final CouponService couponService;
     private final transient AuthenticationManager authManager;
     private final PizzaBuilder pizzaBuilder;
 
@@ -29,16 +36,18 @@ public class BasketPizzaController {
      *
      * @param pizzaService  PizzaService instance
      * @param basketService BasketManager instance
+     * @param couponService CouponService instance
      */
     @Autowired
     public BasketPizzaController(PizzaService pizzaService, BasketService basketService,
                             AuthenticationManager authManager, PizzaBuilder pizzaBuilder,
-                            IngredientService ingredientService) {
+                            IngredientService ingredientService, CouponService couponService) {
         this.pizzaService = pizzaService;
         this.basketService = basketService;
         this.authManager = authManager;
         this.pizzaBuilder = pizzaBuilder;
         this.ingredientService = ingredientService;
+        this.couponService = couponService;
     }
 
     /**
@@ -59,9 +68,7 @@ public class BasketPizzaController {
         if (pizzaService.findByName(pizzaName) == null) {
             return ResponseEntity.badRequest().body("There is no such pizza as " + pizzaName + " on the menu.");
         } else {
-            pizzaBuilder.setName(pizzaName);
-            pizzaBuilder.setIngredients(pizzaService.findByName(pizzaName).getIngredients());
-            Pizza pizza = pizzaBuilder.build();
+            Pizza pizza = pizzaBuilder.build(pizzaService.findByName(pizzaName));
             if (pizza == null) {
                 return ResponseEntity.badRequest().body("There is no such pizza as " + pizzaName + " on the menu.");
             } else {
@@ -105,18 +112,95 @@ public class BasketPizzaController {
         if (pizzaReqModel.getIngredients().isEmpty()) {
             return ResponseEntity.badRequest().body("Please provide at least " + "one ingredient.");
         }
-        pizzaBuilder.setName(pizzaReqModel.getName());
         List<Ingredient> ingredients = new ArrayList<>();
         // Check if all ingredients are in the database.
         if (checkIngredientValidity(pizzaReqModel.getIngredients(), ingredients) != null)
             return checkIngredientValidity(pizzaReqModel.getIngredients(), ingredients);
-        pizzaBuilder.setIngredients(ingredients);
-        Pizza pizza = pizzaBuilder.build();
+        Pizza pizza = pizzaBuilder.build(pizzaReqModel.getName(), ingredients);
         basketService.addPizzaToBasket(customerId, pizza);
         return ResponseEntity.ok("Pizza " + pizza.getName() + " is added to the basket. Current basket is seen below:\n"
                 + basketService.getBasket(customerId).toString());
     }
 
+    /**
+     * Applies a list of operations to the basket in one request, for example to build a large order at once.
+     * Every pizza, ingredient and coupon is looked up before the basket is touched, after which all operations
+     * are applied atomically and the basket is priced once. Either every operation is applied or none is.
+     * Pizzas are added first, then removed, then the cheapest of the coupons is kept; see
+     * {@link BasketService#applyBatch}.
+     *
+     * @param operations the operations to apply, see {@link BasketOperationModel}
+     * @return Bad Request if an operation is invalid, or OK with a summary of the basket
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<String> applyBatch(@RequestBody List<BasketOperationModel> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return ResponseEntity.badRequest().body("Please provide at least one operation.");
+        }
+        List<Pizza> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<Coupon> coupons = new ArrayList<>();
+        Map<String, Pizza> menu = new HashMap<>();
+        for (BasketOperationModel operation : operations) {
+            String type = operation.getType() == null ? "" : operation.getType();
+            switch (type) {
+                case "add":
+                    Pizza pizza = menu.computeIfAbsent(operation.getName(), this::menuPizza);
+                    if (pizza == null) {
+                        return ResponseEntity.badRequest()
+                                .body("There is no such pizza as " + operation.getName() + " on the menu.");
+                    }
+                    added.add(pizza);
+                    break;
+                case "custom":
+                    if (operation.getIngredients() == null || operation.getIngredients().isEmpty()) {
+                        return ResponseEntity.badRequest().body("Please provide at least " + "one ingredient.");
+                    }
+                    List<Ingredient> ingredients = new ArrayList<>();
+                    ResponseEntity<String> invalid = checkIngredientValidity(operation.getIngredients(), ingredients);
+                    if (invalid != null) {
+                        return invalid;
+                    }
+                    added.add(pizzaBuilder.build(operation.getName(), ingredients));
+                    break;
+                case "remove":
+                    removed.add(operation.getName());
+                    break;
+                case "coupon":
+                    Coupon coupon = couponService.getByCode(operation.getCode());
+                    if (coupon == null) {
+                        return ResponseEntity.badRequest()
+                                .body("Coupon code: " + operation.getCode() + " is invalid.");
+                    }
+                    coupons.add(coupon);
+                    break;
+                default:
+                    return ResponseEntity.badRequest().body("Unknown operation " + type
+                            + ", use add, custom, remove or coupon.");
+            }
+        }
+
+        String customerId = authManager.getNetId();
+        checkBasketExistence(customerId);
+        Basket basket = basketService.applyBatch(customerId, added, removed, coupons);
+        if (basket == null) {
+            return ResponseEntity.badRequest()
+                    .body("Not all pizzas to remove are in your basket, nothing has been changed.");
+        }
+        DecimalFormat df = new DecimalFormat("0.00");
+        return ResponseEntity.ok("Basket updated: " + basket.getBasketInfo().getPizzas().size() + " pizzas, coupon "
+                + (basket.getBasketInfo().getCoupon() == null ? "none" : basket.getBasketInfo().getCoupon().getCode())
+                + ", total price: €" + df.format(basket.getBasketInfo().getPrice()));
+    }
+
+    private Pizza menuPizza(String pizzaName) {
+        Pizza menuPizza = pizzaService.findByName(pizzaName);
+        if (menuPizza == null) {
+            return null;
+        }
+        return pizzaBuilder.build(menuPizza);
+    }
+
     /**
      * Checks to see if there is already a basket for this particular customer.
      *
@@ -136,11 +220,12 @@ public class BasketPizzaController {
      * @return a bad request response if the repo does not have the ingredients, null otherwise
      */
     public ResponseEntity<String> checkIngredientValidity(List<String> reqIngredients, List<Ingredient> ingredients) {
-        for (String ingredient : reqIngredients) {
-            if (ingredientService.getByName(ingredient) == null)
+        List<Ingredient> found = ingredientService.getByNames(reqIngredients);
+        for (int i = 0; i < reqIngredients.size(); i++) {
+            if (found.get(i) == null)
                 return ResponseEntity.badRequest().body("We do not have "
-                        + ingredient + " as an ingredient on our inventory");
-            else ingredients.add(ingredientService.getByName(ingredient));
+                        + reqIngredients.get(i) + " as an ingredient on our inventory");
+            else ingredients.add(found.get(i));
         }
         return null;
     }
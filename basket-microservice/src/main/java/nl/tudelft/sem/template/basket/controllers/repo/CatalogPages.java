@@ -0,0 +1,97 @@
+package nl.tudelft.sem.template.basket.controllers.repo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Pages of the catalog lists (pizzas, ingredients and coupons), written straight to the response.
+ * A page is a JSON object with the selected fields of at most {@link #MAX_LIMIT} items, and the cursor of the next
+ * page: {"items": [...], "next": "3.50"}. The cursor is the version of the catalog and the offset of the next item, so
+ * a client that pages through a catalog that changes in between gets a conflict instead of skipped or repeated items.
+ */
+@SuppressWarnings("PMD")
+final class CatalogPages {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 500;
+
+    private CatalogPages() {
+    }
+
+    /**
+     * Writes one page of the catalog list.
+     *
+     * @param items   the whole catalog list, which is not copied
+     * @param version the version of the catalog the list belongs to
+     * @param cursor  the cursor returned with the previous page, or null for the first page
+     * @param limit   the maximum number of items on the page, or null for the default
+     * @param fields  comma separated names of the fields to write, or null for all fields
+     * @param columns the fields an item can be written with, in the order they are written
+     * @param mapper  the mapper to write the values of the fields with
+     * @param <T>     the type of the items
+     * @return the page, bad request for a malformed cursor or unknown field, conflict if the catalog has changed
+     */
+    static <T> ResponseEntity<StreamingResponseBody> page(List<T> items, long version, String cursor, Integer limit,
+                                                          String fields, Map<String, Function<T, Object>> columns,
+                                                          ObjectMapper mapper) {
+        int offset = 0;
+        if (cursor != null) {
+            int dot = cursor.indexOf('.');
+            try {
+                if (dot < 0 || Long.parseLong(cursor.substring(0, dot)) != version) {
+                    return new ResponseEntity<>(HttpStatus.CONFLICT);
+                }
+                offset = Integer.parseInt(cursor.substring(dot + 1));
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (offset < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        List<String> selected = new ArrayList<>(columns.keySet());
+        if (fields != null && !fields.isBlank()) {
+            selected = new ArrayList<>();
+            for (String field : fields.split(",")) {
+                if (!columns.containsKey(field.trim())) {
+                    return ResponseEntity.badRequest().build();
+                }
+                selected.add(field.trim());
+            }
+        }
+        int size = Math.max(1, Math.min(MAX_LIMIT, limit == null ? DEFAULT_LIMIT : limit));
+        int from = Math.min(offset, items.size());
+        int to = Math.min(from + size, items.size());
+        List<T> page = items.subList(from, to);
+        String next = to < items.size() ? version + "." + to : null;
+        List<String> names = selected;
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("items");
+                for (T item : page) {
+                    json.writeStartObject();
+                    for (String name : names) {
+                        json.writeFieldName(name);
+                        json.writeObject(columns.get(name).apply(item));
+                    }
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeStringField("next", next);
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
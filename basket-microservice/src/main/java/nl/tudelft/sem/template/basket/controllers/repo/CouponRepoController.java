@@ -1,5 +1,6 @@
 package nl.tudelft.sem.template.basket.controllers.repo;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Coupon;
 import commons.authentication.AuthenticationManager;
 import nl.tudelft.sem.template.basket.models.CouponRequestModel;
@@ -8,13 +9,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Coupon DB controller is responsible for any incoming requests regarding the Coupon DB.
  * Includes:
  * - GETting all coupons  from the repo
+ * - GETting a page of the coupons with selected fields
  * - GETting a specific coupon by its code
  * - ADDing a new coupon to the repo
  * - REMOVEing a coupon from the repo
@@ -24,9 +31,26 @@ import java.util.List;
 @RequestMapping("/api/repo/coupons")
 public class CouponRepoController {
 
+    /**
+     * Fields of a coupon that a page can be written with.
+     */
+    private static final Map<String, Function<Coupon, Object>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", Coupon::getId);
+        COLUMNS.put("code", Coupon::getCode);
+        COLUMNS.put("type", Coupon::getType);
+        COLUMNS.put("rate", Coupon::getRate);
+        COLUMNS.put("limitedTime", Coupon::isLimitedTime);
+    }
+
     private final CouponService couponService;
     private final transient AuthenticationManager authManager;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final SerializedCatalog all = new SerializedCatalog();
 
     /**
      * Constructor for the coupon repo controller.
@@ -42,12 +66,31 @@ public class CouponRepoController {
 
     /**
      * Get all the coupons in the repository.
+     * The list is serialized once per version of the coupons, and returns Not Modified if the client already has it.
      *
+     * @param request the request, for its If-None-Match and Accept-Encoding headers
      * @return List of all coupons in the repository
      */
     @GetMapping("")
-    public ResponseEntity<List<Coupon>> getAllCoupons() {
-        return new ResponseEntity<>(couponService.findAll(), HttpStatus.OK);
+    public ResponseEntity<byte[]> getAllCoupons(WebRequest request) {
+        return all.respond(couponService.version(), couponService::findAll, objectMapper, request);
+    }
+
+    /**
+     * Get a page of the coupons in the repository, ordered by id, with only the requested fields.
+     *
+     * @param cursor the cursor returned with the previous page, none for the first page
+     * @param limit  the maximum number of coupons on the page
+     * @param fields comma separated fields of the coupons to return (id, code, type, rate, limitedTime), none for all
+     * @return the page of coupons and the cursor of the next page, conflict if the coupons have changed
+     */
+    @GetMapping("/page")
+    public ResponseEntity<StreamingResponseBody> getCouponPage(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "fields", required = false) String fields) {
+        long version = couponService.version();
+        return CatalogPages.page(couponService.coupons(), version, cursor, limit, fields, COLUMNS, objectMapper);
     }
 
     /**
@@ -0,0 +1,72 @@
+package nl.tudelft.sem.template.basket.controllers.repo;
+
+import commons.authentication.AuthenticationManager;
+import nl.tudelft.sem.template.basket.models.ImportResult;
+import nl.tudelft.sem.template.basket.services.CatalogImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Import controller is responsible for loading whole menus into the Pizza, Ingredient and Coupon DBs at once.
+ * Includes:
+ * - IMPORTing ingredients, pizzas or coupons from a JSON array or a CSV file
+ */
+@SuppressWarnings("PMD")
+@RestController
+@RequestMapping("/api/repo/import")
+public class ImportRepoController {
+
+    private final CatalogImportService importService;
+    private final transient AuthenticationManager authManager;
+
+    /**
+     * Constructor for the import controller.
+     *
+     * @param importService CatalogImportService instance
+     * @param authManager   AuthenticationManager instance
+     */
+    @Autowired
+    public ImportRepoController(CatalogImportService importService, AuthenticationManager authManager) {
+        this.importService = importService;
+        this.authManager = authManager;
+    }
+
+    /**
+     * Imports the rows of the request body, which is read while the rows are saved.
+     * The body is a CSV file if the content type is text/csv, and a JSON array of request models otherwise.
+     * Ingredients have to be imported before the pizzas that use them.
+     *
+     * @param kind    what to import: ingredients, pizzas or coupons
+     * @param request the request, for its body and content type
+     * @return the number of imported and rejected rows, bad request for customers, unknown kinds and unreadable files
+     */
+    @PostMapping("/{kind}")
+    public ResponseEntity<ImportResult> importCatalog(@PathVariable("kind") String kind, HttpServletRequest request) {
+        // only stores and managers are allowed to add to the database
+        if (authManager.getRole().equals("customer")) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean csv = request.getContentType() != null && request.getContentType().startsWith("text/csv");
+        try (InputStream in = request.getInputStream()) {
+            switch (kind) {
+                case "ingredients":
+                    return ResponseEntity.ok(importService.importIngredients(in, csv));
+                case "pizzas":
+                    return ResponseEntity.ok(importService.importPizzas(in, csv));
+                case "coupons":
+                    return ResponseEntity.ok(importService.importCoupons(in, csv));
+                default:
+                    return ResponseEntity.badRequest().build();
+            }
+        } catch (IOException e) {
+            ImportResult result = new ImportResult();
+            result.getErrors().add("The file cannot be read: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+}
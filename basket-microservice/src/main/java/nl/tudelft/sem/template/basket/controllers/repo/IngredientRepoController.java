@@ -1,22 +1,30 @@
 package nl.tudelft.sem.template.basket.controllers.repo;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Ingredient;
 import commons.authentication.AuthenticationManager;
 import nl.tudelft.sem.template.basket.models.IngredientRequestModel;
 import nl.tudelft.sem.template.basket.services.IngredientService;
+import nl.tudelft.sem.template.basket.services.PizzaService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Ingredient DB controller is responsible for any incoming requests regarding the Ingredient DB.
  * Includes:
  * - GETting all ingredients from the repo
+ * - GETting a page of the ingredients with selected fields
  * - ADDing a new ingredient into the repo
+ * - UPDATing the price of an ingredient, and of the pizzas that contain it
  * - GETting all ingredients in a list display for allergy selection
  */
 @SuppressWarnings("PMD")
@@ -24,29 +32,71 @@ import java.util.List;
 @RequestMapping("/api/repo/ingredients")
 public class IngredientRepoController {
 
+    /**
+     * Fields of an ingredient that a page can be written with.
+     */
+    private static final Map<String, Function<Ingredient, Object>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", Ingredient::getId);
+        COLUMNS.put("name", Ingredient::getName);
+        COLUMNS.put("price", Ingredient::getPrice);
+    }
+
     private final IngredientService ingredientService;
+    private final PizzaService pizzaService;
     private final transient AuthenticationManager authManager;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final SerializedCatalog all = new SerializedCatalog();
+    private final SerializedCatalog allergies = new SerializedCatalog();
+
     /**
      * Constructor for the ingredient repo controller.
      *
      * @param ingredientService IngredientService instance
+     * @param pizzaService      PizzaService instance
      * @param authManager       AuthenticationManager instance
      */
     @Autowired
-    public IngredientRepoController(IngredientService ingredientService, AuthenticationManager authManager) {
+    public IngredientRepoController(IngredientService ingredientService, PizzaService pizzaService,
+                                    AuthenticationManager authManager) {
         this.ingredientService = ingredientService;
+        this.pizzaService = pizzaService;
         this.authManager = authManager;
     }
 
     /**
      * Getter for ingredients.
+     * The list is serialized once per version of the ingredients, and returns Not Modified if the client already has it.
      *
+     * @param request the request, for its If-None-Match and Accept-Encoding headers
      * @return all ingredients on the database
      */
     @GetMapping("")
-    public ResponseEntity<List<Ingredient>> getIngredients() {
-        return new ResponseEntity<>(ingredientService.findAll(), HttpStatus.OK);
+    public ResponseEntity<byte[]> getIngredients(WebRequest request) {
+        return all.respond(ingredientService.version(), ingredientService::findAll, objectMapper, request);
+    }
+
+    /**
+     * Returns a page of the ingredients, with only the requested fields.
+     * The fields id and name give the same information as the allergy list, one page at a time.
+     *
+     * @param cursor the cursor returned with the previous page, none for the first page
+     * @param limit  the maximum number of ingredients on the page
+     * @param fields comma separated fields of the ingredients to return (id, name, price), none for all
+     * @return the page of ingredients and the cursor of the next page, conflict if the ingredients have changed
+     */
+    @GetMapping("/page")
+    public ResponseEntity<StreamingResponseBody> getIngredientPage(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "fields", required = false) String fields) {
+        long version = ingredientService.version();
+        return CatalogPages.page(ingredientService.ingredients(), version, cursor, limit, fields, COLUMNS,
+                objectMapper);
     }
 
     /**
@@ -71,21 +121,50 @@ public class IngredientRepoController {
         }
     }
 
+    /**
+     * Changes the price of an existing ingredient, and reprices the pizzas on the menu that contain it.
+     *
+     * @param ingredientRm the name of the ingredient and its new price
+     * @return OK with the number of repriced pizzas, or BAD REQUEST with description
+     */
+    @PostMapping("/updatePrice")
+    public ResponseEntity<String> updateIngredientPrice(@RequestBody IngredientRequestModel ingredientRm) {
+        // only stores and managers are allowed to change prices
+        if (authManager.getRole().equals("customer")) {
+            return ResponseEntity.badRequest().body("Only stores and managers can change the price of ingredients!");
+        }
+        if (ingredientRm.getPrice() == null || ingredientRm.getPrice() <= 0.0) {
+            return ResponseEntity.badRequest().body("The price of an ingredient must be positive.");
+        }
+        Ingredient updated = ingredientService.updatePrice(ingredientRm.getName(), ingredientRm.getPrice());
+        if (updated == null) {
+            return ResponseEntity.badRequest().body("Ingredient " + ingredientRm.getName() + " does not exist.");
+        }
+        int repriced = pizzaService.reprice(updated);
+        return ResponseEntity.ok("The price of " + updated.getName() + " is updated, " + repriced
+                + " pizzas are repriced.");
+    }
+
     /**
      * Getter for the list of ingredients that a customer can choose from.
      *
+     * The list is serialized once per version of the ingredients, like {@link #getIngredients}.
+     *
+     * @param request the request, for its If-None-Match and Accept-Encoding headers
      * @return all ingredients in the form: {id} - {name}
      */
     @GetMapping("/allergies")
-    public ResponseEntity<List<String>> getAllergies() {
+    public ResponseEntity<byte[]> getAllergies(WebRequest request) {
+        return allergies.respond(ingredientService.version(), this::allergyList, objectMapper, request);
+    }
 
+    private List<String> allergyList() {
         List<Ingredient> ingredientList = ingredientService.findAll();
         List<String> allAllergies = new ArrayList<>();
 
         for (Ingredient i : ingredientList) {
             allAllergies.add(i.getId().toString() + " - " + i.getName());
         }
-
-        return new ResponseEntity<>(allAllergies, HttpStatus.OK);
+        return allAllergies;
     }
 }
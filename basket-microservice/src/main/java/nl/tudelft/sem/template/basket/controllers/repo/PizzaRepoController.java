@@ -1,26 +1,33 @@
 package nl.tudelft.sem.template.basket.controllers.repo;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Ingredient;
 import commons.Pizza;
 import commons.authentication.AuthenticationManager;
 import nl.tudelft.sem.template.basket.AllergiesResponseModel;
+import nl.tudelft.sem.template.basket.models.MenuCacheStatistics;
 import nl.tudelft.sem.template.basket.models.PizzaRequestModel;
 import nl.tudelft.sem.template.basket.services.IngredientService;
 import nl.tudelft.sem.template.basket.services.PizzaService;
 import nl.tudelft.sem.template.basket.services.RestService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Pizza DB controller is responsible for any incoming requests regarding the Pizza DB.
  * Includes:
  * - GETting all pizzas from the repo (+ filter out)
+ * - GETting a page of the pizzas with selected fields (+ filter out)
+ * - GETting the statistics of the filtered menu cache
  * - ADDing a new pizza to the repo
  */
 @SuppressWarnings("PMD")
@@ -28,11 +35,27 @@ import java.util.List;
 @RequestMapping("/api/repo/pizzas")
 public class PizzaRepoController {
 
+    /**
+     * Fields of a pizza that a page can be written with.
+     */
+    private static final Map<String, Function<Pizza, Object>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("name", Pizza::getName);
+        COLUMNS.put("price", Pizza::getPrice);
+        COLUMNS.put("ingredients", Pizza::getIngredients);
+    }
+
     private final PizzaService pizzaService;
     private final IngredientService ingredientService;
     private final transient AuthenticationManager authManager;
     private final RestService restService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final SerializedCatalog menu = new SerializedCatalog();
+
     /**
      * Constructor for the pizza repo controller.
      *
@@ -53,29 +76,69 @@ public class PizzaRepoController {
     /**
      * Returns all pizzas on the menu.
      * Filters out pizzas containing allergens by customer's request.
+     * The whole menu is serialized once per menu version, and returns Not Modified if the client already has it.
      *
      * @param filterOut Boolean for whether the customer wants pizzas to be filtered
      * @param token     Token of the customer, to retrieve allergens
+     * @param request   the request, for its If-None-Match and Accept-Encoding headers
      * @return the menu of pizzas to display
      */
     @GetMapping("/{filterOut}")
-    public ResponseEntity<List<Pizza>> getPizzas(@PathVariable("filterOut") Boolean filterOut,
-                                                 @RequestHeader(name = "Authorization") String token) {
-        AllergiesResponseModel request = restService.getAllergiesNetId(token).getBody();
-        List<Long> allergies = request.getAllergies();
-        List<Pizza> allPizzas = pizzaService.findAll();
+    public ResponseEntity<byte[]> getPizzas(@PathVariable("filterOut") Boolean filterOut,
+                                            @RequestHeader(name = "Authorization") String token, WebRequest request) {
+        if (!filterOut) {
+            return menu.respond(pizzaService.version(), pizzaService::findAll, objectMapper, request);
+        }
+        AllergiesResponseModel allergiesResponse = restService.getAllergiesNetId(token).getBody();
+        List<Long> allergies = allergiesResponse.getAllergies();
+        allergies.remove(0L);
+        List<Ingredient> allergens = ingredientService.getByIds(allergies);
+        return SerializedCatalog.respondOnce(pizzaService.findAllWithout(allergens), objectMapper, request);
+    }
 
+    /**
+     * Returns a page of the pizzas on the menu, with only the requested fields.
+     * Filters out pizzas containing allergens by customer's request.
+     *
+     * @param filterOut whether the customer wants pizzas to be filtered
+     * @param cursor    the cursor returned with the previous page, none for the first page
+     * @param limit     the maximum number of pizzas on the page
+     * @param fields    comma separated fields of the pizzas to return (name, price, ingredients), none for all
+     * @param token     Token of the customer, to retrieve allergens
+     * @return the page of pizzas and the cursor of the next page, conflict if the menu has changed since the cursor
+     */
+    @GetMapping("/page")
+    public ResponseEntity<StreamingResponseBody> getPizzaPage(
+            @RequestParam(name = "filterOut", defaultValue = "false") Boolean filterOut,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestHeader(name = "Authorization") String token) {
+        long version = pizzaService.version();
+        List<Pizza> pizzas;
         if (filterOut) {
+            List<Long> allergies = restService.getAllergiesNetId(token).getBody().getAllergies();
             allergies.remove(0L);
-            List<Ingredient> allergens = new ArrayList<>();
-            for (Long l : allergies) {
-                allergens.add(ingredientService.findById(l));
-            }
-            allPizzas = pizzaService.filterOutPizzas(allergens, allPizzas);
+            pizzas = pizzaService.findAllWithout(ingredientService.getByIds(allergies));
+        } else {
+            pizzas = pizzaService.menu();
         }
-        return new ResponseEntity<>(allPizzas, HttpStatus.OK);
+        return CatalogPages.page(pizzas, version, cursor, limit, fields, COLUMNS, objectMapper);
     }
 
+    /**
+     * GET endpoint with the size and hit rate of the cache of filtered menus.
+     * Only stores and managers are allowed to see the statistics.
+     *
+     * @return the menu cache statistics, bad request for customers
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<MenuCacheStatistics> statistics() {
+        if (authManager.getRole().equals("customer")) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pizzaService.getMenuCacheStatistics());
+    }
 
     /**
      * Add a Pizza instance to the pizza repo if the pizza is valid, and if all ingredients exist.
@@ -90,13 +153,11 @@ public class PizzaRepoController {
         if (authManager.getRole().equals("customer")) {
             return ResponseEntity.badRequest().body("Only stores and managers can add new pizzas to the database!");
         }
-        List<Ingredient> ingredients = new ArrayList<>();
-        for (String ingredientName : pizzaRm.getIngredients()) {
-            Ingredient found = ingredientService.getByName(ingredientName);
-            if (found == null) {
-                return ResponseEntity.badRequest().body("Ingredient " + ingredientName + " does not exist.");
-            } else {
-                ingredients.add(ingredientService.getByName(ingredientName));
+        List<Ingredient> ingredients = ingredientService.getByNames(pizzaRm.getIngredients());
+        for (int i = 0; i < ingredients.size(); i++) {
+            if (ingredients.get(i) == null) {
+                return ResponseEntity.badRequest().body("Ingredient " + pizzaRm.getIngredients().get(i)
+                        + " does not exist.");
             }
         }
         Pizza pizza = new Pizza(pizzaRm.getName(), ingredients);
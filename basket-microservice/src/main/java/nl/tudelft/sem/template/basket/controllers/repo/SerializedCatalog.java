@@ -0,0 +1,114 @@
+package nl.tudelft.sem.template.basket.controllers.repo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON body of a catalog list (pizzas, ingredients, coupons or allergies), serialized once per catalog version.
+ * Every read of the same version is served from the same bytes, with a strong ETag derived from their content, so
+ * clients that already have the list get Not Modified without anything being serialized. The gzipped body is made the
+ * first time a client asks for it, and kept for the rest of the version as well.
+ */
+@SuppressWarnings("PMD")
+final class SerializedCatalog {
+
+    private volatile Body body;
+
+    /**
+     * Responds with the serialized catalog, serializing it again only if the catalog version has changed.
+     *
+     * @param version the current version of the catalog, read before the content
+     * @param content supplies the catalog list, only called when the body has to be serialized again
+     * @param mapper  the mapper to serialize the list with
+     * @param request the request, for its If-None-Match and Accept-Encoding headers
+     * @return the serialized catalog, or Not Modified if the client has the same body
+     */
+    ResponseEntity<byte[]> respond(long version, Supplier<Object> content, ObjectMapper mapper, WebRequest request) {
+        Body current = body;
+        if (current == null || current.version != version) {
+            current = new Body(version, serialize(content.get(), mapper));
+            body = current;
+        }
+        return current.respond(request);
+    }
+
+    /**
+     * Responds with a list that is not worth keeping, with the same ETag and compression as a kept catalog.
+     *
+     * @param content the list to serialize
+     * @param mapper  the mapper to serialize the list with
+     * @param request the request, for its If-None-Match and Accept-Encoding headers
+     * @return the serialized list, or Not Modified if the client has the same body
+     */
+    static ResponseEntity<byte[]> respondOnce(Object content, ObjectMapper mapper, WebRequest request) {
+        return new Body(-1, serialize(content, mapper)).respond(request);
+    }
+
+    private static byte[] serialize(Object content, ObjectMapper mapper) {
+        try {
+            return mapper.writeValueAsBytes(content);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Catalog cannot be serialized", e);
+        }
+    }
+
+    /**
+     * Serialized body of one version of the catalog.
+     */
+    private static final class Body {
+        private final long version;
+        private final byte[] json;
+        private final String eTag;
+        private volatile byte[] gzip;
+
+        private Body(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+            this.eTag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        }
+
+        private ResponseEntity<byte[]> respond(WebRequest request) {
+            String accepted = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            boolean gzipped = accepted != null && accepted.contains("gzip");
+            // the gzipped body has other bytes, so a strong ETag has to differ from the plain one
+            String tag = gzipped ? eTag.substring(0, eTag.length() - 1) + "-gzip\"" : eTag;
+            if (request.checkNotModified(tag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(tag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!gzipped) {
+                return response.body(json);
+            }
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip());
+        }
+
+        private byte[] gzip() {
+            byte[] current = gzip;
+            if (current == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+                try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+                    zip.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                current = out.toByteArray();
+                gzip = current;
+            }
+            return current;
+        }
+    }
+}
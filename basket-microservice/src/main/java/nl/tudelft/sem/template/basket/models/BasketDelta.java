@@ -0,0 +1,26 @@
+package nl.tudelft.sem.template.basket.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A change to a basket, as pushed to the customer on the basket event stream.
+ * The type tells what changed: pizzaAdded, pizzaRemoved, couponApplied, couponRemoved, storeSet, timeSet, batch,
+ * priceCalculated or removed. A resync delta tells the client that deltas were dropped and the basket has to be
+ * fetched again.
+ */
+@AllArgsConstructor
+@Data
+public class BasketDelta {
+
+    private String type;
+    /**
+     * The pizza or coupon the change is about, if any.
+     */
+    private String detail;
+    private long version;
+    private int pizzas;
+    private double price;
+
+    public BasketDelta() {}
+}
@@ -0,0 +1,23 @@
+package nl.tudelft.sem.template.basket.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One operation of a batch of changes to a basket.
+ * The type is add (a pizza from the menu by name), custom (a pizza with the given name and ingredients),
+ * remove (a pizza in the basket by name) or coupon (apply the coupon with the given code).
+ */
+@AllArgsConstructor
+@Data
+public class BasketOperationModel {
+
+    private String type;
+    private String name;
+    private List<String> ingredients;
+    private String code;
+
+    public BasketOperationModel() {}
+}
@@ -0,0 +1,37 @@
+package nl.tudelft.sem.template.basket.models;
+
+import commons.Basket;
+import commons.Coupon;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of checking out the basket of a customer.
+ * A checked out basket has been removed. If the single-use coupon in the basket was used by another basket, the
+ * basket is kept instead: the coupon has been taken out of it and its price calculated again, so the customer can
+ * see the new price before checking out again. A basket the caller already has is kept as well.
+ */
+@AllArgsConstructor
+@Data
+public class Checkout {
+
+    /**
+     * What happened to the basket.
+     */
+    public enum Status {
+        CHECKED_OUT,
+        NO_BASKET,
+        COUPON_TAKEN,
+        NOT_MODIFIED
+    }
+
+    private Status status;
+    /**
+     * The removed basket, or the basket as it is now if it has been kept.
+     */
+    private Basket basket;
+    /**
+     * The coupon that was taken out of the basket, if any.
+     */
+    private Coupon coupon;
+}
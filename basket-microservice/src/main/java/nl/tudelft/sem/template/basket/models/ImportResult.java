@@ -0,0 +1,23 @@
+package nl.tudelft.sem.template.basket.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many rows were saved, how many were rejected, and why the first rejected rows were.
+ */
+@AllArgsConstructor
+@Data
+public class ImportResult {
+
+    private long imported;
+    private long rejected;
+    private List<String> errors;
+
+    public ImportResult() {
+        this.errors = new ArrayList<>();
+    }
+}
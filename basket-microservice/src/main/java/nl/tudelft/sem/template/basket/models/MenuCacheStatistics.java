@@ -0,0 +1,20 @@
+package nl.tudelft.sem.template.basket.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Point-in-time counters of the cache of filtered menus.
+ */
+@AllArgsConstructor
+@Data
+public class MenuCacheStatistics {
+
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRate;
+
+    public MenuCacheStatistics() {}
+}
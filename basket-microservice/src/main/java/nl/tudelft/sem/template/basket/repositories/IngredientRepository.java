@@ -2,11 +2,24 @@ package nl.tudelft.sem.template.basket.repositories;
 
 import commons.Ingredient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
     Optional<Ingredient> getIngredientByName(String name);
+
+    /**
+     * Loads all ingredients read-only, so the session does not keep snapshots of them for dirty checking.
+     *
+     * @return all ingredients, in the order they were added
+     */
+    @Query("select i from Ingredient i order by i.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
+    List<Ingredient> findAllReadOnly();
 }
@@ -0,0 +1,19 @@
+package nl.tudelft.sem.template.basket.repositories;
+
+import commons.Pizza;
+
+import java.util.List;
+
+/**
+ * Writes the prices of pizzas that were repriced in memory.
+ */
+public interface PizzaPriceRepository {
+
+    /**
+     * Writes the current prices of the pizzas in one batch, without loading the pizzas again.
+     * Pizzas that have not been saved yet are skipped.
+     *
+     * @param pizzas the repriced pizzas
+     */
+    void updatePrices(List<Pizza> pizzas);
+}
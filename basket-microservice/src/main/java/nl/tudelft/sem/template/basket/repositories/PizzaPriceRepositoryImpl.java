@@ -0,0 +1,37 @@
+package nl.tudelft.sem.template.basket.repositories;
+
+import commons.Pizza;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@link PizzaPriceRepository} that sends all price updates as one JDBC batch.
+ * Spring Data adds it to {@link PizzaRepository}, which extends the interface.
+ */
+public class PizzaPriceRepositoryImpl implements PizzaPriceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PizzaPriceRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void updatePrices(List<Pizza> pizzas) {
+        List<Object[]> rows = new ArrayList<>(pizzas.size());
+        for (Pizza pizza : pizzas) {
+            if (pizza.getId() != null) {
+                rows.add(new Object[] {pizza.getPrice(), pizza.getId()});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("update pizza set price = ? where id = ?", rows);
+        }
+    }
+}
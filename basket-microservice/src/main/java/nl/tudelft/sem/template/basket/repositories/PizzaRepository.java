@@ -1,9 +1,27 @@
 package nl.tudelft.sem.template.basket.repositories;
 
 import commons.Pizza;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
 @Repository
-public interface PizzaRepository extends JpaRepository<Pizza, Long> {
+public interface PizzaRepository extends JpaRepository<Pizza, Long>, PizzaPriceRepository {
+
+    /**
+     * Loads the whole menu with the ingredients of every pizza in a single query.
+     * The pizzas are loaded read-only, so the session does not keep snapshots of them for dirty checking.
+     *
+     * @return all pizzas with their ingredients, in the order they were added
+     */
+    @EntityGraph(attributePaths = "ingredients")
+    @Query("select distinct p from Pizza p order by p.id")
+    @QueryHints({@QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @QueryHint(name = "hibernate.query.passDistinctThrough", value = "false")})
+    List<Pizza> findAllWithIngredients();
 }
@@ -0,0 +1,169 @@
+package nl.tudelft.sem.template.basket.services;
+
+import commons.Basket;
+import nl.tudelft.sem.template.basket.models.BasketDelta;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the changes to a basket to the event streams the customer has open.
+ *
+ * <p>Publishing never blocks: a delta is put in a small queue per subscriber, and a few sender threads write the
+ * queued deltas to the streams. If a subscriber falls so far behind that its queue is full, its queued deltas are
+ * dropped and replaced by a single resync delta, so a slow client costs a bounded amount of memory.
+ */
+@SuppressWarnings("PMD")
+@Service
+public class BasketEventService {
+
+    /**
+     * Maximum number of deltas queued for one subscriber.
+     */
+    static final int QUEUE_SIZE = 32;
+
+    /**
+     * Maximum number of streams one customer can have open; opening another one closes the oldest.
+     */
+    static final int MAX_STREAMS_PER_CUSTOMER = 8;
+
+    /**
+     * How long a stream stays open before the client has to reconnect.
+     */
+    static final long STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+
+    /**
+     * Creates the service with its sender threads, which are only started once there is something to send.
+     */
+    public BasketEventService() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "basket-events");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.senders = executor;
+    }
+
+    /**
+     * Opens an event stream for the customer.
+     *
+     * @param customerId the id of the customer
+     * @return the stream, which receives a {@link BasketDelta} for every change to the basket of the customer
+     */
+    public SseEmitter subscribe(String customerId) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        Subscriber subscriber = new Subscriber(emitter);
+        List<Subscriber> streams = subscribers.computeIfAbsent(customerId, id -> new CopyOnWriteArrayList<>());
+        streams.add(subscriber);
+        while (streams.size() > MAX_STREAMS_PER_CUSTOMER) {
+            Subscriber oldest = streams.remove(0);
+            oldest.emitter.complete();
+        }
+        Runnable unsubscribe = () -> unsubscribe(customerId, subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    /**
+     * Tells the streams of the customer about a change to the basket.
+     * Does nothing if the customer has no open streams.
+     *
+     * @param customerId the id of the customer
+     * @param type       what changed, see {@link BasketDelta}
+     * @param detail     the pizza or coupon the change is about, or null
+     * @param basket     the basket after the change, or null if the basket has been removed
+     */
+    public void publish(String customerId, String type, String detail, Basket basket) {
+        List<Subscriber> streams = subscribers.get(customerId);
+        if (streams == null || streams.isEmpty()) {
+            return;
+        }
+        BasketDelta delta = basket == null
+                ? new BasketDelta(type, detail, 0, 0, 0)
+                : new BasketDelta(type, detail, basket.getVersion(), basket.getBasketInfo().getPizzas().size(),
+                        basket.getBasketInfo().getPrice());
+        for (Subscriber subscriber : streams) {
+            subscriber.offer(delta);
+        }
+    }
+
+    /**
+     * Number of streams the customer has open.
+     *
+     * @param customerId the id of the customer
+     * @return the number of open streams
+     */
+    public int subscriberCount(String customerId) {
+        List<Subscriber> streams = subscribers.get(customerId);
+        return streams == null ? 0 : streams.size();
+    }
+
+    private void unsubscribe(String customerId, Subscriber subscriber) {
+        subscribers.computeIfPresent(customerId, (id, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    /**
+     * An open stream with the deltas that still have to be sent to it.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<BasketDelta> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(BasketDelta delta) {
+            if (!queue.offer(delta)) {
+                queue.clear();
+                queue.offer(new BasketDelta("resync", null, delta.getVersion(), delta.getPizzas(), delta.getPrice()));
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                BasketDelta delta;
+                while ((delta = queue.poll()) != null) {
+                    emitter.send(SseEmitter.event().name(delta.getType()).id(Long.toString(delta.getVersion()))
+                            .data(delta, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away; the emitter reports the error and the subscriber gets removed
+                queue.clear();
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+}
@@ -5,64 +5,189 @@ import commons.Basket;
 import commons.BasketInfo;
 import commons.Coupon;
 import commons.Pizza;
+import commons.PriceTotals;
+import nl.tudelft.sem.template.basket.models.Checkout;
+import nl.tudelft.sem.template.basket.store.BasketStore;
+import nl.tudelft.sem.template.basket.store.BasketStoreStatistics;
+import nl.tudelft.sem.template.basket.store.InMemoryBasketStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import javax.persistence.Tuple;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 @SuppressWarnings("PMD")
 @Service
 public class BasketService {
-    private Map<String, Basket> baskets = new HashMap<>();
+    private final BasketStore baskets;
+    private final BasketEventService events;
+    private final CouponRedemptionLedger ledger;
+
+    /**
+     * Creates a basket service backed by its own in-memory store.
+     */
+    public BasketService() {
+        this(new InMemoryBasketStore());
+    }
+
+    public BasketService(BasketStore baskets) {
+        this(baskets, new BasketEventService());
+    }
+
+    /**
+     * Creates a basket service that keeps the baskets in the given store and tells the event streams of the
+     * customers about every change.
+     *
+     * @param baskets the store of the live baskets
+     * @param events  the event streams of the customers
+     */
+    public BasketService(BasketStore baskets, BasketEventService events) {
+        this(baskets, events, new CouponRedemptionLedger());
+    }
+
+    /**
+     * Creates a basket service that also reserves single-use coupons in the given ledger while they are in a basket,
+     * and redeems them at checkout. The reservation of a basket that the store evicts is released.
+     *
+     * @param baskets the store of the live baskets
+     * @param events  the event streams of the customers
+     * @param ledger  the uses of the single-use coupons
+     */
+    @Autowired
+    public BasketService(BasketStore baskets, BasketEventService events, CouponRedemptionLedger ledger) {
+        this.baskets = baskets;
+        this.events = events;
+        this.ledger = ledger;
+        baskets.setEvictionListener(this::evicted);
+    }
 
     /**
      * Creates a new basket for the customer.
+     * Does nothing if the customer already has a basket.
      *
      * @param customerId the username of the customer that owns the basket
      */
     public void createBasket(String customerId) {
-        Basket basket = new Basket(customerId, new BasketInfo());
-        baskets.put(customerId, basket);
+        baskets.create(customerId);
     }
 
 
     /**
-     * Retrieves the basket of the customer, called when CHECKOUT.
-     * Removes the checkout'ed basket from baskets map
+     * Retrieves the basket of the customer, and renews the reservation of the single-use coupon in it.
+     * The returned basket is a snapshot; changing it does not change the basket of the customer.
      *
      * @param customerId the id of the customer
      * @return the basket of the customer
      */
     public Basket getBasket(String customerId) {
         Basket basket = baskets.get(customerId);
+        renew(customerId, basket);
         return basket;
     }
 
     /**
-     * Removes the basket of the customer from active baskets collection.
+     * Removes the basket of the customer from active baskets collection, called when CHECKOUT.
+     * A single-use coupon in the basket is redeemed in the same step. If another basket has taken it in the meantime,
+     * which can only happen if the reservation of this basket had lapsed, the basket is not removed; the coupon is
+     * taken out of it and its price is calculated again, and the caller is told so.
      *
      * @param customerId the ID of the customer
+     * @return the outcome of the checkout, with the removed basket or the basket as it is now
      */
-    public void removeBasket(String customerId) {
-        baskets.remove(customerId);
+    public Checkout checkout(String customerId) {
+        return checkout(customerId, basket -> false);
     }
 
-    public void calculatePrice(String customerId) {
-        Basket basket = baskets.get(customerId);
-        double price = 3.0;
+    /**
+     * Checks out the basket of the customer like {@link #checkout(String)}, unless the basket is one the caller
+     * already has. The basket is tested in the same step that removes it, so it cannot change in between.
+     *
+     * @param customerId  the ID of the customer
+     * @param notModified tells whether the caller already has the basket, in which case it is kept
+     * @return the outcome of the checkout, with the removed basket or the basket as it is now
+     */
+    public Checkout checkout(String customerId, Predicate<Basket> notModified) {
+        Coupon[] taken = new Coupon[1];
+        Basket[] unchanged = new Basket[1];
+        Basket removed = baskets.removeIf(customerId, basket -> {
+            // a remote store may test the basket more than once
+            taken[0] = null;
+            unchanged[0] = null;
+            if (notModified.test(basket)) {
+                unchanged[0] = new Basket(basket);
+                return false;
+            }
+            Coupon coupon = basket.getBasketInfo().getCoupon();
+            if (coupon == null || coupon.isLimitedTime() || ledger.commit(coupon.getCode(), customerId)) {
+                return true;
+            }
+            taken[0] = coupon;
+            return false;
+        });
+        if (removed != null) {
+            events.publish(customerId, "removed", null, null);
+            return new Checkout(Checkout.Status.CHECKED_OUT, removed, null);
+        }
+        if (unchanged[0] != null) {
+            renew(customerId, unchanged[0]);
+            return new Checkout(Checkout.Status.NOT_MODIFIED, unchanged[0], null);
+        }
+        if (taken[0] == null) {
+            return new Checkout(Checkout.Status.NO_BASKET, null, null);
+        }
 
-        if (basket.getBasketInfo().getCoupon() == null) {
-            for (Pizza p : basket.getBasketInfo().getPizzas()) {
-                price += p.getPrice();
+        boolean[] dropped = new boolean[1];
+        Basket kept = baskets.update(customerId, basket -> {
+            if (sameCode(taken[0], basket.getBasketInfo().getCoupon())) {
+                basket.getBasketInfo().setCoupon(null);
+                calculatePrice(basket);
+                dropped[0] = true;
             }
-            basket.getBasketInfo().setPrice(price);
-        } else {
-            price = basket.getBasketInfo().getCoupon().calculatePrice(basket.getBasketInfo()
-                .getPizzas());
-            basket.getBasketInfo().setPrice(price);
+            return new Basket(basket);
+        });
+        if (dropped[0]) {
+            publish(customerId, "couponRemoved", taken[0].getCode(), kept);
         }
+        return kept == null ? new Checkout(Checkout.Status.NO_BASKET, null, null)
+                : new Checkout(Checkout.Status.COUPON_TAKEN, kept, taken[0]);
+    }
+
+    /**
+     * Checks whether a single-use coupon is in another basket or has been redeemed already.
+     *
+     * @param customerId the owner of the basket that wants to use the coupon
+     * @param coupon     the coupon
+     * @return true if the basket of the customer cannot use the coupon
+     */
+    public boolean couponTaken(String customerId, Coupon coupon) {
+        return !coupon.isLimitedTime() && !ledger.isAvailable(coupon.getCode(), customerId);
+    }
+
+    /**
+     * Number of live baskets and the number of abandoned baskets that expired so far.
+     *
+     * @return the statistics of the basket store
+     */
+    public BasketStoreStatistics getStatistics() {
+        return baskets.statistics();
+    }
+
+    public void calculatePrice(String customerId) {
+        Basket changed = baskets.update(customerId, basket -> {
+            calculatePrice(basket);
+            return new Basket(basket);
+        });
+        publish(customerId, "priceCalculated", null, changed);
+    }
+
+    private void calculatePrice(Basket basket) {
+        basket.getBasketInfo().setPrice(basket.getBasketInfo().calculatePrice());
+        basket.nextVersion();
     }
 
     /**
@@ -72,20 +197,33 @@ public class BasketService {
      * @param pizza      the pizza to be added
      */
     public void addPizzaToBasket(String customerId, Pizza pizza) {
-        Basket basket = baskets.get(customerId);
-        basket.getBasketInfo().getPizzas().add(pizza);
-        calculatePrice(customerId);
+        Basket changed = baskets.update(customerId, basket -> {
+            basket.getBasketInfo().getPizzas().add(pizza);
+            calculatePrice(basket);
+            return new Basket(basket);
+        });
+        publish(customerId, "pizzaAdded", pizza.getName(), changed);
     }
 
+    /**
+     * Removes one pizza with the given name from the basket of the customer.
+     *
+     * @param customerId ID of the owner of the basket
+     * @param pizzaName  the name of the pizza to be removed
+     */
     public void removePizzaFromBasket(String customerId, String pizzaName) {
-        Basket basket = baskets.get(customerId);
-        for (Pizza pizza : basket.getBasketInfo().getPizzas()) {
-            if (pizza.getName().equals(pizzaName)) {
-                basket.getBasketInfo().getPizzas().remove(pizza);
-                return;
+        Basket changed = baskets.update(customerId, basket -> {
+            List<Pizza> pizzas = basket.getBasketInfo().getPizzas();
+            for (int i = 0; i < pizzas.size(); i++) {
+                if (pizzas.get(i).getName().equals(pizzaName)) {
+                    pizzas.remove(i);
+                    break;
+                }
             }
-        }
-        calculatePrice(customerId);
+            calculatePrice(basket);
+            return new Basket(basket);
+        });
+        publish(customerId, "pizzaRemoved", pizzaName, changed);
     }
 
     /**
@@ -97,21 +235,68 @@ public class BasketService {
      * @return true if the coupon provided has been applied, false if it hasn't
      */
     public boolean applyCouponToBasket(String customerId, Coupon coupon) {
-        Basket basket = baskets.get(customerId);
-        Coupon curr = basket.getBasketInfo().getCoupon();
-        double newPrice = coupon.calculatePrice(basket.getBasketInfo().getPizzas());
-
-        if (curr == null) {
-            basket.getBasketInfo().setPrice(newPrice);
-            basket.getBasketInfo().setCoupon(coupon);
-            return true;
-        } else {
-            if (newPrice < basket.getBasketInfo().getPrice()) {
+        List<Coupon> usable = reserve(customerId, List.of(coupon));
+        if (usable.isEmpty()) {
+            return false;
+        }
+        Coupon[] before = new Coupon[1];
+        Basket changed = baskets.update(customerId, basket -> {
+            Coupon curr = basket.getBasketInfo().getCoupon();
+            before[0] = curr;
+            double newPrice = coupon.calculatePrice(basket.getBasketInfo().totals());
+
+            if (curr == null || newPrice < basket.getBasketInfo().getPrice()) {
                 basket.getBasketInfo().setPrice(newPrice);
                 basket.getBasketInfo().setCoupon(coupon);
-                return true;
-            } else return false;
-        }
+                basket.nextVersion();
+                return new Basket(basket);
+            } else return null;
+        });
+        settle(customerId, usable, before[0], changed);
+        publish(customerId, "couponApplied", coupon.getCode(), changed);
+        return changed != null;
+    }
+
+    /**
+     * Applies the coupon that makes the basket cheapest out of the given candidates, for example all coupons of a
+     * customer or all coupons that can be used more than once. Every candidate is priced from the same running totals
+     * of the basket (subtotal, cheapest half and pizza counts), so no candidate walks over the pizzas again.
+     * A candidate is only applied if it is cheaper than the coupon applied already, like {@link #applyCouponToBasket}.
+     * Single-use candidates that are in another basket or have been redeemed are skipped.
+     *
+     * @param customerId the owner of the basket's id
+     * @param candidates the coupons to choose from
+     * @return the applied coupon, or null if the basket does not exist or no candidate is cheaper
+     */
+    public Coupon applyBestCoupon(String customerId, Collection<Coupon> candidates) {
+        List<Coupon> usable = reserve(customerId, candidates);
+        Coupon[] best = new Coupon[1];
+        Coupon[] before = new Coupon[1];
+        Basket changed = baskets.update(customerId, basket -> {
+            BasketInfo info = basket.getBasketInfo();
+            before[0] = info.getCoupon();
+            PriceTotals totals = info.totals();
+            Coupon cheapest = null;
+            double cheapestPrice = Double.POSITIVE_INFINITY;
+            for (Coupon coupon : usable) {
+                double price = coupon.calculatePrice(totals);
+                if (price < cheapestPrice) {
+                    cheapest = coupon;
+                    cheapestPrice = price;
+                }
+            }
+            if (cheapest == null || (info.getCoupon() != null && cheapestPrice >= info.getPrice())) {
+                return null;
+            }
+            info.setPrice(cheapestPrice);
+            info.setCoupon(cheapest);
+            basket.nextVersion();
+            best[0] = cheapest;
+            return new Basket(basket);
+        });
+        settle(customerId, usable, before[0], changed);
+        publish(customerId, "couponApplied", best[0] == null ? null : best[0].getCode(), changed);
+        return changed == null ? null : best[0];
     }
 
     /**
@@ -120,9 +305,71 @@ public class BasketService {
      * @param customerId ID of the owner of the basket
      */
     public void removeCouponFromBasket(String customerId) {
-        Basket basket = baskets.get(customerId);
-        basket.getBasketInfo().setCoupon(null);
-        calculatePrice(customerId);
+        Coupon[] before = new Coupon[1];
+        Basket changed = baskets.update(customerId, basket -> {
+            before[0] = basket.getBasketInfo().getCoupon();
+            basket.getBasketInfo().setCoupon(null);
+            calculatePrice(basket);
+            return new Basket(basket);
+        });
+        settle(customerId, List.of(), before[0], changed);
+        publish(customerId, "couponRemoved", null, changed);
+    }
+
+    /**
+     * Applies a batch of changes to the basket of the customer as one atomic update, and prices the basket once.
+     * The pizzas are added first, then the pizzas to remove are taken out, then every coupon is applied that is
+     * cheaper than the coupon applied before it. If a pizza to remove is not in the basket after the additions,
+     * nothing is changed at all. Single-use coupons that are in another basket or have been redeemed are skipped.
+     *
+     * @param customerId the owner of the basket's id
+     * @param added      the pizzas to add
+     * @param removed    the names of the pizzas to remove, one pizza per name
+     * @param coupons    the coupons to try
+     * @return a snapshot of the basket after the changes, or null if the basket does not exist or the batch was
+     *         rejected
+     */
+    public Basket applyBatch(String customerId, List<Pizza> added, List<String> removed, List<Coupon> coupons) {
+        List<Coupon> usable = reserve(customerId, coupons);
+        Coupon[] before = new Coupon[1];
+        Basket changed = baskets.update(customerId, basket -> {
+            before[0] = basket.getBasketInfo().getCoupon();
+            List<Pizza> pizzas = basket.getBasketInfo().getPizzas();
+            Map<String, Integer> available = new HashMap<>();
+            for (Pizza pizza : pizzas) {
+                available.merge(pizza.getName(), 1, Integer::sum);
+            }
+            for (Pizza pizza : added) {
+                available.merge(pizza.getName(), 1, Integer::sum);
+            }
+            for (String name : removed) {
+                if (available.merge(name, -1, Integer::sum) < 0) {
+                    return null;
+                }
+            }
+
+            pizzas.addAll(added);
+            for (String name : removed) {
+                for (int i = 0; i < pizzas.size(); i++) {
+                    if (pizzas.get(i).getName().equals(name)) {
+                        pizzas.remove(i);
+                        break;
+                    }
+                }
+            }
+            calculatePrice(basket);
+            for (Coupon coupon : usable) {
+                double newPrice = coupon.calculatePrice(basket.getBasketInfo().totals());
+                if (basket.getBasketInfo().getCoupon() == null || newPrice < basket.getBasketInfo().getPrice()) {
+                    basket.getBasketInfo().setPrice(newPrice);
+                    basket.getBasketInfo().setCoupon(coupon);
+                }
+            }
+            return new Basket(basket);
+        });
+        settle(customerId, usable, before[0], changed);
+        publish(customerId, "batch", null, changed);
+        return changed;
     }
 
     /**
@@ -133,8 +380,113 @@ public class BasketService {
      * @return Message
      */
     public String setStorePreference(String customerId, int storeId) {
-        Basket basket = baskets.get(customerId);
-        basket.getBasketInfo().setStoreId(storeId);
+        Basket changed = baskets.update(customerId, basket -> {
+            basket.getBasketInfo().setStoreId(storeId);
+            basket.nextVersion();
+            return new Basket(basket);
+        });
+        publish(customerId, "storeSet", null, changed);
         return "Store preference saved.";
     }
+
+    /**
+     * Sets the time at which the customer wants to pick up the order.
+     *
+     * @param customerId the owner of the basket's id
+     * @param time       the pickup time
+     * @return true if the time has been set, false if the customer has no basket
+     */
+    public boolean setPickupTime(String customerId, LocalDateTime time) {
+        Basket changed = baskets.update(customerId, basket -> {
+            basket.setTime(time);
+            basket.nextVersion();
+            return new Basket(basket);
+        });
+        publish(customerId, "timeSet", null, changed);
+        return changed != null;
+    }
+
+    /**
+     * Reserves the single-use coupons among the given coupons for the basket of the customer.
+     *
+     * @param customerId the owner of the basket
+     * @param coupons    the coupons the basket wants to use
+     * @return the coupons the basket can use, which are the reusable coupons and the reserved single-use coupons
+     */
+    private List<Coupon> reserve(String customerId, Collection<Coupon> coupons) {
+        List<Coupon> usable = new ArrayList<>(coupons.size());
+        for (Coupon coupon : coupons) {
+            if (coupon.isLimitedTime() || ledger.reserve(coupon.getCode(), customerId)) {
+                usable.add(coupon);
+            }
+        }
+        return usable;
+    }
+
+    /**
+     * Releases the reservations the basket does not need after a change: the reserved coupons that were not applied,
+     * and the coupon that was in the basket before if it has been replaced or removed.
+     *
+     * @param customerId the owner of the basket
+     * @param tried      the coupons that were tried
+     * @param before     the coupon in the basket before the change
+     * @param changed    the basket after the change, or null if it has not changed
+     */
+    private void settle(String customerId, Collection<Coupon> tried, Coupon before, Basket changed) {
+        Coupon after = changed == null ? before : changed.getBasketInfo().getCoupon();
+        for (Coupon coupon : tried) {
+            if (!coupon.isLimitedTime() && !sameCode(coupon, after)) {
+                ledger.release(coupon.getCode(), customerId);
+            }
+        }
+        if (before != null && !before.isLimitedTime() && !sameCode(before, after)) {
+            ledger.release(before.getCode(), customerId);
+        }
+    }
+
+    private static boolean sameCode(Coupon coupon, Coupon other) {
+        return other != null && coupon.getCode().equalsIgnoreCase(other.getCode());
+    }
+
+    /**
+     * Tells the event streams of the customer about a change, if the basket has been changed, and renews the
+     * reservation of the single-use coupon in the basket.
+     *
+     * @param customerId the owner of the basket's id
+     * @param type       what changed
+     * @param detail     the pizza or coupon the change is about, or null
+     * @param changed    the basket after the change, or null if nothing has been changed
+     */
+    private void publish(String customerId, String type, String detail, Basket changed) {
+        if (changed != null) {
+            renew(customerId, changed);
+            events.publish(customerId, type, detail, changed);
+        }
+    }
+
+    /**
+     * Renews the reservation of the single-use coupon in the basket, since the basket is in use.
+     *
+     * @param customerId the owner of the basket
+     * @param basket     a snapshot of the basket, or null if there is none
+     */
+    private void renew(String customerId, Basket basket) {
+        Coupon coupon = basket == null ? null : basket.getBasketInfo().getCoupon();
+        if (coupon != null && !coupon.isLimitedTime()) {
+            ledger.reserve(coupon.getCode(), customerId);
+        }
+    }
+
+    /**
+     * Releases the reservation of the single-use coupon in a basket the store has evicted.
+     *
+     * @param customerId the owner of the basket
+     * @param basket     the evicted basket
+     */
+    private void evicted(String customerId, Basket basket) {
+        Coupon coupon = basket.getBasketInfo().getCoupon();
+        if (coupon != null && !coupon.isLimitedTime()) {
+            ledger.release(coupon.getCode(), customerId);
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package nl.tudelft.sem.template.basket.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import nl.tudelft.sem.template.basket.models.CouponRequestModel;
+import nl.tudelft.sem.template.basket.models.ImportResult;
+import nl.tudelft.sem.template.basket.models.IngredientRequestModel;
+import nl.tudelft.sem.template.basket.models.PizzaRequestModel;
+import nl.tudelft.sem.template.basket.repositories.CouponRepository;
+import nl.tudelft.sem.template.basket.repositories.IngredientRepository;
+import nl.tudelft.sem.template.basket.repositories.PizzaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bulk import of ingredients, pizzas and coupons from a JSON array or a CSV file.
+ * The file is read one row at a time, and every row is checked against the in-memory indexes of the services and the
+ * rows imported before it. Valid rows are saved in batches of {@code basket.import.batch-size}, each in one
+ * transaction, which Hibernate sends as JDBC batches because the ids come from pooled sequences. The persistence
+ * context is cleared after every batch, so the memory used by an import does not grow with the size of the file.
+ *
+ * A JSON file is an array of objects. An element that is not an object or does not fit the row is rejected like any
+ * other invalid row, while a file that is not valid JSON stops the import, as the rows after the error cannot be found.
+ *
+ * The CSV files start with a header line, which is skipped, and have these columns:
+ * - ingredients: name,price
+ * - pizzas: name,ingredient;ingredient;...
+ * - coupons: code,type,rate,limitedTime
+ */
+@SuppressWarnings("PMD")
+@Service
+public class CatalogImportService {
+
+    static final int MAX_ERRORS = 100;
+
+    private final IngredientRepository ingredientRepository;
+    private final PizzaRepository pizzaRepository;
+    private final CouponRepository couponRepository;
+    private final IngredientService ingredientService;
+    private final PizzaService pizzaService;
+    private final CouponService couponService;
+    private final ObjectMapper mapper;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructor for the import service.
+     *
+     * @param ingredientRepository the repository to save the ingredients in
+     * @param pizzaRepository      the repository to save the pizzas in
+     * @param couponRepository     the repository to save the coupons in
+     * @param ingredientService    the ingredients, to check for duplicates and to resolve pizza ingredients
+     * @param pizzaService         the menu, to check for duplicate pizzas
+     * @param couponService        the coupons, to check for duplicate codes
+     * @param mapper               the mapper to read JSON rows with
+     * @param batchSize            the number of rows saved in one transaction
+     */
+    @Autowired
+    public CatalogImportService(IngredientRepository ingredientRepository, PizzaRepository pizzaRepository,
+                                CouponRepository couponRepository, IngredientService ingredientService,
+                                PizzaService pizzaService, CouponService couponService, ObjectMapper mapper,
+                                @Value("${basket.import.batch-size:1000}") int batchSize) {
+        this.ingredientRepository = ingredientRepository;
+        this.pizzaRepository = pizzaRepository;
+        this.couponRepository = couponRepository;
+        this.ingredientService = ingredientService;
+        this.pizzaService = pizzaService;
+        this.couponService = couponService;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports ingredients. An ingredient is rejected if it has no name, no positive price, or if its name is taken.
+     *
+     * @param in  the file
+     * @param csv true for a CSV file, false for a JSON array of IngredientRequestModels
+     * @return the number of imported and rejected ingredients
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importIngredients(InputStream in, boolean csv) throws IOException {
+        Set<String> names = new HashSet<>();
+        RowReader<IngredientRequestModel> rows = csv
+                ? csv(in, columns -> new IngredientRequestModel(columns[0], Double.valueOf(columns[1])))
+                : json(in, IngredientRequestModel.class);
+        try {
+            return run(rows, ingredientRepository, row -> {
+                if (row.getName() == null || row.getName().isEmpty()
+                        || row.getPrice() == null || row.getPrice() <= 0.0) {
+                    throw new IllegalArgumentException("ingredient needs a name and a positive price");
+                }
+                if (ingredientService.exists(row.getName()) || !names.add(row.getName())) {
+                    throw new IllegalArgumentException("ingredient " + row.getName() + " already exists");
+                }
+                return new Ingredient(row.getName(), row.getPrice());
+            });
+        } finally {
+            // also after a failed import, as the batches before the failure have been saved
+            ingredientService.invalidate();
+        }
+    }
+
+    /**
+     * Imports pizzas. A pizza is rejected if it has no name or no ingredients, if one of its ingredients does not
+     * exist, or if a pizza with the same name or the same ingredients exists.
+     *
+     * @param in  the file
+     * @param csv true for a CSV file, false for a JSON array of PizzaRequestModels
+     * @return the number of imported and rejected pizzas
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importPizzas(InputStream in, boolean csv) throws IOException {
+        Set<String> names = new HashSet<>();
+        Set<String> fingerprints = new HashSet<>();
+        RowReader<PizzaRequestModel> rows = csv
+                ? csv(in, columns -> new PizzaRequestModel(columns[0], Arrays.asList(columns[1].split(";"))))
+                : json(in, PizzaRequestModel.class);
+        try {
+            return run(rows, pizzaRepository, row -> {
+                if (row.getName() == null || row.getName().isEmpty()
+                        || row.getIngredients() == null || row.getIngredients().isEmpty()) {
+                    throw new IllegalArgumentException("pizza needs a name and ingredients");
+                }
+                List<Ingredient> ingredients = ingredientService.getByNames(row.getIngredients());
+                for (int i = 0; i < ingredients.size(); i++) {
+                    if (ingredients.get(i) == null) {
+                        throw new IllegalArgumentException("ingredient " + row.getIngredients().get(i)
+                                + " does not exist");
+                    }
+                }
+                Pizza pizza = new Pizza(row.getName(), ingredients);
+                if (pizzaService.exists(pizza) || !names.add(pizza.getName())
+                        || !fingerprints.add(PizzaService.fingerprint(ingredients))) {
+                    throw new IllegalArgumentException("pizza " + row.getName() + " already exists");
+                }
+                return pizza;
+            });
+        } finally {
+            // also after a failed import, as the batches before the failure have been saved
+            pizzaService.invalidate();
+        }
+    }
+
+    /**
+     * Imports coupons. A coupon is rejected if its code is not formatted as 4 characters followed by 2 numbers, or
+     * if a coupon with the same code exists, ignoring case.
+     *
+     * @param in  the file
+     * @param csv true for a CSV file, false for a JSON array of CouponRequestModels
+     * @return the number of imported and rejected coupons
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importCoupons(InputStream in, boolean csv) throws IOException {
+        Set<String> codes = new HashSet<>();
+        RowReader<CouponRequestModel> rows = csv
+                ? csv(in, columns -> new CouponRequestModel(columns[0], columns[1].charAt(0),
+                        Double.parseDouble(columns[2]), Boolean.parseBoolean(columns[3])))
+                : json(in, CouponRequestModel.class);
+        try {
+            return run(rows, couponRepository, row -> {
+                if (row.getCode() == null) {
+                    throw new IllegalArgumentException("coupon needs a code");
+                }
+                Coupon coupon = new Coupon(row.getCode(), row.getType(), row.getRate(), row.isLimitedTime());
+                if (couponService.couponInvalid(coupon)) {
+                    throw new IllegalArgumentException("coupon code " + row.getCode()
+                            + " is not 4 characters followed by 2 numbers");
+                }
+                if (couponService.exists(row.getCode()) || !codes.add(CouponService.normalize(row.getCode()))) {
+                    throw new IllegalArgumentException("coupon code " + row.getCode() + " already exists");
+                }
+                return coupon;
+            });
+        } finally {
+            // also after a failed import, as the batches before the failure have been saved
+            couponService.invalidate();
+        }
+    }
+
+    /**
+     * Validates and saves the rows in batches.
+     *
+     * @param rows     the rows of the file
+     * @param repo     the repository to save the entities in
+     * @param toEntity turns a row into an entity, throwing IllegalArgumentException if the row is rejected
+     * @return the number of imported and rejected rows
+     */
+    private <T, E> ImportResult run(RowReader<T> rows, JpaRepository<E, Long> repo, Function<T, E> toEntity)
+            throws IOException {
+        ImportResult result = new ImportResult();
+        List<E> batch = new ArrayList<>(batchSize);
+        long index = 0;
+        while (true) {
+            index++;
+            E entity;
+            try {
+                T row = rows.next();
+                if (row == null) {
+                    break;
+                }
+                entity = toEntity.apply(row);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                reject(result, index, e.getMessage());
+                continue;
+            }
+            batch.add(entity);
+            if (batch.size() == batchSize) {
+                save(batch, repo, result);
+            }
+        }
+        save(batch, repo, result);
+        return result;
+    }
+
+    private <E> void save(List<E> batch, JpaRepository<E, Long> repo, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        repo.saveAll(batch);
+        entityManager.clear();
+        result.setImported(result.getImported() + batch.size());
+        batch.clear();
+    }
+
+    private static void reject(ImportResult result, long index, String reason) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getErrors().size() < MAX_ERRORS) {
+            result.getErrors().add("Row " + index + ": " + reason + ".");
+        }
+    }
+
+    private <T> RowReader<T> json(InputStream in, Class<T> type) throws IOException {
+        JsonParser parser = mapper.getFactory().createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("The file is not a JSON array");
+        }
+        return () -> {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            // read as a whole first, so a row that does not fit the type is rejected on its own
+            JsonNode row = mapper.readTree(parser);
+            if (!row.isObject()) {
+                throw new IllegalArgumentException("not a JSON object");
+            }
+            try {
+                return mapper.treeToValue(row, type);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("not a valid row, " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private static <T> RowReader<T> csv(InputStream in, Function<String[], T> parse) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.readLine();
+        return () -> {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            String[] columns = line.split(",", -1);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = columns[i].trim();
+            }
+            return parse.apply(columns);
+        };
+    }
+
+    /**
+     * Reads the next row of a file.
+     */
+    @FunctionalInterface
+    private interface RowReader<T> {
+        /**
+         * Reads the next row.
+         *
+         * @return the row, or null at the end of the file
+         * @throws IOException if the file cannot be read
+         * @throws IllegalArgumentException if the row cannot be parsed, after which the next row can be read
+         */
+        T next() throws IOException;
+    }
+}
@@ -0,0 +1,198 @@
+package nl.tudelft.sem.template.basket.services;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ledger of the uses of single-use coupons, so that a single-use coupon is in at most one basket and is redeemed at
+ * most once.
+ * A basket reserves the coupon when it is applied and renews the reservation every time the basket is used. The
+ * reservation is released when the coupon is replaced or removed, or when the basket is evicted, and committed at
+ * checkout. Every code has its own entry in a concurrent map, which spreads the codes over its bins, and the state of
+ * an entry only changes with a compare-and-set, so thousands of baskets racing for one code never block each other or
+ * the database: exactly one of them wins the reservation and the others see it taken.
+ * A reservation that is not renewed expires after the TTL, which is longer than the idle TTL of the baskets, so it
+ * only lapses for a basket the ledger was not told about, for example one restored from the journal. An expired
+ * reservation can still be committed as long as no other basket has taken it since.
+ * Released and expired entries are pruned every minute, and so are redeemed codes one TTL after their checkout; the
+ * coupon itself is deleted at checkout.
+ * The ledger lives in the memory of this node, so it is only used with the heap and off-heap stores.
+ */
+@SuppressWarnings("PMD")
+public class CouponRedemptionLedger {
+
+    /**
+     * Interval of the sweeper that prunes the ledger, in milliseconds.
+     */
+    public static final long PRUNE_MILLIS = 60_000;
+
+    /**
+     * State of an entry that has been pruned; whoever finds it takes the entry out of the map and starts over.
+     */
+    private static final Reservation PRUNED = new Reservation(null, 0, false);
+
+    private final Map<String, AtomicReference<Reservation>> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    /**
+     * Creates a ledger whose reservations expire after an hour, twice the default idle TTL of a basket.
+     */
+    public CouponRedemptionLedger() {
+        this(Duration.ofHours(1));
+    }
+
+    /**
+     * Creates a ledger.
+     *
+     * @param ttl how long a reservation is kept without being renewed, and a redeemed code after its checkout
+     */
+    public CouponRedemptionLedger(Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Reserves the coupon for the basket of the customer, or renews the reservation the customer already has.
+     *
+     * @param code       the activation code of the coupon
+     * @param customerId the owner of the basket
+     * @return true if the customer holds the reservation, false if another basket holds it or it has been redeemed
+     */
+    public boolean reserve(String code, String customerId) {
+        String key = CouponService.normalize(code);
+        while (true) {
+            AtomicReference<Reservation> entry = entries.computeIfAbsent(key, c -> new AtomicReference<>());
+            Reservation current = entry.get();
+            if (current == PRUNED) {
+                entries.remove(key, entry);
+                continue;
+            }
+            long now = System.nanoTime();
+            if (current != null && (current.redeemed
+                    || (!current.customerId.equals(customerId) && current.expiresAt - now > 0))) {
+                return false;
+            }
+            if (entry.compareAndSet(current, new Reservation(customerId, now + ttlNanos, false))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives up the reservation of the customer, so another basket can use the coupon.
+     *
+     * @param code       the activation code of the coupon
+     * @param customerId the owner of the basket
+     * @return true if the customer held the reservation
+     */
+    public boolean release(String code, String customerId) {
+        AtomicReference<Reservation> entry = entries.get(CouponService.normalize(code));
+        if (entry == null) {
+            return false;
+        }
+        Reservation current = entry.get();
+        return current != null && current != PRUNED && !current.redeemed && current.customerId.equals(customerId)
+                && entry.compareAndSet(current, null);
+    }
+
+    /**
+     * Redeems the coupon at checkout of the basket of the customer.
+     * Committing again for the same customer succeeds as well, so a checkout that is retried is not refused.
+     *
+     * @param code       the activation code of the coupon
+     * @param customerId the owner of the basket
+     * @return true if the coupon was redeemed for the customer, false if another basket holds or redeemed it
+     */
+    public boolean commit(String code, String customerId) {
+        String key = CouponService.normalize(code);
+        while (true) {
+            AtomicReference<Reservation> entry = entries.computeIfAbsent(key, c -> new AtomicReference<>());
+            Reservation current = entry.get();
+            if (current == PRUNED) {
+                entries.remove(key, entry);
+                continue;
+            }
+            long now = System.nanoTime();
+            if (current != null && current.redeemed) {
+                return current.customerId.equals(customerId);
+            }
+            if (current != null && !current.customerId.equals(customerId) && current.expiresAt - now > 0) {
+                return false;
+            }
+            if (entry.compareAndSet(current, new Reservation(customerId, now + ttlNanos, true))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the customer can reserve the coupon, without reserving it.
+     *
+     * @param code       the activation code of the coupon
+     * @param customerId the owner of the basket
+     * @return true if the coupon is free, expired or reserved by the customer
+     */
+    public boolean isAvailable(String code, String customerId) {
+        AtomicReference<Reservation> entry = entries.get(CouponService.normalize(code));
+        Reservation current = entry == null ? null : entry.get();
+        return current == null || current == PRUNED || (!current.redeemed
+                && (current.customerId.equals(customerId) || current.expiresAt - System.nanoTime() <= 0));
+    }
+
+    /**
+     * Checks whether the coupon has been redeemed.
+     *
+     * @param code the activation code of the coupon
+     * @return true if the coupon has been redeemed
+     */
+    public boolean isRedeemed(String code) {
+        AtomicReference<Reservation> entry = entries.get(CouponService.normalize(code));
+        Reservation current = entry == null ? null : entry.get();
+        return current != null && current != PRUNED && current.redeemed;
+    }
+
+    /**
+     * Number of codes in the ledger, including the ones that are waiting to be pruned.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes the released entries, the expired reservations and the codes that were redeemed more than one TTL ago.
+     * An entry is first marked as pruned with a compare-and-set, so a basket that reserves the code at the same time
+     * either wins before it and keeps the entry, or finds the mark and creates a new entry.
+     */
+    @Scheduled(fixedDelay = PRUNE_MILLIS)
+    public void prune() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, AtomicReference<Reservation>> entry : entries.entrySet()) {
+            AtomicReference<Reservation> state = entry.getValue();
+            Reservation current = state.get();
+            if ((current == null || current == PRUNED || current.expiresAt - now <= 0)
+                    && (current == PRUNED || state.compareAndSet(current, PRUNED))) {
+                entries.remove(entry.getKey(), state);
+            }
+        }
+    }
+
+    /**
+     * Immutable holder of a coupon, replaced as a whole on every change.
+     */
+    private static final class Reservation {
+        private final String customerId;
+        private final long expiresAt;
+        private final boolean redeemed;
+
+        private Reservation(String customerId, long expiresAt, boolean redeemed) {
+            this.customerId = customerId;
+            this.expiresAt = expiresAt;
+            this.redeemed = redeemed;
+        }
+    }
+}
@@ -5,13 +5,30 @@ import nl.tudelft.sem.template.basket.repositories.CouponRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Access to the coupons that can be applied to baskets.
+ * Coupon codes are case-insensitive, so the coupons are kept in memory indexed by their upper-case code. The index
+ * is loaded from the repository on the first read and kept up to date on every save and delete, so looking up a
+ * code never queries the database.
+ */
 @SuppressWarnings("PMD")
 @Service
 public class CouponService {
 
     private final CouponRepository couponRepo;
+    private volatile Map<String, Coupon> byCode;
+    private volatile List<Coupon> ordered;
+    private volatile List<Coupon> reusable;
+    private final AtomicLong versions = new AtomicLong();
 
     @Autowired
     public CouponService(CouponRepository c) {
@@ -19,28 +36,138 @@ public class CouponService {
     }
 
     public List<Coupon> findAll() {
-        return couponRepo.findAll();
+        return new ArrayList<>(index().values());
     }
 
+    /**
+     * Returns all coupons ordered by id, without copying them.
+     * The list is built once and kept until a coupon is saved or deleted.
+     *
+     * @return the coupons ordered by id, which must not be modified
+     */
+    public List<Coupon> coupons() {
+        List<Coupon> current = ordered;
+        if (current == null) {
+            long version = versions.get();
+            List<Coupon> sorted = new ArrayList<>(index().values());
+            sorted.sort(Comparator.comparingLong(Coupon::getId));
+            current = Collections.unmodifiableList(sorted);
+            synchronized (this) {
+                if (versions.get() == version) {
+                    ordered = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the coupons that can be used more than once, ordered by id, without copying them.
+     * These are the coupons every customer can choose from, so the list is kept like {@link #coupons()}.
+     *
+     * @return the reusable coupons ordered by id, which must not be modified
+     */
+    public List<Coupon> reusableCoupons() {
+        List<Coupon> current = reusable;
+        if (current == null) {
+            long version = versions.get();
+            List<Coupon> found = new ArrayList<>();
+            for (Coupon coupon : coupons()) {
+                if (coupon.isLimitedTime()) {
+                    found.add(coupon);
+                }
+            }
+            current = Collections.unmodifiableList(found);
+            synchronized (this) {
+                if (versions.get() == version) {
+                    reusable = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Version of the coupons, which changes every time a coupon is saved or deleted.
+     *
+     * @return the version of the coupons
+     */
+    public long version() {
+        return versions.get();
+    }
+
+    /**
+     * Looks up the coupon with the given code, ignoring case.
+     *
+     * @param code the activation code
+     * @return the coupon, or null if there is no coupon with that code
+     */
     public Coupon getByCode(String code) {
-        return couponRepo.findCouponByCodeIgnoreCase(code).orElse(null);
+        if (code == null) {
+            return null;
+        }
+        return index().get(normalize(code));
     }
 
-    public Coupon save(Coupon c) {
-        return couponRepo.save(c);
+    /**
+     * Saves the coupon and puts it in the index.
+     *
+     * @param c the coupon to save
+     * @return the saved coupon
+     */
+    public synchronized Coupon save(Coupon c) {
+        Coupon saved = couponRepo.save(c);
+        Map<String, Coupon> index = byCode;
+        if (index != null) {
+            Coupon indexed = saved == null ? c : saved;
+            if (indexed.getCode() != null) {
+                index.put(normalize(indexed.getCode()), indexed);
+            }
+        }
+        changed();
+        return saved;
     }
 
-    public Coupon delete(Coupon c) {
+    /**
+     * Deletes the coupon and takes it out of the index.
+     *
+     * @param c the coupon to delete
+     * @return the deleted coupon
+     */
+    public synchronized Coupon delete(Coupon c) {
         couponRepo.delete(c);
+        Map<String, Coupon> index = byCode;
+        if (index != null && c.getCode() != null) {
+            index.computeIfPresent(normalize(c.getCode()), (code, indexed) -> indexed.getId() == c.getId() ? null
+                    : indexed);
+        }
+        changed();
         return c;
     }
 
+    /**
+     * Drops the index, for when coupons have been changed without going through this service.
+     */
+    public synchronized void invalidate() {
+        byCode = null;
+        changed();
+    }
+
+    private void changed() {
+        // the lists are dropped before the version changes, so a list built from the old coupons is never kept
+        ordered = null;
+        reusable = null;
+        versions.incrementAndGet();
+    }
+
+    /**
+     * Checks whether there is a coupon with the given code, ignoring case like {@link #getByCode}.
+     *
+     * @param code the activation code
+     * @return true if there is a coupon with that code
+     */
     public boolean exists(String code) {
-        List<Coupon> coupons = findAll();
-        for (Coupon c : coupons) {
-            if (c.getCode().equals(code)) return true;
-        }
-        return false;
+        return getByCode(code) != null;
     }
 
     /**
@@ -52,4 +179,33 @@ public class CouponService {
     public boolean couponInvalid(Coupon c) {
         return !c.getCode().matches("(?i)^[A-Z]{4}[0-9]{2}$");
     }
-}
\ No newline at end of file
+
+    /**
+     * The key of a code in the index.
+     *
+     * @param code the activation code
+     * @return the code in upper case
+     */
+    static String normalize(String code) {
+        return code.toUpperCase(Locale.ROOT);
+    }
+
+    private Map<String, Coupon> index() {
+        Map<String, Coupon> index = byCode;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (byCode == null) {
+                Map<String, Coupon> loaded = new ConcurrentHashMap<>();
+                for (Coupon coupon : couponRepo.findAll()) {
+                    if (coupon.getCode() != null) {
+                        loaded.put(normalize(coupon.getCode()), coupon);
+                    }
+                }
+                byCode = loaded;
+            }
+            return byCode;
+        }
+    }
+}
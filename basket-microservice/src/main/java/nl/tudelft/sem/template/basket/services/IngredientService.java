@@ -5,13 +5,27 @@ import nl.tudelft.sem.template.basket.repositories.IngredientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Access to the ingredients that pizzas can be made of.
+ * The ingredients are kept in memory as a catalog indexed by id and by name, which is loaded from the repository on
+ * the first read. Saving an ingredient replaces the catalog with a copy that holds the saved ingredient, so reads
+ * never wait for a writer and never touch the database.
+ */
 @SuppressWarnings("PMD")
 @Service
 public class IngredientService {
 
     private final IngredientRepository ingredientRepository;
+    private volatile Catalog catalog;
+    private final AtomicLong versions = new AtomicLong();
 
     @Autowired
     public IngredientService(IngredientRepository ingredientRepository) {
@@ -19,19 +33,117 @@ public class IngredientService {
     }
 
     public List<Ingredient> findAll() {
-        return ingredientRepository.findAll();
+        return new ArrayList<>(catalog().ingredients);
+    }
+
+    /**
+     * Returns all ingredients without copying them.
+     *
+     * @return the ingredients in the order they were added, which must not be modified
+     */
+    public List<Ingredient> ingredients() {
+        return catalog().ingredients;
+    }
+
+    /**
+     * Version of the ingredients, which changes every time an ingredient is saved.
+     *
+     * @return the version of the ingredients
+     */
+    public long version() {
+        return versions.get();
     }
 
     public Ingredient getByName(String name) {
-        return ingredientRepository.getIngredientByName(name).orElse(null);
+        return catalog().byName.get(name);
     }
 
     public Ingredient findById(Long id)  {
-        return ingredientRepository.findById(id).orElseGet(null);
+        return catalog().byId.get(id);
+    }
+
+    /**
+     * Looks up the ingredients with the given names, all in the same version of the catalog.
+     *
+     * @param names the names of the ingredients
+     * @return the ingredients in the same order as the names, with null for every name that is not an ingredient
+     */
+    public List<Ingredient> getByNames(List<String> names) {
+        Map<String, Ingredient> byName = catalog().byName;
+        List<Ingredient> found = new ArrayList<>(names.size());
+        for (String name : names) {
+            found.add(byName.get(name));
+        }
+        return found;
     }
 
-    public Ingredient save(Ingredient ingredient) {
-        return ingredientRepository.save(ingredient);
+    /**
+     * Looks up the ingredients with the given ids, all in the same version of the catalog.
+     *
+     * @param ids the ids of the ingredients
+     * @return the ingredients in the same order as the ids, with null for every id that is not an ingredient
+     */
+    public List<Ingredient> getByIds(List<Long> ids) {
+        Map<Long, Ingredient> byId = catalog().byId;
+        List<Ingredient> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            found.add(byId.get(id));
+        }
+        return found;
+    }
+
+    /**
+     * Saves the ingredient, and replaces the catalog with a copy that holds the saved ingredient.
+     *
+     * @param ingredient the ingredient to save
+     * @return the saved ingredient
+     */
+    public synchronized Ingredient save(Ingredient ingredient) {
+        Ingredient saved = ingredientRepository.save(ingredient);
+        versions.incrementAndGet();
+        Catalog current = catalog;
+        if (current == null) {
+            return saved;
+        }
+        if (saved == null || saved.getId() == null) {
+            // cannot tell which ingredient it replaces, so load everything again on the next read
+            catalog = null;
+            return saved;
+        }
+        List<Ingredient> copy = new ArrayList<>(current.ingredients.size() + 1);
+        for (Ingredient existing : current.ingredients) {
+            if (!Objects.equals(existing.getId(), saved.getId())) {
+                copy.add(existing);
+            }
+        }
+        copy.add(saved);
+        catalog = new Catalog(copy);
+        return saved;
+    }
+
+    /**
+     * Changes the price of an ingredient and saves it.
+     * A copy with the new price is saved, and the catalog only holds it once saving succeeded, so the ingredient in
+     * the catalog is never changed and a failed save leaves the old price in place.
+     *
+     * @param name  the name of the ingredient
+     * @param price the new price
+     * @return the saved ingredient, or null if there is no ingredient with that name
+     */
+    public synchronized Ingredient updatePrice(String name, Double price) {
+        Ingredient current = catalog().byName.get(name);
+        if (current == null) {
+            return null;
+        }
+        return save(current.withPrice(price));
+    }
+
+    /**
+     * Drops the catalog, for when ingredients have been changed without going through this service.
+     */
+    public synchronized void invalidate() {
+        versions.incrementAndGet();
+        catalog = null;
     }
 
     /**
@@ -41,10 +153,42 @@ public class IngredientService {
      * @return True if there is an ingredient in the repo with the same name, False otherwise
      */
     public Boolean exists(String ingredientName) {
-        for (Ingredient ingredient : ingredientRepository.findAll()) {
-            if (ingredient.getName().equals(ingredientName))
-                return true;
+        return catalog().byName.containsKey(ingredientName);
+    }
+
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (catalog == null) {
+                catalog = new Catalog(ingredientRepository.findAllReadOnly());
+            }
+            return catalog;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the ingredients with their indexes.
+     */
+    private static final class Catalog {
+        private final List<Ingredient> ingredients;
+        private final Map<Long, Ingredient> byId;
+        private final Map<String, Ingredient> byName;
+
+        private Catalog(List<Ingredient> all) {
+            Map<Long, Ingredient> ids = new HashMap<>();
+            Map<String, Ingredient> names = new HashMap<>();
+            for (Ingredient ingredient : all) {
+                if (ingredient.getId() != null) {
+                    ids.put(ingredient.getId(), ingredient);
+                }
+                names.put(ingredient.getName(), ingredient);
+            }
+            this.ingredients = Collections.unmodifiableList(new ArrayList<>(all));
+            this.byId = ids;
+            this.byName = names;
         }
-        return false;
     }
 }
@@ -0,0 +1,40 @@
+package nl.tudelft.sem.template.basket.services;
+
+/**
+ * Ledger that lets every basket use every single-use coupon, for basket nodes that share their baskets through a
+ * remote store. A ledger in the memory of one node cannot see the reservations of the other nodes, and would keep
+ * refusing a coupon after its basket moved to another node, so with a remote store a single-use coupon is only
+ * limited by being deleted at checkout.
+ */
+public class PermissiveCouponRedemptionLedger extends CouponRedemptionLedger {
+
+    @Override
+    public boolean reserve(String code, String customerId) {
+        return true;
+    }
+
+    @Override
+    public boolean release(String code, String customerId) {
+        return false;
+    }
+
+    @Override
+    public boolean commit(String code, String customerId) {
+        return true;
+    }
+
+    @Override
+    public boolean isAvailable(String code, String customerId) {
+        return true;
+    }
+
+    @Override
+    public boolean isRedeemed(String code) {
+        return false;
+    }
+
+    @Override
+    public void prune() {
+        // nothing is kept
+    }
+}
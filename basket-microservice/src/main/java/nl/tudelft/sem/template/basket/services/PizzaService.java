@@ -2,19 +2,53 @@ package nl.tudelft.sem.template.basket.services;
 
 import commons.Pizza;
 import commons.Ingredient;
+import commons.strategies.PizzaCatalog;
+import nl.tudelft.sem.template.basket.models.MenuCacheStatistics;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
 import nl.tudelft.sem.template.basket.repositories.PizzaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Access to the pizzas on the menu.
+ * The menu is read far more often than it changes, so it is kept in memory as a catalog indexed by name. Every pizza
+ * also carries a bitmask of its ingredients over dense ingredient ordinals, so filtering out allergens is one AND per
+ * pizza. Most customers share a handful of allergen combinations, so the filtered menus are kept in a bounded cache
+ * per catalog, keyed by the allergen mask. The catalog is loaded from the repository on the first read, and dropped as
+ * a whole together with its filtered menus when a pizza is saved, so reads in between never touch the database.
+ * The catalog also keeps a reverse index from every ingredient to the pizzas that contain it, so a new ingredient price
+ * reprices only those pizzas, which are copied into a new catalog once their prices are stored.
+ * The menu is also the catalog that the pizzas of stored custom coupons are looked up in, by id or by name.
+ * Duplicate checks use a separate index of names and ingredient-set fingerprints, which saving a pizza updates in place
+ * instead of dropping, so adding many pizzas in a row does not reload the menu for every one of them.
+ */
 @SuppressWarnings("PMD")
 @Service
-public class PizzaService {
+public class PizzaService implements PizzaCatalog {
+
+    static final int MAX_FILTERED_MENUS = 256;
 
     private final PizzaRepository pizzaRepository;
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Duplicates duplicates;
+    private final LongAdder menuHits = new LongAdder();
+    private final LongAdder menuMisses = new LongAdder();
+    private final LongAdder menuEvictions = new LongAdder();
 
     @Autowired
     public PizzaService(PizzaRepository pizzaRepository) {
@@ -22,27 +56,126 @@ public class PizzaService {
     }
 
     public List<Pizza> findAll() {
-        return pizzaRepository.findAll();
+        return new ArrayList<>(catalog().pizzas);
     }
 
+    /**
+     * Returns the menu without copying it.
+     *
+     * @return the pizzas on the menu in the order they were added, which must not be modified
+     */
+    public List<Pizza> menu() {
+        return catalog().pizzas;
+    }
+
+    /**
+     * Saves the pizza, adds it to the duplicate index and drops the cached catalog so the next read sees the new pizza.
+     *
+     * @param pizza the pizza to save
+     * @return the saved pizza
+     */
     public Pizza save(Pizza pizza) {
-        return pizzaRepository.save(pizza);
+        try {
+            Pizza saved = pizzaRepository.save(pizza);
+            Duplicates current = duplicates;
+            if (current != null) {
+                current.add(saved == null ? pizza : saved);
+            }
+            return saved;
+        } finally {
+            dropCatalog();
+        }
+    }
+
+    /**
+     * Drops the cached catalog and the duplicate index, for when pizzas have been changed without going through this
+     * service.
+     */
+    public void invalidate() {
+        duplicates = null;
+        dropCatalog();
+    }
+
+    private void dropCatalog() {
+        versions.incrementAndGet();
+        catalog.set(null);
+    }
+
+    /**
+     * Recalculates the prices of the pizzas on the menu that contain the ingredient, after its price has changed.
+     * Only the affected pizzas are looked at, through the reverse index of the catalog. The catalog itself is never
+     * changed: the affected pizzas are copied with the new ingredient, the new prices are written to the database in
+     * one batch, and only then is a new catalog with the copies published. If writing fails, readers keep seeing the
+     * old menu. The menu version changes if any price does.
+     *
+     * @param changed the ingredient with its new price
+     * @return the number of pizzas whose price has changed
+     */
+    public synchronized int reprice(Ingredient changed) {
+        Catalog current = catalog();
+        Map<Pizza, Pizza> copies = new IdentityHashMap<>();
+        List<Pizza> repriced = new ArrayList<>();
+        for (Pizza pizza : current.byIngredient.getOrDefault(changed.getName(), List.of())) {
+            Pizza copy = pizza.withIngredient(changed);
+            copies.put(pizza, copy);
+            if (!copy.getPrice().equals(pizza.getPrice())) {
+                repriced.add(copy);
+            }
+        }
+        if (repriced.isEmpty()) {
+            return 0;
+        }
+        pizzaRepository.updatePrices(repriced);
+        List<Pizza> pizzas = new ArrayList<>(current.pizzas.size());
+        for (Pizza pizza : current.pizzas) {
+            pizzas.add(copies.getOrDefault(pizza, pizza));
+        }
+        versions.incrementAndGet();
+        if (!catalog.compareAndSet(current, new Catalog(pizzas, menuEvictions))) {
+            // a pizza was saved in the meantime, so the next read loads the new prices from the database
+            catalog.set(null);
+        }
+        return repriced.size();
+    }
+
+    /**
+     * Version of the menu, which changes every time the menu is changed.
+     *
+     * @return the version of the menu
+     */
+    @Override
+    public long version() {
+        return versions.get();
     }
 
     /**
      * Passed a pizza, checks whether an identical pizza is already in the repository.
-     * Two pizzas are identical if they have the same name or the same ingredient list.
+     * Two pizzas are identical if they have the same name or the same ingredients, in any order.
      *
      * @param pizza The pizza to be checked for the duplicate
      * @return True if there is an identical pizza in the repo, and False else
      */
     public Boolean exists(Pizza pizza) {
-        List<Pizza> all = findAll();
-        for (Pizza pizzaSelected : all) {
-            if (Objects.equals(pizzaSelected.getName(), pizza.getName())
-                    || Objects.equals(pizzaSelected.getIngredients(), pizza.getIngredients())) return true;
+        Duplicates current = duplicates();
+        return current.byName.containsKey(String.valueOf(pizza.getName()))
+                || pizza.getIngredients() != null
+                && current.byFingerprint.containsKey(fingerprint(pizza.getIngredients()));
+    }
+
+    /**
+     * Canonical form of a set of ingredients, which is the same for the same ingredients in any order.
+     * Ingredients are compared by name, so a new price does not make a pizza different.
+     *
+     * @param ingredients the ingredients of a pizza
+     * @return the fingerprint of the ingredients
+     */
+    static String fingerprint(List<Ingredient> ingredients) {
+        List<String> names = new ArrayList<>(ingredients.size());
+        for (Ingredient ingredient : ingredients) {
+            names.add(String.valueOf(ingredient.getName()));
         }
-        return false;
+        Collections.sort(names);
+        return String.join("\u0000", names);
     }
 
     /**
@@ -56,31 +189,227 @@ public class PizzaService {
         return exists(pizza) || pizza == null || pizza.getName().isEmpty() || pizza.getIngredients().isEmpty();
     }
 
+    /**
+     * Returns the pizzas on the menu that contain none of the allergens.
+     * Ingredients are matched by name, and allergens that are not on any pizza are ignored, so customers whose
+     * allergies differ only in ingredients that are not on the menu share the same cached result.
+     *
+     * @param allergens the list of allergens of the customer, in which null entries are skipped
+     * @return the pizzas without any of the allergens in menu order, which must not be modified
+     */
+    public List<Pizza> findAllWithout(List<Ingredient> allergens) {
+        Catalog current = catalog();
+        BitSet excluded = current.maskOf(allergens);
+        if (excluded.isEmpty()) {
+            return current.pizzas;
+        }
+        List<Pizza> cached = current.filtered.get(excluded);
+        if (cached != null) {
+            menuHits.increment();
+            return cached;
+        }
+        menuMisses.increment();
+        List<Pizza> res = new ArrayList<>();
+        for (int i = 0; i < current.masks.length; i++) {
+            if (!current.masks[i].intersects(excluded)) {
+                res.add(current.pizzas.get(i));
+            }
+        }
+        res = Collections.unmodifiableList(res);
+        current.filtered.put(excluded, res);
+        return res;
+    }
+
+    /**
+     * Counters of the cache of filtered menus, since the service was created.
+     *
+     * @return the size of the cache of the current menu, and the hits, misses and evictions over all menus
+     */
+    public MenuCacheStatistics getMenuCacheStatistics() {
+        Catalog current = catalog.get();
+        long hits = menuHits.sum();
+        long misses = menuMisses.sum();
+        double hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        return new MenuCacheStatistics(current == null ? 0 : current.filtered.size(), hits, misses,
+                menuEvictions.sum(), hitRate);
+    }
+
     /**
      * Accessory method that filters out all pizzas containing allergens from the input list.
+     * Every pizza is kept at most once; use {@link #findAllWithout} to filter the whole menu.
      *
      * @param allergens the list of allergens of the customer
      * @param allPizzas all pizzas on the menu
      */
     public List<Pizza> filterOutPizzas(List<Ingredient> allergens, List<Pizza> allPizzas) {
+        Set<String> names = new HashSet<>();
+        for (Ingredient allergen : allergens) {
+            if (allergen != null) {
+                names.add(allergen.getName());
+            }
+        }
         List<Pizza> res = new ArrayList<>();
         for (Pizza pizza : allPizzas) {
-            for (Ingredient ingredient : allergens) {
-                if (!pizza.getIngredients().contains(ingredient)) {
-                    res.add(pizza);
-                }
+            if (!containsAny(pizza, names)) {
+                res.add(pizza);
             }
         }
         return res;
     }
 
+    private static boolean containsAny(Pizza pizza, Set<String> names) {
+        if (pizza.getIngredients() == null) {
+            return false;
+        }
+        for (Ingredient ingredient : pizza.getIngredients()) {
+            if (names.contains(ingredient.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
     public Pizza findByName(String pizzaName) {
-        Pizza result = null;
-        for (Pizza pizza : pizzaRepository.findAll()) {
-            if (pizza.getName().equals(pizzaName)) {
-                result = pizza;
+        return catalog().byName.get(pizzaName);
+    }
+
+    @Override
+    public Pizza findById(Long id) {
+        return catalog().byId.get(id);
+    }
+
+    /**
+     * Returns the duplicate index, building it from the catalog if it has been dropped.
+     * An index that was built while a pizza was saved is not kept, as it may miss that pizza.
+     *
+     * @return the duplicate index of the menu
+     */
+    private Duplicates duplicates() {
+        Duplicates current = duplicates;
+        if (current != null) {
+            return current;
+        }
+        long version = versions.get();
+        Duplicates built = new Duplicates(catalog().pizzas);
+        synchronized (this) {
+            if (duplicates == null && versions.get() == version) {
+                duplicates = built;
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Returns the cached catalog, loading it from the repository if it has been dropped.
+     * A catalog that was loaded while a pizza was saved is not kept, as it may miss that pizza.
+     *
+     * @return the catalog of the menu
+     */
+    private Catalog catalog() {
+        Catalog current = catalog.get();
+        if (current != null) {
+            return current;
+        }
+        long version = versions.get();
+        Catalog loaded = new Catalog(pizzaRepository.findAllWithIngredients(), menuEvictions);
+        if (catalog.compareAndSet(null, loaded) && versions.get() != version) {
+            catalog.compareAndSet(loaded, null);
+        }
+        return loaded;
+    }
+
+    /**
+     * Immutable snapshot of the menu with its indexes.
+     */
+    private static final class Catalog {
+        private final List<Pizza> pizzas;
+        private final Map<String, Pizza> byName;
+        private final Map<Long, Pizza> byId;
+        private final Map<String, List<Pizza>> byIngredient;
+        private final Map<String, Integer> ordinals;
+        private final BitSet[] masks;
+
+        /**
+         * Filtered menus by allergen mask, least recently used first.
+         */
+        private final Map<BitSet, List<Pizza>> filtered;
+
+        private Catalog(List<Pizza> all, LongAdder evictions) {
+            Map<String, Pizza> names = new HashMap<>();
+            Map<Long, Pizza> ids = new HashMap<>();
+            Map<String, List<Pizza>> containing = new HashMap<>();
+            Map<String, Integer> dense = new HashMap<>();
+            BitSet[] bits = new BitSet[all.size()];
+            for (int i = 0; i < all.size(); i++) {
+                Pizza pizza = all.get(i);
+                // later pizzas win, like the linear search this replaces
+                names.put(pizza.getName(), pizza);
+                if (pizza.getId() != null) {
+                    ids.put(pizza.getId(), pizza);
+                }
+                bits[i] = new BitSet();
+                if (pizza.getIngredients() != null) {
+                    for (Ingredient ingredient : pizza.getIngredients()) {
+                        bits[i].set(dense.computeIfAbsent(ingredient.getName(), name -> dense.size()));
+                        List<Pizza> with = containing.computeIfAbsent(ingredient.getName(), name -> new ArrayList<>());
+                        if (with.isEmpty() || with.get(with.size() - 1) != pizza) {
+                            with.add(pizza);
+                        }
+                    }
+                }
+            }
+            this.pizzas = Collections.unmodifiableList(new ArrayList<>(all));
+            this.byName = names;
+            this.byId = ids;
+            this.byIngredient = containing;
+            this.ordinals = dense;
+            this.masks = bits;
+            this.filtered = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<BitSet, List<Pizza>> eldest) {
+                    if (size() > MAX_FILTERED_MENUS) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            });
+        }
+
+        /**
+         * Bitmask of the given ingredients over the ordinals of this catalog.
+         */
+        private BitSet maskOf(List<Ingredient> ingredients) {
+            BitSet mask = new BitSet(ordinals.size());
+            for (Ingredient ingredient : ingredients) {
+                Integer ordinal = ingredient == null ? null : ordinals.get(ingredient.getName());
+                if (ordinal != null) {
+                    mask.set(ordinal);
+                }
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Index of the names and ingredient fingerprints on the menu, which saved pizzas are added to in place.
+     */
+    private static final class Duplicates {
+        private final Map<String, Pizza> byName = new ConcurrentHashMap<>();
+        private final Map<String, Pizza> byFingerprint = new ConcurrentHashMap<>();
+
+        private Duplicates(List<Pizza> all) {
+            for (Pizza pizza : all) {
+                add(pizza);
+            }
+        }
+
+        private void add(Pizza pizza) {
+            byName.put(String.valueOf(pizza.getName()), pizza);
+            if (pizza.getIngredients() != null) {
+                byFingerprint.put(fingerprint(pizza.getIngredients()), pizza);
             }
         }
-        return result;
     }
 }
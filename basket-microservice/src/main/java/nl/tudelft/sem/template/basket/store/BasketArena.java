@@ -0,0 +1,139 @@
+package nl.tudelft.sem.template.basket.store;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Block allocator over a direct buffer that lives outside of the Java heap.
+ * Blocks come in power-of-two size classes from 32 bytes up to 1 MiB; freed blocks are kept on a free list of
+ * their class and handed out again before the arena grows. When the arena is full it is moved to a buffer of
+ * twice the size. The arena is not thread-safe, every lock stripe of a store owns its own arena.
+ */
+class BasketArena {
+
+    private static final int MIN_SHIFT = 5;
+    private static final int MAX_SHIFT = 20;
+
+    private ByteBuffer memory;
+    private int top;
+    private final int[][] freeBlocks = new int[MAX_SHIFT - MIN_SHIFT + 1][];
+    private final int[] freeCounts = new int[MAX_SHIFT - MIN_SHIFT + 1];
+
+    /**
+     * Creates an arena.
+     *
+     * @param initialCapacity the initial size of the arena in bytes
+     */
+    BasketArena(int initialCapacity) {
+        this.memory = ByteBuffer.allocateDirect(Math.max(initialCapacity, 1 << MIN_SHIFT));
+        for (int i = 0; i < freeBlocks.length; i++) {
+            freeBlocks[i] = new int[8];
+        }
+    }
+
+    /**
+     * Copies the data into a newly allocated block.
+     *
+     * @param data the data to store
+     * @return the offset of the block
+     */
+    int allocate(byte[] data) {
+        int sizeClass = sizeClass(data.length);
+        int offset;
+        if (freeCounts[sizeClass] > 0) {
+            offset = freeBlocks[sizeClass][--freeCounts[sizeClass]];
+        } else {
+            int size = 1 << (sizeClass + MIN_SHIFT);
+            ensureCapacity(top + size);
+            offset = top;
+            top += size;
+        }
+        write(offset, data);
+        return offset;
+    }
+
+    /**
+     * Replaces the data of a block, moving it to a block of another size class when needed.
+     *
+     * @param offset    the offset of the block
+     * @param oldLength the length of the data in the block
+     * @param data      the new data
+     * @return the offset of the block holding the new data
+     */
+    int reallocate(int offset, int oldLength, byte[] data) {
+        if (sizeClass(oldLength) == sizeClass(data.length)) {
+            write(offset, data);
+            return offset;
+        }
+        free(offset, oldLength);
+        return allocate(data);
+    }
+
+    /**
+     * Returns a block to the free list of its size class.
+     *
+     * @param offset the offset of the block
+     * @param length the length of the data in the block
+     */
+    void free(int offset, int length) {
+        int sizeClass = sizeClass(length);
+        if (freeCounts[sizeClass] == freeBlocks[sizeClass].length) {
+            freeBlocks[sizeClass] = Arrays.copyOf(freeBlocks[sizeClass], freeCounts[sizeClass] * 2);
+        }
+        freeBlocks[sizeClass][freeCounts[sizeClass]++] = offset;
+    }
+
+    /**
+     * Read-only view of the data of a block.
+     * The view must not be used after the block has been changed or freed.
+     *
+     * @param offset the offset of the block
+     * @param length the length of the data in the block
+     * @return a buffer positioned at the start of the data
+     */
+    ByteBuffer read(int offset, int length) {
+        ByteBuffer view = memory.asReadOnlyBuffer();
+        view.limit(offset + length);
+        view.position(offset);
+        return view;
+    }
+
+    /**
+     * Number of bytes reserved outside of the heap.
+     *
+     * @return the capacity of the arena
+     */
+    int capacity() {
+        return memory.capacity();
+    }
+
+    private void write(int offset, byte[] data) {
+        ByteBuffer view = memory.duplicate();
+        view.position(offset);
+        view.put(data);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= memory.capacity()) {
+            return;
+        }
+        long grown = Math.max((long) memory.capacity() * 2, required);
+        if (grown > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Basket arena is full");
+        }
+        ByteBuffer larger = ByteBuffer.allocateDirect((int) grown);
+        ByteBuffer used = memory.duplicate();
+        used.position(0);
+        used.limit(top);
+        larger.put(used);
+        memory = larger;
+    }
+
+    private static int sizeClass(int length) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1));
+        if (shift > MAX_SHIFT) {
+            throw new IllegalArgumentException("Basket of " + length + " bytes is too large");
+        }
+        return shift - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,263 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import commons.BasketInfo;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import commons.strategies.PriceStrategy;
+import commons.strategies.StrategyConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of a basket.
+ * Pizzas, ingredients and coupons are shared by many baskets, so they are kept once in a dictionary and a basket
+ * only stores their codes. Consecutive equal pizzas are stored once with a quantity, and the price is stored as it is.
+ * Every dictionary is bounded, so values created by customers cannot grow it without limit; values that do not fit
+ * anymore are stored inline in the basket instead.
+ *
+ * <p>Layout, all numbers big-endian:
+ * <pre>
+ * long  pickup time, seconds since the epoch in UTC (Long.MIN_VALUE if there is none)
+ * int   nanoseconds of the pickup time
+ * int   store id
+ * double price
+ * int   coupon code, NO_COUPON if there is none or INLINE_COUPON if it is stored inline:
+ *   string code, char type, double rate, boolean limited time, string strategy as stored in the database
+ * int   number of lines, followed by the lines
+ *   byte  kind, PIZZA or INLINE
+ *   int   quantity
+ *   PIZZA:  int pizza code
+ *   INLINE: string name, int number of ingredients (-1 if null), the ingredients
+ *     int ingredient code, or INLINE_INGREDIENT followed by string name and double price
+ * long  version of the basket
+ * </pre>
+ * Strings are an int length (-1 for null) followed by UTF-8 bytes.
+ */
+public class BasketCodec {
+
+    /**
+     * Maximum number of distinct pizzas that get their own code.
+     */
+    public static final int MAX_PIZZA_CODES = 1 << 16;
+
+    /**
+     * Maximum number of distinct ingredients that get their own code.
+     */
+    public static final int MAX_INGREDIENT_CODES = 1 << 16;
+
+    /**
+     * Maximum number of distinct coupons that get their own code.
+     */
+    public static final int MAX_COUPON_CODES = 1 << 16;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final byte PIZZA = 0;
+    private static final byte INLINE = 1;
+    private static final int NO_COUPON = -1;
+    private static final int INLINE_COUPON = -2;
+    private static final int INLINE_INGREDIENT = -1;
+
+    private final Dictionary<Pizza, Pizza> pizzas = new Dictionary<>(MAX_PIZZA_CODES);
+    private final Dictionary<Ingredient, Ingredient> ingredients = new Dictionary<>(MAX_INGREDIENT_CODES);
+    private final Dictionary<List<Object>, Coupon> coupons = new Dictionary<>(MAX_COUPON_CODES);
+    private final StrategyConverter strategies;
+
+    /**
+     * Creates a codec that cannot look up the pizzas of custom coupons it decodes.
+     */
+    public BasketCodec() {
+        this(new StrategyConverter());
+    }
+
+    /**
+     * Creates a codec that reads the strategies of coupons with the given converter.
+     *
+     * @param strategies the converter of the strategies of coupons
+     */
+    public BasketCodec(StrategyConverter strategies) {
+        this.strategies = strategies;
+    }
+
+    /**
+     * Encodes a basket.
+     *
+     * @param basket the basket to encode
+     * @return the encoded basket
+     */
+    public byte[] encode(Basket basket) {
+        BasketInfo info = basket.getBasketInfo();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            LocalDateTime time = basket.getTime();
+            out.writeLong(time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time == null ? 0 : time.getNano());
+            out.writeInt(info.getStoreId());
+            out.writeDouble(info.getPrice());
+            writeCoupon(out, info.getCoupon());
+
+            List<Pizza> list = info.getPizzas();
+            out.writeInt(countLines(list));
+            int i = 0;
+            while (i < list.size()) {
+                Pizza pizza = list.get(i);
+                int quantity = 1;
+                while (i + quantity < list.size() && pizza.equals(list.get(i + quantity))) {
+                    quantity++;
+                }
+                writeLine(out, pizza, quantity);
+                i += quantity;
+            }
+            out.writeLong(basket.getVersion());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a basket.
+     *
+     * @param customerId the id of the owner of the basket
+     * @param buffer     the encoded basket, starting at its position
+     * @return a new basket with the decoded contents
+     */
+    public Basket decode(String customerId, ByteBuffer buffer) {
+        LocalDateTime time = readTime(buffer);
+        buffer.position(buffer.position() + 12);
+        int storeId = buffer.getInt();
+        double price = buffer.getDouble();
+        Coupon coupon = readCoupon(buffer);
+
+        int lines = buffer.getInt();
+        List<Pizza> list = new ArrayList<>(lines);
+        for (int line = 0; line < lines; line++) {
+            byte kind = buffer.get();
+            int quantity = buffer.getInt();
+            Pizza pizza = kind == PIZZA ? pizzas.decode(buffer.getInt()) : readInline(buffer);
+            for (int q = 0; q < quantity; q++) {
+                list.add(pizza);
+            }
+        }
+
+        BasketInfo info = new BasketInfo(list, price, storeId);
+        info.setCoupon(coupon);
+        Basket basket = new Basket(customerId, info);
+        basket.setTime(time);
+        basket.setVersion(buffer.getLong());
+        return basket;
+    }
+
+    /**
+     * Decodes only the pickup time of a basket.
+     * Does not move the position of the buffer.
+     *
+     * @param buffer the encoded basket, starting at its position
+     * @return the pickup time, or null if there is none
+     */
+    public LocalDateTime readTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong(buffer.position());
+        if (seconds == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, buffer.getInt(buffer.position() + 8), ZoneOffset.UTC);
+    }
+
+    private void writeCoupon(DataOutputStream out, Coupon coupon) throws IOException {
+        if (coupon == null) {
+            out.writeInt(NO_COUPON);
+            return;
+        }
+        String strategy = strategies.convertToDatabaseColumn(coupon.getStrategy());
+        // coupons do not implement hashCode, so they are identified by what they look like, including the strategy
+        // of custom coupons, which the other fields do not tell apart
+        List<Object> key = List.of(String.valueOf(coupon.getCode()), coupon.getType(), coupon.getRate(),
+                coupon.isLimitedTime(), String.valueOf(strategy));
+        int code = coupons.encode(key, coupon);
+        out.writeInt(code >= 0 ? code : INLINE_COUPON);
+        if (code < 0) {
+            BasketSerializer.writeString(out, coupon.getCode());
+            out.writeChar(coupon.getType());
+            out.writeDouble(coupon.getRate());
+            out.writeBoolean(coupon.isLimitedTime());
+            BasketSerializer.writeString(out, strategy);
+        }
+    }
+
+    private Coupon readCoupon(ByteBuffer buffer) {
+        int code = buffer.getInt();
+        if (code != INLINE_COUPON) {
+            return code == NO_COUPON ? null : coupons.decode(code);
+        }
+        String couponCode = BasketSerializer.readString(buffer);
+        char type = buffer.getChar();
+        double rate = buffer.getDouble();
+        boolean limitedTime = buffer.get() != 0;
+        PriceStrategy strategy = strategies.convertToEntityAttribute(BasketSerializer.readString(buffer));
+        return strategy == null ? new Coupon(couponCode, type, rate, limitedTime)
+                : new Coupon(couponCode, type, rate, limitedTime, strategy);
+    }
+
+    private int countLines(List<Pizza> list) {
+        int lines = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (i == 0 || !list.get(i).equals(list.get(i - 1))) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private void writeLine(DataOutputStream out, Pizza pizza, int quantity) throws IOException {
+        int code = pizzas.encode(pizza, pizza);
+        if (code >= 0) {
+            out.writeByte(PIZZA);
+            out.writeInt(quantity);
+            out.writeInt(code);
+            return;
+        }
+        out.writeByte(INLINE);
+        out.writeInt(quantity);
+        BasketSerializer.writeString(out, pizza.getName());
+        List<Ingredient> toppings = pizza.getIngredients();
+        if (toppings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(toppings.size());
+        for (Ingredient ingredient : toppings) {
+            int ingredientCode = ingredients.encode(ingredient, ingredient);
+            out.writeInt(ingredientCode >= 0 ? ingredientCode : INLINE_INGREDIENT);
+            if (ingredientCode < 0) {
+                BasketSerializer.writeString(out, ingredient.getName());
+                out.writeDouble(ingredient.getPrice());
+            }
+        }
+    }
+
+    private Pizza readInline(ByteBuffer buffer) {
+        String name = BasketSerializer.readString(buffer);
+        int count = buffer.getInt();
+        if (count < 0) {
+            Pizza pizza = new Pizza();
+            pizza.setName(name);
+            return pizza;
+        }
+        List<Ingredient> toppings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int code = buffer.getInt();
+            toppings.add(code == INLINE_INGREDIENT
+                    ? new Ingredient(BasketSerializer.readString(buffer), buffer.getDouble())
+                    : ingredients.decode(code));
+        }
+        return new Pizza(name, toppings);
+    }
+}
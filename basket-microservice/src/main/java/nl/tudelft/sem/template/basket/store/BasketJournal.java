@@ -0,0 +1,578 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import commons.Pizza;
+import commons.strategies.StrategyConverter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log that makes the baskets of a {@link StripedBasketStore} survive restarts and crashes.
+ *
+ * <p>Every change to a basket is appended as a record holding the whole basket after the change, or a removal.
+ * Records go into memory-mapped segment files, so an append is a copy into the page cache and a record is safe
+ * from a crash of the process as soon as the call returns. An append reserves its space in the segment with a
+ * compare-and-set on the position of the segment, so appends from different stripes of the store never wait for
+ * each other. When a segment is full, the next one is usually mapped already, and the full segment is handed to
+ * the flusher thread. The flusher forces the segments to disk every flush interval, committing all records written
+ * since the previous flush in one go; a crash of the whole machine loses at most the changes of the last interval,
+ * while no request ever waits for the disk.
+ *
+ * <p>A snapshot thread regularly writes all baskets to a snapshot file, after which the segments written before
+ * the snapshot started are deleted. The snapshot is taken while baskets keep changing; because every record
+ * carries the complete basket, replaying the segments written since the snapshot started on top of it always
+ * ends in the latest state. Recovery loads the newest snapshot and replays those segments. A record whose writing
+ * was cut off by a crash is skipped, and replay of a segment stops at the first record without a length.
+ */
+public class BasketJournal implements BasketStoreListener, AutoCloseable {
+
+    private static final byte STORED = 1;
+    private static final byte REMOVED = 2;
+    private static final int HEADER = 8;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private final StripedBasketStore<?> store;
+    private final Path directory;
+    private final int segmentSize;
+    private final BasketSerializer serializer;
+    private final ScheduledExecutorService executor;
+    private final LongAdder appended = new LongAdder();
+
+    /**
+     * Taken to move on to a new segment, which appends only do when their segment is full.
+     */
+    private final Object rolling = new Object();
+
+    /**
+     * Full segments that still have to be forced to disk and closed, oldest first; guarded by its own lock, which
+     * only the flusher, the snapshot and close take.
+     */
+    private final Queue<Segment> retiring = new ArrayDeque<>();
+
+    private volatile Segment current;
+    private volatile boolean closed;
+    private Segment spare;
+    private long appendedAtSnapshot;
+
+    private BasketJournal(StripedBasketStore<?> store, Path directory, int segmentSize, StrategyConverter strategies) {
+        this.store = store;
+        this.serializer = new BasketSerializer(strategies);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "basket-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores the baskets found in the directory into the store, then logs every further change of the store.
+     *
+     * @param store            the store to restore and log
+     * @param directory        the directory of the segments and snapshots, created if it does not exist
+     * @param segmentSize      the size of one segment file in bytes
+     * @param flushInterval    how often written records are forced to disk
+     * @param snapshotInterval how often a snapshot is taken
+     * @return the journal, which must be closed when the store is no longer used
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static BasketJournal open(StripedBasketStore<?> store, Path directory, int segmentSize,
+                                     Duration flushInterval, Duration snapshotInterval) throws IOException {
+        return open(store, directory, segmentSize, flushInterval, snapshotInterval, new StrategyConverter());
+    }
+
+    /**
+     * Restores the baskets found in the directory into the store, then logs every further change of the store,
+     * reading the strategies of coupons with the given converter.
+     *
+     * @param store            the store to restore and log
+     * @param directory        the directory of the segments and snapshots, created if it does not exist
+     * @param segmentSize      the size of one segment file in bytes
+     * @param flushInterval    how often written records are forced to disk
+     * @param snapshotInterval how often a snapshot is taken
+     * @param strategies       the converter of the strategies of coupons
+     * @return the journal, which must be closed when the store is no longer used
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static BasketJournal open(StripedBasketStore<?> store, Path directory, int segmentSize,
+                                     Duration flushInterval, Duration snapshotInterval, StrategyConverter strategies)
+            throws IOException {
+        Files.createDirectories(directory);
+        BasketJournal journal = new BasketJournal(store, directory, segmentSize, strategies);
+        long lastSegment = journal.recover();
+        journal.current = journal.map(lastSegment + 1, segmentSize);
+        journal.executor.execute(journal::prepareSpare);
+        store.setListener(journal);
+        journal.executor.scheduleWithFixedDelay(() -> {
+            try {
+                journal.flush();
+            } catch (UncheckedIOException e) {
+                // the records stay dirty in the page cache, the next flush tries again
+            }
+        }, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        journal.executor.scheduleWithFixedDelay(() -> {
+            try {
+                journal.snapshot();
+            } catch (IOException | UncheckedIOException e) {
+                // the segments are kept, the next snapshot includes them
+            }
+        }, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return journal;
+    }
+
+    @Override
+    public void stored(String customerId, Basket basket) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(STORED);
+            BasketSerializer.writeString(out, customerId);
+            serializer.write(basket, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    @Override
+    public void removed(String customerId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(REMOVED);
+            BasketSerializer.writeString(out, customerId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Forces the full segments and the records written to the current segment since the previous flush to disk,
+     * and closes the full segments.
+     */
+    public void flush() {
+        synchronized (retiring) {
+            retire();
+            Segment segment = current;
+            if (!closed) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Writes all baskets to a new snapshot and deletes the segments that are no longer needed.
+     * Does nothing if no basket changed since the previous snapshot.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        long firstSegment;
+        synchronized (rolling) {
+            long count = appended.sum();
+            if (closed || count == appendedAtSnapshot) {
+                return;
+            }
+            appendedAtSnapshot = count;
+            roll(current, 0);
+            firstSegment = current.id;
+        }
+
+        Path target = directory.resolve(SNAPSHOT_PREFIX + firstSegment);
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + firstSegment + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16);
+            DataOutputStream out = new DataOutputStream(stream);
+            ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+            DataOutputStream recordOut = new DataOutputStream(record);
+            CRC32 crc = new CRC32();
+            store.forEach((customerId, basket) -> {
+                try {
+                    record.reset();
+                    recordOut.writeByte(STORED);
+                    BasketSerializer.writeString(recordOut, customerId);
+                    serializer.write(basket, recordOut);
+                    byte[] data = record.toByteArray();
+                    crc.reset();
+                    crc.update(data);
+                    out.writeInt(data.length);
+                    out.writeInt((int) crc.getValue());
+                    out.write(data);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeInt(0);
+            out.flush();
+            file.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (retiring) {
+            retire();
+        }
+        for (Path path : list(SEGMENT_PREFIX)) {
+            if (idOf(path, SEGMENT_PREFIX) < firstSegment) {
+                Files.deleteIfExists(path);
+            }
+        }
+        for (Path path : list(SNAPSHOT_PREFIX)) {
+            if (idOf(path, SNAPSHOT_PREFIX) < firstSegment) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Stops logging, forces the last records to disk and closes the current segment.
+     *
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        store.setListener(null);
+        synchronized (rolling) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (retiring) {
+            Segment last = current;
+            last.seal();
+            retiring.add(last);
+            retire();
+        }
+        synchronized (rolling) {
+            if (spare != null) {
+                spare.close();
+                Files.deleteIfExists(directory.resolve(SEGMENT_PREFIX + spare.id));
+                spare = null;
+            }
+        }
+    }
+
+    private void append(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        int required = HEADER + data.length;
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("Basket journal is closed");
+            }
+            Segment segment = current;
+            int start = segment.reserve(required);
+            if (start >= 0) {
+                segment.write(start, data, (int) crc.getValue());
+                appended.increment();
+                return;
+            }
+            roll(segment, required);
+        }
+    }
+
+    /**
+     * Continues in the next segment if the given segment is still the current one, and hands the given segment
+     * to the flusher, which forces it to disk once the appends into it have finished.
+     *
+     * @param full     the segment that has no room left
+     * @param required the room the next segment must at least have
+     */
+    private void roll(Segment full, int required) {
+        synchronized (rolling) {
+            if (current != full) {
+                // another append moved on already
+                return;
+            }
+            if (closed) {
+                throw new IllegalStateException("Basket journal is closed");
+            }
+            Segment next = spare;
+            spare = null;
+            if (next == null) {
+                next = map(full.id + 1, Math.max(segmentSize, required));
+            } else if (next.size < required) {
+                next.close();
+                next = map(next.id, required);
+            }
+            current = next;
+            full.seal();
+            synchronized (retiring) {
+                retiring.add(full);
+            }
+        }
+        try {
+            executor.execute(this::prepareSpare);
+        } catch (RejectedExecutionException e) {
+            // closing, no more segments are needed
+        }
+    }
+
+    /**
+     * Maps the segment after the current one ahead of time, so that appends do not have to when they roll.
+     */
+    private void prepareSpare() {
+        long id;
+        synchronized (rolling) {
+            if (closed || spare != null) {
+                return;
+            }
+            id = current.id + 1;
+        }
+        Segment prepared;
+        try {
+            prepared = map(id, segmentSize);
+        } catch (UncheckedIOException e) {
+            // the next roll maps the segment itself
+            return;
+        }
+        synchronized (rolling) {
+            if (!closed && spare == null && current.id + 1 == id) {
+                spare = prepared;
+                return;
+            }
+            prepared.close();
+            if (current.id != id && (spare == null || spare.id != id)) {
+                try {
+                    Files.deleteIfExists(directory.resolve(SEGMENT_PREFIX + id));
+                } catch (IOException e) {
+                    // an empty segment, which replay skips
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces the full segments to disk and closes them, after the appends into them have finished.
+     * Must hold the lock of {@link #retiring}.
+     */
+    private void retire() {
+        Segment segment;
+        while ((segment = retiring.peek()) != null) {
+            segment.awaitWriters();
+            segment.force();
+            segment.close();
+            retiring.poll();
+        }
+    }
+
+    private Segment map(long id, int size) {
+        try {
+            Path path = directory.resolve(SEGMENT_PREFIX + id);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot and replays the segments written after it into the store.
+     *
+     * @return the id of the last existing segment, or the id of the snapshot if there are no segments after it
+     */
+    private long recover() throws IOException {
+        Map<ByteBuffer, Pizza> pizzas = new HashMap<>();
+        long snapshotId = 0;
+        List<Path> snapshots = list(SNAPSHOT_PREFIX);
+        if (!snapshots.isEmpty()) {
+            Path newest = snapshots.get(snapshots.size() - 1);
+            snapshotId = idOf(newest, SNAPSHOT_PREFIX);
+            replay(newest, pizzas);
+        }
+        long last = snapshotId;
+        for (Path path : list(SEGMENT_PREFIX)) {
+            long id = idOf(path, SEGMENT_PREFIX);
+            if (id >= snapshotId) {
+                replay(path, pizzas);
+            }
+            last = Math.max(last, id);
+        }
+        return last;
+    }
+
+    private void replay(Path path, Map<ByteBuffer, Pizza> pizzas) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (file.size() == 0) {
+                return;
+            }
+            ByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= HEADER) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    return;
+                }
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                buffer.position(buffer.position() + length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    // torn write, the length is written first so the records after it are still found
+                    continue;
+                }
+
+                byte type = record.get();
+                String customerId = BasketSerializer.readString(record);
+                if (type == STORED) {
+                    store.put(customerId, serializer.read(customerId, record, pizzas));
+                } else {
+                    store.remove(customerId);
+                }
+            }
+        }
+    }
+
+    private List<Path> list(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = files
+                    .filter(path -> path.getFileName().toString().matches(prefix + "\\d+"))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            paths.sort((a, b) -> Long.compare(idOf(a, prefix), idOf(b, prefix)));
+            return paths;
+        }
+    }
+
+    private static long idOf(Path path, String prefix) {
+        return Long.parseLong(path.getFileName().toString().substring(prefix.length()));
+    }
+
+    /**
+     * One mapped segment file. Appends reserve their space by moving the reserved position forward with a
+     * compare-and-set, then write their record at the reserved offset with absolute puts.
+     */
+    private static final class Segment {
+        private final long id;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int size;
+
+        /**
+         * End of the space handed out to appends; the size of the segment once it has been sealed.
+         */
+        private final AtomicInteger reserved = new AtomicInteger();
+
+        /**
+         * Number of bytes of the records that have been written completely.
+         */
+        private final AtomicInteger written = new AtomicInteger();
+
+        /**
+         * End of the reserved space when the segment was sealed, -1 while appends can still reserve space.
+         */
+        private volatile int sealedAt = -1;
+
+        /**
+         * Bytes written at the last force, only used by the thread that holds the lock of the retiring segments.
+         */
+        private int forced;
+
+        private Segment(long id, FileChannel channel, MappedByteBuffer buffer, int size) {
+            this.id = id;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        /**
+         * Reserves room for a record.
+         *
+         * @param length the length of the record including its header
+         * @return the offset of the record, or -1 if the segment has no room for it
+         */
+        private int reserve(int length) {
+            while (true) {
+                int start = reserved.get();
+                if (start > size - length) {
+                    return -1;
+                }
+                if (reserved.compareAndSet(start, start + length)) {
+                    return start;
+                }
+            }
+        }
+
+        private void write(int start, byte[] data, int checksum) {
+            try {
+                // the length first, so that replay can skip the record if a crash cuts the rest of it off
+                buffer.putInt(start, data.length);
+                buffer.putInt(start + Integer.BYTES, checksum);
+                ByteBuffer target = buffer.duplicate();
+                target.position(start + HEADER);
+                target.put(data);
+            } finally {
+                written.addAndGet(HEADER + data.length);
+            }
+        }
+
+        /**
+         * Stops handing out space, so that the appends that have not reserved their space yet move on.
+         */
+        private void seal() {
+            sealedAt = reserved.getAndSet(size);
+        }
+
+        private void awaitWriters() {
+            while (written.get() != sealedAt) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private void force() {
+            int end = written.get();
+            if (end != forced) {
+                buffer.force();
+                forced = end;
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the mapping stays valid, the file is only closed
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import commons.BasketInfo;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import commons.strategies.PriceStrategy;
+import commons.strategies.StrategyConverter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Self-contained binary form of a basket, used for everything that outlives the process.
+ * Unlike {@link BasketCodec} it does not refer to dictionary codes, which are only valid within one run, but
+ * writes out the names and prices of pizzas, ingredients and coupons. Consecutive equal pizzas are written once.
+ * Pizzas keep their database id, so they stay equal to the pizzas on the menu and coupons can still refer to them.
+ * Coupons are rebuilt from their code, type, rate, limited flag and stored strategy.
+ *
+ * <p>Layout, all numbers big-endian, strings as an int length (-1 for null) followed by UTF-8:
+ * <pre>
+ * long   pickup time, seconds since the epoch in UTC (Long.MIN_VALUE if there is none)
+ * int    nanoseconds of the pickup time
+ * int    store id
+ * double price
+ * byte   1 if there is a coupon, followed by string code, char type, double rate, boolean limited time
+ * int    number of lines, followed by the lines
+ *   int    quantity
+ *   string name
+ *   int    number of ingredients (-1 if null), followed by string name, double price (NaN if null)
+ * long   version of the basket, absent in baskets written before baskets had versions
+ * string strategy of the coupon as stored in the database, only if there is a coupon, absent in baskets written
+ *        before strategies were kept
+ * long   database id of the pizza of every line (Long.MIN_VALUE if it has none), absent in baskets written before
+ *        ids were kept
+ * </pre>
+ */
+class BasketSerializer {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long NO_ID = Long.MIN_VALUE;
+
+    private final StrategyConverter strategies;
+
+    /**
+     * Creates a serializer that cannot look up the pizzas of custom coupons it reads.
+     */
+    BasketSerializer() {
+        this(new StrategyConverter());
+    }
+
+    /**
+     * Creates a serializer that reads the strategies of coupons with the given converter.
+     *
+     * @param strategies the converter of the strategies of coupons
+     */
+    BasketSerializer(StrategyConverter strategies) {
+        this.strategies = strategies;
+    }
+
+    /**
+     * Writes a basket.
+     *
+     * @param basket the basket to write
+     * @param out    where to write the basket to
+     * @throws IOException if the output cannot be written
+     */
+    void write(Basket basket, DataOutputStream out) throws IOException {
+        BasketInfo info = basket.getBasketInfo();
+        LocalDateTime time = basket.getTime();
+        out.writeLong(time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time == null ? 0 : time.getNano());
+        out.writeInt(info.getStoreId());
+        out.writeDouble(info.getPrice());
+
+        Coupon coupon = info.getCoupon();
+        out.writeBoolean(coupon != null);
+        if (coupon != null) {
+            writeString(out, coupon.getCode());
+            out.writeChar(coupon.getType());
+            out.writeDouble(coupon.getRate());
+            out.writeBoolean(coupon.isLimitedTime());
+        }
+
+        List<Pizza> pizzas = info.getPizzas() == null ? List.of() : info.getPizzas();
+        int lines = 0;
+        for (int i = 0; i < pizzas.size(); i++) {
+            if (i == 0 || !pizzas.get(i).equals(pizzas.get(i - 1))) {
+                lines++;
+            }
+        }
+        out.writeInt(lines);
+        long[] ids = new long[lines];
+        int line = 0;
+        int i = 0;
+        while (i < pizzas.size()) {
+            Pizza pizza = pizzas.get(i);
+            int quantity = 1;
+            while (i + quantity < pizzas.size() && pizza.equals(pizzas.get(i + quantity))) {
+                quantity++;
+            }
+            out.writeInt(quantity);
+            writePizza(out, pizza);
+            ids[line++] = pizza.getId() == null ? NO_ID : pizza.getId();
+            i += quantity;
+        }
+        out.writeLong(basket.getVersion());
+        if (coupon != null) {
+            writeString(out, strategies.convertToDatabaseColumn(coupon.getStrategy()));
+        }
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    /**
+     * Reads a basket.
+     *
+     * @param customerId the id of the owner of the basket
+     * @param buffer     the written basket, starting at its position
+     * @return a new basket with the contents that were written
+     */
+    Basket read(String customerId, ByteBuffer buffer) {
+        return read(customerId, buffer, new HashMap<>());
+    }
+
+    /**
+     * Reads a basket, taking pizzas that were read before from the cache.
+     * Baskets mostly hold the same few pizzas, so reading many baskets with one cache saves decoding them over
+     * and over. The pizzas are shared between the baskets that are read.
+     *
+     * @param customerId the id of the owner of the basket
+     * @param buffer     the written basket, starting at its position
+     * @param pizzas     pizzas read before, by the bytes they were read from followed by their id
+     * @return a new basket with the contents that were written
+     */
+    Basket read(String customerId, ByteBuffer buffer, Map<ByteBuffer, Pizza> pizzas) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        int storeId = buffer.getInt();
+        double price = buffer.getDouble();
+
+        boolean hasCoupon = buffer.get() != 0;
+        String code = null;
+        char type = 0;
+        double rate = 0;
+        boolean limitedTime = false;
+        if (hasCoupon) {
+            code = readString(buffer);
+            type = buffer.getChar();
+            rate = buffer.getDouble();
+            limitedTime = buffer.get() != 0;
+        }
+
+        int lines = buffer.getInt();
+        int[] quantities = new int[lines];
+        ByteBuffer[] written = new ByteBuffer[lines];
+        int count = 0;
+        for (int line = 0; line < lines; line++) {
+            quantities[line] = buffer.getInt();
+            count += quantities[line];
+            int start = buffer.position();
+            skipPizza(buffer);
+            written[line] = buffer.duplicate();
+            written[line].position(start);
+            written[line].limit(buffer.position());
+        }
+
+        long version = buffer.remaining() >= Long.BYTES ? buffer.getLong() : -1;
+        Coupon coupon = null;
+        if (hasCoupon) {
+            PriceStrategy strategy = buffer.remaining() >= Integer.BYTES
+                    ? strategies.convertToEntityAttribute(readString(buffer)) : null;
+            coupon = strategy == null ? new Coupon(code, type, rate, limitedTime)
+                    : new Coupon(code, type, rate, limitedTime, strategy);
+        }
+
+        boolean hasIds = buffer.remaining() >= lines * Long.BYTES;
+        List<Pizza> list = new ArrayList<>(count);
+        for (int line = 0; line < lines; line++) {
+            Pizza pizza = readPizza(written[line], hasIds ? buffer.getLong() : NO_ID, pizzas);
+            for (int q = 0; q < quantities[line]; q++) {
+                list.add(pizza);
+            }
+        }
+
+        BasketInfo info = new BasketInfo(list, price, storeId);
+        info.setCoupon(coupon);
+        Basket basket = new Basket(customerId, info);
+        basket.setTime(seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        if (version >= 0) {
+            basket.setVersion(version);
+        }
+        return basket;
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes.
+     *
+     * @param out   where to write the string to
+     * @param value the string, may be null
+     * @throws IOException if the output cannot be written
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param buffer the buffer, positioned at the string
+     * @return the string, or null
+     */
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writePizza(DataOutputStream out, Pizza pizza) throws IOException {
+        writeString(out, pizza.getName());
+        List<Ingredient> ingredients = pizza.getIngredients();
+        if (ingredients == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(ingredients.size());
+        for (Ingredient ingredient : ingredients) {
+            writeString(out, ingredient.getName());
+            out.writeDouble(ingredient.getPrice() == null ? Double.NaN : ingredient.getPrice());
+        }
+    }
+
+    private Pizza readPizza(ByteBuffer written, long id, Map<ByteBuffer, Pizza> cache) {
+        ByteBuffer key = ByteBuffer.allocate(written.remaining() + Long.BYTES);
+        key.put(written.duplicate()).putLong(id).flip();
+        Pizza pizza = cache.get(key);
+        if (pizza == null) {
+            pizza = readPizza(written, id == NO_ID ? null : id);
+            cache.put(key, pizza);
+        }
+        return pizza;
+    }
+
+    private static void skipPizza(ByteBuffer buffer) {
+        skipString(buffer);
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            skipString(buffer);
+            buffer.position(buffer.position() + Double.BYTES);
+        }
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private Pizza readPizza(ByteBuffer buffer, Long id) {
+        String name = readString(buffer);
+        int count = buffer.getInt();
+        if (count < 0) {
+            Pizza pizza = new Pizza();
+            pizza.setName(name);
+            return pizza;
+        }
+        List<Ingredient> ingredients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String ingredientName = readString(buffer);
+            double price = buffer.getDouble();
+            ingredients.add(new Ingredient(ingredientName, Double.isNaN(price) ? null : price));
+        }
+        return id == null ? new Pizza(name, ingredients) : Pizza.immutableOf(id, name, ingredients);
+    }
+}
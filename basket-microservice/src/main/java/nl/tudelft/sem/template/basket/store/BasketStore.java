@@ -0,0 +1,89 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Storage of the live baskets of all customers.
+ * Baskets handed out by a store are detached snapshots; changes must go through {@link #update}.
+ */
+public interface BasketStore {
+
+    /**
+     * Returns a snapshot of the basket of the customer.
+     *
+     * @param customerId the id of the customer
+     * @return a copy of the basket, or null if the customer has no basket
+     */
+    Basket get(String customerId);
+
+    /**
+     * Creates an empty basket for the customer, unless the customer already has one.
+     *
+     * @param customerId the id of the customer
+     * @return a snapshot of the basket of the customer after the call
+     */
+    Basket create(String customerId);
+
+    /**
+     * Atomically applies a mutation to the basket of the customer.
+     * No other reader or writer of the same basket can run while the mutation is applied, or, for stores that
+     * detect conflicts instead of locking, the mutation is applied again to the latest basket until it goes through.
+     * The mutation must therefore only change the basket, and must not call back into this store.
+     * The basket given to the mutation may be the live basket of the store, so a mutation that returns the basket
+     * returns a copy of it, which stays as it was when the mutation finished.
+     * A mutation that returns null rejects the change and must leave the basket as it was; the store then keeps
+     * nothing and tells no listener.
+     *
+     * @param customerId the id of the customer
+     * @param mutation   the changes to apply to the basket
+     * @param <R>        the type of the result of the mutation
+     * @return the result of the mutation, or null if the customer has no basket
+     */
+    <R> R update(String customerId, Function<Basket, R> mutation);
+
+    /**
+     * Removes the basket of the customer.
+     *
+     * @param customerId the id of the customer
+     * @return the removed basket, or null if the customer had no basket
+     */
+    Basket remove(String customerId);
+
+    /**
+     * Atomically removes the basket of the customer if the condition holds for it.
+     * Like a mutation, the condition must not call back into this store, and stores that detect conflicts instead
+     * of locking may test it again on the latest basket.
+     *
+     * @param customerId the id of the customer
+     * @param condition  whether the basket is to be removed
+     * @return the removed basket, or null if the customer has no basket or the condition does not hold for it
+     */
+    Basket removeIf(String customerId, Predicate<Basket> condition);
+
+    /**
+     * Registers the listener that is given every basket the store evicts because it expired, replacing the previous
+     * one. The listener runs while the store holds the lock of the customer, so it must be quick and must not call
+     * back into the store. Stores that do not expire baskets themselves never call it.
+     *
+     * @param listener receives the id of the customer and the evicted basket, or null to stop listening
+     */
+    default void setEvictionListener(BiConsumer<String, Basket> listener) {
+    }
+
+    /**
+     * Number of live baskets.
+     *
+     * @return the number of baskets in the store
+     */
+    int size();
+
+    /**
+     * Current size of the store and the number of baskets evicted so far.
+     *
+     * @return the statistics of this store
+     */
+    BasketStoreStatistics statistics();
+}
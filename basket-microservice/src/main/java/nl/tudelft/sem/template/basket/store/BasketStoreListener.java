@@ -0,0 +1,26 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+
+/**
+ * Gets told about every change to the baskets of a {@link StripedBasketStore}.
+ * The callbacks run while the store holds the lock of the customer, so for one customer they arrive in the same
+ * order as the changes were made. They must be quick and must not call back into the store.
+ */
+public interface BasketStoreListener {
+
+    /**
+     * A basket was created, changed or replaced.
+     *
+     * @param customerId the id of the customer
+     * @param basket     the basket after the change, only valid during the call
+     */
+    void stored(String customerId, Basket basket);
+
+    /**
+     * A basket was removed, either by the customer or because it expired.
+     *
+     * @param customerId the id of the customer
+     */
+    void removed(String customerId);
+}
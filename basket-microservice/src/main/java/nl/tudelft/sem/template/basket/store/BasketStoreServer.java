@@ -0,0 +1,323 @@
+package nl.tudelft.sem.template.basket.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Small key-value server that lets several basket nodes share their baskets through a {@link RemoteBasketStore}.
+ * It is the reference implementation of the protocol and keeps the baskets in memory.
+ *
+ * <p>Like the stores of a single node, the server evicts a basket that has not been accessed for the idle TTL. Every
+ * read or write of a basket, including the read at the start of every update, counts as an access. The server does
+ * not look into the baskets, so unlike the stores of a single node it does not evict baskets by their pickup time.
+ * Once per tick it walks all keys, which is cheap next to the network round trips for the number of baskets one
+ * server holds.
+ *
+ * <p>Every value carries a version. A write only succeeds if the client names the version it read, so concurrent
+ * writers of the same basket on different nodes never overwrite each other's changes. Versions are unique across
+ * all keys, which means a basket that is removed and created again never reuses an old version.
+ *
+ * <p>Requests and responses are binary, all numbers big-endian, keys as written by {@code writeUTF}:
+ * <pre>
+ * GET    byte 1, string key                              -&gt; long version (0 if absent), int length, bytes
+ * PUT    byte 2, string key, long expected version (0 for absent), int length, bytes
+ *                                                        -&gt; boolean written, long current version
+ * REMOVE byte 3, string key                              -&gt; long version (0 if absent), int length, bytes
+ * SIZE   byte 4                                          -&gt; int number of keys
+ * REMOVE_IF byte 5, string key, long expected version    -&gt; boolean removed
+ * </pre>
+ * Values larger than {@link #MAX_VALUE_BYTES} are refused, and a client that sends nothing for
+ * {@link #READ_TIMEOUT_MILLIS} is dropped; both close the connection.
+ */
+public class BasketStoreServer implements AutoCloseable {
+
+    static final byte GET = 1;
+    static final byte PUT = 2;
+    static final byte REMOVE = 3;
+    static final byte SIZE = 4;
+    static final byte REMOVE_IF = 5;
+
+    /**
+     * The largest value a client may send or receive, far above the size of any basket.
+     */
+    static final int MAX_VALUE_BYTES = 1 << 24;
+
+    /**
+     * How long the server waits for the next bytes of a client before it drops the connection, in milliseconds.
+     * Clients must not reuse a connection that has been idle for this long.
+     */
+    static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    private static final Logger LOG = LoggerFactory.getLogger(BasketStoreServer.class);
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ConcurrentHashMap<String, Value> values = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final long idleTtlMillis;
+    private final LongSupplier clock;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sweeper;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts a server on the loopback interface, which only accepts basket nodes on the same host, with the default
+     * idle TTL of 30 minutes.
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public BasketStoreServer(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, StripedBasketStore.DEFAULT_IDLE_TTL);
+    }
+
+    /**
+     * Starts a server on the given address.
+     *
+     * @param bindAddress the local address to listen on, or null for all addresses of the host
+     * @param port        the port to listen on, 0 for any free port
+     * @param idleTtl     how long a basket may go without being accessed, zero to disable
+     * @throws IOException if the port cannot be opened
+     */
+    public BasketStoreServer(InetAddress bindAddress, int port, Duration idleTtl) throws IOException {
+        this(bindAddress, port, idleTtl, System::currentTimeMillis);
+    }
+
+    /**
+     * Starts a server on the given address that tells the time from the given clock.
+     *
+     * @param bindAddress the local address to listen on, or null for all addresses of the host
+     * @param port        the port to listen on, 0 for any free port
+     * @param idleTtl     how long a basket may go without being accessed, zero to disable
+     * @param clock       source of the current time in milliseconds
+     * @throws IOException if the port cannot be opened
+     */
+    BasketStoreServer(InetAddress bindAddress, int port, Duration idleTtl, LongSupplier clock) throws IOException {
+        this.idleTtlMillis = idleTtl.toMillis();
+        this.clock = clock;
+        this.serverSocket = new ServerSocket(port, 128, bindAddress);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "basket-store-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "basket-store-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::accept);
+        if (idleTtlMillis > 0) {
+            sweeper.scheduleWithFixedDelay(() -> sweep(clock.getAsLong()), StripedBasketStore.TICK_MILLIS,
+                    StripedBasketStore.TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped, so basket nodes on other hosts can share their baskets.
+     * The arguments are the port, 7070 by default, the address to listen on, all addresses by default, and the
+     * idle TTL of the baskets as an ISO-8601 duration, PT30M by default.
+     *
+     * @param args optionally the port, the bind address and the idle TTL
+     * @throws IOException if the port cannot be opened
+     * @throws InterruptedException if the server is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        InetAddress bindAddress = args.length > 1 ? InetAddress.getByName(args[1]) : null;
+        Duration idleTtl = args.length > 2 ? Duration.parse(args[2]) : StripedBasketStore.DEFAULT_IDLE_TTL;
+        try (BasketStoreServer server = new BasketStoreServer(bindAddress, port, idleTtl)) {
+            LOG.info("Basket store server listening on {}:{}", server.serverSocket.getInetAddress().getHostAddress(),
+                    server.getPort());
+            Thread.currentThread().join();
+        }
+    }
+
+    /**
+     * The port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Number of baskets held by the server.
+     *
+     * @return the number of baskets
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Stops accepting clients and drops the connected ones.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        executor.shutdownNow();
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Evicts the baskets that have not been accessed for the idle TTL at the given time.
+     *
+     * @param now the current time in milliseconds
+     */
+    void sweep(long now) {
+        for (String key : values.keySet()) {
+            values.computeIfPresent(key, (k, current) -> now - current.lastAccess >= idleTtlMillis ? null : current);
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                client.setSoTimeout(READ_TIMEOUT_MILLIS);
+                clients.add(client);
+                executor.execute(() -> serve(client));
+            } catch (IOException e) {
+                // closed, or a client that failed to connect
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+            while (true) {
+                byte command;
+                try {
+                    command = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(command, in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away, its connection is dropped
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private void handle(byte command, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (command) {
+            case GET:
+                writeValue(out, touch(values.get(in.readUTF())));
+                break;
+            case PUT:
+                put(in.readUTF(), in.readLong(), readBytes(in), out);
+                break;
+            case REMOVE:
+                writeValue(out, values.remove(in.readUTF()));
+                break;
+            case SIZE:
+                out.writeInt(values.size());
+                break;
+            case REMOVE_IF:
+                removeIf(in.readUTF(), in.readLong(), out);
+                break;
+            default:
+                throw new IOException("Unknown command " + command);
+        }
+    }
+
+    private void put(String key, long expected, byte[] data, DataOutputStream out) throws IOException {
+        boolean[] written = new boolean[1];
+        Value result = values.compute(key, (k, current) -> {
+            long version = current == null ? 0 : current.version;
+            if (version != expected) {
+                return current;
+            }
+            written[0] = true;
+            return new Value(versions.incrementAndGet(), data, clock.getAsLong());
+        });
+        out.writeBoolean(written[0]);
+        out.writeLong(result == null ? 0 : result.version);
+    }
+
+    private void removeIf(String key, long expected, DataOutputStream out) throws IOException {
+        boolean[] removed = new boolean[1];
+        values.computeIfPresent(key, (k, current) -> {
+            if (current.version != expected) {
+                return current;
+            }
+            removed[0] = true;
+            return null;
+        });
+        out.writeBoolean(removed[0]);
+    }
+
+    private Value touch(Value value) {
+        if (value != null) {
+            value.lastAccess = clock.getAsLong();
+        }
+        return value;
+    }
+
+    /**
+     * Reads a value as its length followed by its bytes, refusing a length that no value can have.
+     *
+     * @param in the stream, positioned at the length
+     * @return the bytes of the value
+     * @throws IOException if the stream fails or the length is out of bounds
+     */
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_VALUE_BYTES) {
+            throw new IOException("Value of " + length + " bytes is out of bounds");
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    private static void writeValue(DataOutputStream out, Value value) throws IOException {
+        byte[] data = value == null ? EMPTY : value.data;
+        out.writeLong(value == null ? 0 : value.version);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static class Value {
+        final long version;
+        final byte[] data;
+        volatile long lastAccess;
+
+        Value(long version, byte[] data, long lastAccess) {
+            this.version = version;
+            this.data = data;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
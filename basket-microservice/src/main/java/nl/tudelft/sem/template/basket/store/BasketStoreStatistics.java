@@ -0,0 +1,18 @@
+package nl.tudelft.sem.template.basket.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Point-in-time counters of a basket store.
+ */
+@AllArgsConstructor
+@Data
+public class BasketStoreStatistics {
+
+    private int size;
+    private long idleEvictions;
+    private long absoluteEvictions;
+
+    public BasketStoreStatistics() {}
+}
@@ -0,0 +1,83 @@
+package nl.tudelft.sem.template.basket.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small dense codes to values, so that encoded baskets can refer to them with a single int.
+ * Codes are never reused; the number of codes is bounded to keep values created by customers from growing
+ * the dictionary without limit. Lookups of known keys do not lock.
+ *
+ * @param <K> the type of the keys that identify a value
+ * @param <V> the type of the values
+ */
+class Dictionary<K, V> {
+
+    private final ConcurrentHashMap<K, Integer> codes = new ConcurrentHashMap<>();
+    private final int capacity;
+    private volatile Object[] values = new Object[16];
+    private int next;
+
+    /**
+     * Creates an empty dictionary.
+     *
+     * @param capacity the maximum number of codes that are handed out
+     */
+    Dictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the code of the key, assigning a new one if the key was not seen before.
+     * The value passed with the first occurrence of a key is the one that is returned by {@link #decode}.
+     *
+     * @param key   the key of the value
+     * @param value the value of the key
+     * @return the code of the key, or -1 if the dictionary is full
+     */
+    int encode(K key, V value) {
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+            if (next == capacity) {
+                return -1;
+            }
+            code = next++;
+            Object[] current = values;
+            if (code == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[code] = value;
+            // publish the value before the code becomes visible to other threads
+            values = current;
+            codes.put(key, code);
+            return code;
+        }
+    }
+
+    /**
+     * Returns the value stored for a code.
+     *
+     * @param code a code returned by {@link #encode}
+     * @return the value of the code
+     */
+    @SuppressWarnings("unchecked")
+    V decode(int code) {
+        return (V) values[code];
+    }
+
+    /**
+     * Number of codes handed out so far.
+     *
+     * @return the number of distinct keys
+     */
+    synchronized int size() {
+        return next;
+    }
+}
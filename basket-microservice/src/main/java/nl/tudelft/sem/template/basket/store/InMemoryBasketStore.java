@@ -0,0 +1,91 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the live baskets as regular objects on the heap.
+ * Baskets are changed in place, only the snapshots handed out to callers are copied.
+ */
+public class InMemoryBasketStore extends StripedBasketStore<InMemoryBasketStore.HeapEntry> {
+
+    /**
+     * Creates a store with four stripes per available processor and the default TTLs.
+     */
+    public InMemoryBasketStore() {
+        this(DEFAULT_IDLE_TTL, DEFAULT_ABSOLUTE_TTL);
+    }
+
+    /**
+     * Creates a store with four stripes per available processor.
+     * A TTL of zero disables that kind of expiry.
+     *
+     * @param idleTtl     how long a basket may go without being accessed
+     * @param absoluteTtl how long a basket may outlive its pickup time
+     */
+    public InMemoryBasketStore(Duration idleTtl, Duration absoluteTtl) {
+        this(4 * Runtime.getRuntime().availableProcessors(), idleTtl, absoluteTtl, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a store with the given number of lock stripes and the default TTLs.
+     *
+     * @param stripeCount the minimum number of lock stripes
+     */
+    public InMemoryBasketStore(int stripeCount) {
+        this(stripeCount, DEFAULT_IDLE_TTL, DEFAULT_ABSOLUTE_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a store with the given number of lock stripes, rounded up to a power of two.
+     *
+     * @param stripeCount the minimum number of lock stripes
+     * @param idleTtl     how long a basket may go without being accessed, zero to disable
+     * @param absoluteTtl how long a basket may outlive its pickup time, zero to disable
+     * @param clock       source of the current time in milliseconds
+     */
+    public InMemoryBasketStore(int stripeCount, Duration idleTtl, Duration absoluteTtl, LongSupplier clock) {
+        super(stripeCount, idleTtl, absoluteTtl, clock);
+    }
+
+    @Override
+    protected HeapEntry store(String customerId, Basket basket) {
+        return new HeapEntry(customerId, basket);
+    }
+
+    @Override
+    protected Basket open(HeapEntry entry) {
+        return entry.basket;
+    }
+
+    @Override
+    protected void commit(HeapEntry entry, Basket basket) {
+        // changed in place
+    }
+
+    @Override
+    protected Basket snapshot(HeapEntry entry) {
+        return new Basket(entry.basket);
+    }
+
+    @Override
+    protected void release(HeapEntry entry) {
+        // left to the garbage collector
+    }
+
+    @Override
+    protected LocalDateTime pickupTime(HeapEntry entry) {
+        return entry.basket.getTime();
+    }
+
+    static final class HeapEntry extends StripedBasketStore.Entry {
+        private final Basket basket;
+
+        private HeapEntry(String customerId, Basket basket) {
+            super(customerId);
+            this.basket = basket;
+        }
+    }
+}
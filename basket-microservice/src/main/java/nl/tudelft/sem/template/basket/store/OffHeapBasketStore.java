@@ -0,0 +1,177 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import commons.strategies.StrategyConverter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the live baskets encoded in direct buffers outside of the Java heap.
+ * A basket takes a few dozen bytes instead of a graph of pizza and ingredient objects, which keeps the heap small
+ * and garbage collection short when there are millions of open baskets. Every lock stripe owns its own arena, so
+ * the arenas are only ever touched while holding their stripe. {@link Basket} objects are only built when a
+ * basket is read or changed.
+ * A customer usually changes the same basket several times in a row, so every stripe keeps the decoded basket it
+ * changed last next to its bytes. The next change of that basket starts from it instead of decoding the basket and
+ * building its price totals again, so the totals stay incremental; the bytes are still written on every change. That
+ * keeps at most one decoded basket per stripe on the heap.
+ */
+public class OffHeapBasketStore extends StripedBasketStore<OffHeapBasketStore.OffHeapEntry> {
+
+    private static final int INITIAL_ARENA_CAPACITY = 64 * 1024;
+
+    private final BasketCodec codec;
+    private final BasketArena[] arenas;
+    // per stripe, the entry that holds its basket decoded, guarded by the stripe
+    private final OffHeapEntry[] decoded;
+
+    /**
+     * Creates a store with four stripes per available processor.
+     * A TTL of zero disables that kind of expiry.
+     *
+     * @param idleTtl     how long a basket may go without being accessed
+     * @param absoluteTtl how long a basket may outlive its pickup time
+     */
+    public OffHeapBasketStore(Duration idleTtl, Duration absoluteTtl) {
+        this(idleTtl, absoluteTtl, new StrategyConverter());
+    }
+
+    /**
+     * Creates a store with four stripes per available processor, that reads the strategies of coupons with the given
+     * converter. A TTL of zero disables that kind of expiry.
+     *
+     * @param idleTtl     how long a basket may go without being accessed
+     * @param absoluteTtl how long a basket may outlive its pickup time
+     * @param strategies  the converter of the strategies of coupons
+     */
+    public OffHeapBasketStore(Duration idleTtl, Duration absoluteTtl, StrategyConverter strategies) {
+        this(4 * Runtime.getRuntime().availableProcessors(), idleTtl, absoluteTtl, System::currentTimeMillis,
+                strategies);
+    }
+
+    /**
+     * Creates a store with the given number of lock stripes and the default TTLs.
+     *
+     * @param stripeCount the minimum number of lock stripes
+     */
+    public OffHeapBasketStore(int stripeCount) {
+        this(stripeCount, DEFAULT_IDLE_TTL, DEFAULT_ABSOLUTE_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a store with the given number of lock stripes, rounded up to a power of two.
+     *
+     * @param stripeCount the minimum number of lock stripes
+     * @param idleTtl     how long a basket may go without being accessed, zero to disable
+     * @param absoluteTtl how long a basket may outlive its pickup time, zero to disable
+     * @param clock       source of the current time in milliseconds
+     */
+    public OffHeapBasketStore(int stripeCount, Duration idleTtl, Duration absoluteTtl, LongSupplier clock) {
+        this(stripeCount, idleTtl, absoluteTtl, clock, new StrategyConverter());
+    }
+
+    /**
+     * Creates a store with the given number of lock stripes, rounded up to a power of two, that reads the strategies
+     * of coupons with the given converter.
+     *
+     * @param stripeCount the minimum number of lock stripes
+     * @param idleTtl     how long a basket may go without being accessed, zero to disable
+     * @param absoluteTtl how long a basket may outlive its pickup time, zero to disable
+     * @param clock       source of the current time in milliseconds
+     * @param strategies  the converter of the strategies of coupons
+     */
+    public OffHeapBasketStore(int stripeCount, Duration idleTtl, Duration absoluteTtl, LongSupplier clock,
+                              StrategyConverter strategies) {
+        super(stripeCount, idleTtl, absoluteTtl, clock);
+        this.codec = new BasketCodec(strategies);
+        this.arenas = new BasketArena[stripeCount()];
+        this.decoded = new OffHeapEntry[stripeCount()];
+        for (int i = 0; i < arenas.length; i++) {
+            arenas[i] = new BasketArena(INITIAL_ARENA_CAPACITY);
+        }
+    }
+
+    /**
+     * Number of bytes reserved outside of the heap by all arenas together.
+     *
+     * @return the reserved off-heap memory in bytes
+     */
+    public long reservedBytes() {
+        long total = 0;
+        for (BasketArena arena : arenas) {
+            total += arena.capacity();
+        }
+        return total;
+    }
+
+    @Override
+    protected OffHeapEntry store(String customerId, Basket basket) {
+        BasketArena arena = arenas[stripeIndex(customerId)];
+        byte[] data = codec.encode(basket);
+        return new OffHeapEntry(customerId, arena, arena.allocate(data), data.length);
+    }
+
+    @Override
+    protected Basket open(OffHeapEntry entry) {
+        Basket basket = entry.basket;
+        if (basket == null) {
+            return decode(entry);
+        }
+        // taken out until it is committed, so a change that fails halfway is never seen again
+        entry.basket = null;
+        return basket;
+    }
+
+    @Override
+    protected void commit(OffHeapEntry entry, Basket basket) {
+        byte[] data = codec.encode(basket);
+        entry.offset = entry.arena.reallocate(entry.offset, entry.length, data);
+        entry.length = data.length;
+        int stripe = stripeIndex(entry.getCustomerId());
+        OffHeapEntry previous = decoded[stripe];
+        if (previous != null && previous != entry) {
+            previous.basket = null;
+        }
+        decoded[stripe] = entry;
+        entry.basket = basket;
+    }
+
+    @Override
+    protected Basket snapshot(OffHeapEntry entry) {
+        return entry.basket == null ? decode(entry) : new Basket(entry.basket);
+    }
+
+    @Override
+    protected void release(OffHeapEntry entry) {
+        int stripe = stripeIndex(entry.getCustomerId());
+        if (decoded[stripe] == entry) {
+            decoded[stripe] = null;
+        }
+        entry.basket = null;
+        entry.arena.free(entry.offset, entry.length);
+    }
+
+    private Basket decode(OffHeapEntry entry) {
+        return codec.decode(entry.getCustomerId(), entry.arena.read(entry.offset, entry.length));
+    }
+
+    @Override
+    protected LocalDateTime pickupTime(OffHeapEntry entry) {
+        return codec.readTime(entry.arena.read(entry.offset, entry.length));
+    }
+
+    static final class OffHeapEntry extends StripedBasketStore.Entry {
+        private final BasketArena arena;
+        private int offset;
+        private int length;
+        private Basket basket;
+
+        private OffHeapEntry(String customerId, BasketArena arena, int offset, int length) {
+            super(customerId);
+            this.arena = arena;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import commons.strategies.StrategyConverter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Basket store that keeps the baskets on a {@link BasketStoreServer}, so that every basket node connected to the
+ * same server serves the same baskets.
+ *
+ * <p>Changes are optimistic: {@link #update} reads the basket with its version, applies the mutation to the copy
+ * and writes it back only if the version is still the same. If another node changed the basket in the meantime,
+ * the basket is read again and the mutation is applied to the new state, so no change is ever lost.
+ * Connections to the server are kept in a pool and reused between calls, unless they have been idle for so long that
+ * the server may have dropped them. A call that gets no answer within the timeout fails and closes its connection.
+ */
+public class RemoteBasketStore implements BasketStore, AutoCloseable {
+
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * How long a connection may be idle before it is closed instead of reused, well within the read timeout of the
+     * server.
+     */
+    private static final long MAX_IDLE_MILLIS = BasketStoreServer.READ_TIMEOUT_MILLIS / 2;
+
+    private final InetSocketAddress address;
+    private final BlockingQueue<Connection> idle;
+    private final int timeoutMillis;
+    private final BasketSerializer serializer;
+
+    /**
+     * Creates a store that talks to the server at the given address, with a timeout of five seconds.
+     *
+     * @param address  the address of the server
+     * @param poolSize the number of idle connections that are kept open
+     */
+    public RemoteBasketStore(InetSocketAddress address, int poolSize) {
+        this(address, poolSize, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates a store that talks to the server at the given address.
+     *
+     * @param address  the address of the server
+     * @param poolSize the number of idle connections that are kept open
+     * @param timeout  how long to wait for a connection or an answer of the server
+     */
+    public RemoteBasketStore(InetSocketAddress address, int poolSize, Duration timeout) {
+        this(address, poolSize, timeout, new StrategyConverter());
+    }
+
+    /**
+     * Creates a store that talks to the server at the given address, and reads the strategies of coupons with the
+     * given converter.
+     *
+     * @param address    the address of the server
+     * @param poolSize   the number of idle connections that are kept open
+     * @param timeout    how long to wait for a connection or an answer of the server
+     * @param strategies the converter of the strategies of coupons
+     */
+    public RemoteBasketStore(InetSocketAddress address, int poolSize, Duration timeout, StrategyConverter strategies) {
+        this.address = address;
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        this.timeoutMillis = (int) timeout.toMillis();
+        this.serializer = new BasketSerializer(strategies);
+    }
+
+    @Override
+    public Basket get(String customerId) {
+        Versioned current = call(connection -> connection.get(customerId));
+        return current.version == 0 ? null : decode(customerId, current.data);
+    }
+
+    @Override
+    public Basket create(String customerId) {
+        byte[] data = encode(new Basket(customerId));
+        while (true) {
+            Versioned current = call(connection -> connection.get(customerId));
+            if (current.version != 0) {
+                return decode(customerId, current.data);
+            }
+            if (call(connection -> connection.put(customerId, 0, data))) {
+                return decode(customerId, data);
+            }
+        }
+    }
+
+    @Override
+    public <R> R update(String customerId, Function<Basket, R> mutation) {
+        while (true) {
+            Versioned current = call(connection -> connection.get(customerId));
+            if (current.version == 0) {
+                return null;
+            }
+            Basket basket = decode(customerId, current.data);
+            R result = mutation.apply(basket);
+            if (result == null) {
+                return null;
+            }
+            byte[] data = encode(basket);
+            if (call(connection -> connection.put(customerId, current.version, data))) {
+                return result;
+            }
+        }
+    }
+
+    @Override
+    public Basket remove(String customerId) {
+        Versioned removed = call(connection -> connection.remove(customerId));
+        return removed.version == 0 ? null : decode(customerId, removed.data);
+    }
+
+    @Override
+    public Basket removeIf(String customerId, Predicate<Basket> condition) {
+        while (true) {
+            Versioned current = call(connection -> connection.get(customerId));
+            if (current.version == 0) {
+                return null;
+            }
+            Basket basket = decode(customerId, current.data);
+            if (!condition.test(basket)) {
+                return null;
+            }
+            if (call(connection -> connection.removeIf(customerId, current.version))) {
+                return basket;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return call(Connection::size);
+    }
+
+    /**
+     * Current size of the store. The server evicts idle baskets itself, so evictions are not counted here.
+     *
+     * @return the statistics of this store
+     */
+    @Override
+    public BasketStoreStatistics statistics() {
+        return new BasketStoreStatistics(size(), 0, 0);
+    }
+
+    /**
+     * Closes the idle connections.
+     */
+    @Override
+    public void close() {
+        for (Connection connection = idle.poll(); connection != null; connection = idle.poll()) {
+            connection.close();
+        }
+    }
+
+    private <T> T call(IoFunction<Connection, T> request) {
+        Connection connection = idle.poll();
+        while (connection != null && System.currentTimeMillis() - connection.lastUsed > MAX_IDLE_MILLIS) {
+            connection.close();
+            connection = idle.poll();
+        }
+        try {
+            if (connection == null) {
+                connection = new Connection(address, timeoutMillis);
+            }
+            T result = request.apply(connection);
+            connection.lastUsed = System.currentTimeMillis();
+            if (!idle.offer(connection)) {
+                connection.close();
+            }
+            return result;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new UncheckedIOException("Basket store at " + address + " failed", e);
+        }
+    }
+
+    private byte[] encode(Basket basket) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            serializer.write(basket, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Basket decode(String customerId, byte[] data) {
+        return serializer.read(customerId, ByteBuffer.wrap(data));
+    }
+
+    private interface IoFunction<T, R> {
+        R apply(T value) throws IOException;
+    }
+
+    private static class Versioned {
+        final long version;
+        final byte[] data;
+
+        Versioned(long version, byte[] data) {
+            this.version = version;
+            this.data = data;
+        }
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private long lastUsed;
+
+        Connection(InetSocketAddress address, int timeoutMillis) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(address, timeoutMillis);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        Versioned get(String key) throws IOException {
+            out.writeByte(BasketStoreServer.GET);
+            out.writeUTF(key);
+            out.flush();
+            return readValue();
+        }
+
+        boolean put(String key, long expectedVersion, byte[] data) throws IOException {
+            out.writeByte(BasketStoreServer.PUT);
+            out.writeUTF(key);
+            out.writeLong(expectedVersion);
+            out.writeInt(data.length);
+            out.write(data);
+            out.flush();
+            boolean written = in.readBoolean();
+            in.readLong();
+            return written;
+        }
+
+        Versioned remove(String key) throws IOException {
+            out.writeByte(BasketStoreServer.REMOVE);
+            out.writeUTF(key);
+            out.flush();
+            return readValue();
+        }
+
+        boolean removeIf(String key, long expectedVersion) throws IOException {
+            out.writeByte(BasketStoreServer.REMOVE_IF);
+            out.writeUTF(key);
+            out.writeLong(expectedVersion);
+            out.flush();
+            return in.readBoolean();
+        }
+
+        int size() throws IOException {
+            out.writeByte(BasketStoreServer.SIZE);
+            out.flush();
+            return in.readInt();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to clean up
+            }
+        }
+
+        private Versioned readValue() throws IOException {
+            long version = in.readLong();
+            return new Versioned(version, BasketStoreServer.readBytes(in));
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package nl.tudelft.sem.template.basket.store;
+
+import commons.Basket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Base of the basket stores, takes care of locking and expiry while subclasses decide how a basket is kept.
+ * Every customer id is mapped onto one of a fixed number of lock stripes, and all reads and writes of a basket
+ * happen while holding the stripe of its owner. Customers on different stripes never contend with each other,
+ * so throughput grows with the number of cores instead of being capped by one global lock.
+ *
+ * <p>Abandoned baskets are evicted by a sweeper. A basket expires once it has not been accessed for the idle TTL,
+ * or once its pickup time lies more than the absolute TTL in the past, whichever comes first.
+ * Baskets are kept in a {@link TimingWheel} by their expected deadline; accessing a basket only records the
+ * access time, and a basket that fires early because it was used in the meantime is put back at its new deadline.
+ *
+ * @param <E> the type of the entries in which subclasses keep a basket
+ */
+public abstract class StripedBasketStore<E extends StripedBasketStore.Entry> implements BasketStore {
+
+    /**
+     * Length of one tick of the expiry wheel and interval of the sweeper, in milliseconds.
+     */
+    public static final long TICK_MILLIS = 1000;
+
+    static final Duration DEFAULT_IDLE_TTL = Duration.ofMinutes(30);
+    static final Duration DEFAULT_ABSOLUTE_TTL = Duration.ofHours(2);
+
+    private final ConcurrentHashMap<String, E> baskets = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final long idleTtlMillis;
+    private final long absoluteTtlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentLinkedQueue<E> registrations = new ConcurrentLinkedQueue<>();
+    private final TimingWheel<E> wheel;
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong absoluteEvictions = new AtomicLong();
+    private volatile BasketStoreListener listener;
+    private volatile BiConsumer<String, Basket> evictionListener;
+
+    /**
+     * Creates a store with the given number of lock stripes, rounded up to a power of two.
+     *
+     * @param stripeCount the minimum number of lock stripes
+     * @param idleTtl     how long a basket may go without being accessed, zero to disable
+     * @param absoluteTtl how long a basket may outlive its pickup time, zero to disable
+     * @param clock       source of the current time in milliseconds
+     */
+    protected StripedBasketStore(int stripeCount, Duration idleTtl, Duration absoluteTtl, LongSupplier clock) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.idleTtlMillis = idleTtl.toMillis();
+        this.absoluteTtlMillis = absoluteTtl.toMillis();
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, clock.getAsLong());
+    }
+
+    /**
+     * Keeps a new basket. Called while holding the stripe of the customer.
+     *
+     * @param customerId the id of the customer
+     * @param basket     the basket to keep
+     * @return the entry holding the basket
+     */
+    protected abstract E store(String customerId, Basket basket);
+
+    /**
+     * Returns the basket held by an entry so that it can be changed. Called while holding the stripe of the customer.
+     *
+     * @param entry the entry holding the basket
+     * @return a basket whose changes are kept by passing it to {@link #commit}
+     */
+    protected abstract Basket open(E entry);
+
+    /**
+     * Keeps the changes made to a basket returned by {@link #open}. Called while holding the stripe of the customer.
+     *
+     * @param entry  the entry holding the basket
+     * @param basket the changed basket
+     */
+    protected abstract void commit(E entry, Basket basket);
+
+    /**
+     * Returns a detached copy of the basket held by an entry. Called while holding the stripe of the customer.
+     *
+     * @param entry the entry holding the basket
+     * @return a copy of the basket
+     */
+    protected abstract Basket snapshot(E entry);
+
+    /**
+     * Releases the resources of an entry that has been removed. Called while holding the stripe of the customer.
+     *
+     * @param entry the removed entry
+     */
+    protected abstract void release(E entry);
+
+    /**
+     * Pickup time of the basket held by an entry. Called while holding the stripe of the customer.
+     *
+     * @param entry the entry holding the basket
+     * @return the pickup time, or null if there is none
+     */
+    protected abstract LocalDateTime pickupTime(E entry);
+
+    @Override
+    public Basket get(String customerId) {
+        return get(customerId, true);
+    }
+
+    private Basket get(String customerId, boolean touch) {
+        ReentrantLock lock = stripeOf(customerId);
+        lock.lock();
+        try {
+            E entry = baskets.get(customerId);
+            if (entry == null) {
+                return null;
+            }
+            if (touch) {
+                entry.lastAccess = clock.getAsLong();
+            }
+            return snapshot(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Basket create(String customerId) {
+        ReentrantLock lock = stripeOf(customerId);
+        lock.lock();
+        try {
+            E entry = baskets.get(customerId);
+            if (entry == null) {
+                Basket basket = new Basket(customerId);
+                entry = store(customerId, basket);
+                entry.lastAccess = clock.getAsLong();
+                baskets.put(customerId, entry);
+                if (expires()) {
+                    registrations.add(entry);
+                }
+                notifyStored(customerId, basket);
+            } else {
+                entry.lastAccess = clock.getAsLong();
+            }
+            return snapshot(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <R> R update(String customerId, Function<Basket, R> mutation) {
+        ReentrantLock lock = stripeOf(customerId);
+        lock.lock();
+        try {
+            E entry = baskets.get(customerId);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastAccess = clock.getAsLong();
+            Basket basket = open(entry);
+            R result = mutation.apply(basket);
+            if (result != null) {
+                commit(entry, basket);
+                notifyStored(customerId, basket);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Basket remove(String customerId) {
+        ReentrantLock lock = stripeOf(customerId);
+        lock.lock();
+        try {
+            E entry = baskets.remove(customerId);
+            if (entry == null) {
+                return null;
+            }
+            Basket basket = open(entry);
+            release(entry);
+            notifyRemoved(customerId);
+            return basket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Basket removeIf(String customerId, Predicate<Basket> condition) {
+        ReentrantLock lock = stripeOf(customerId);
+        lock.lock();
+        try {
+            E entry = baskets.get(customerId);
+            if (entry == null) {
+                return null;
+            }
+            Basket basket = open(entry);
+            if (!condition.test(basket)) {
+                return null;
+            }
+            baskets.remove(customerId);
+            release(entry);
+            notifyRemoved(customerId);
+            return basket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the basket of the customer, or adds it if the customer has none.
+     * Used to restore baskets, so the basket counts as just accessed.
+     * The store takes over the basket; the caller must not change it afterwards.
+     *
+     * @param customerId the id of the customer
+     * @param basket     the new basket of the customer
+     */
+    public void put(String customerId, Basket basket) {
+        ReentrantLock lock = stripeOf(customerId);
+        lock.lock();
+        try {
+            E entry = store(customerId, basket);
+            entry.lastAccess = clock.getAsLong();
+            E old = baskets.put(customerId, entry);
+            if (old != null) {
+                release(old);
+            }
+            if (expires()) {
+                registrations.add(entry);
+            }
+            notifyStored(customerId, basket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands a snapshot of every basket to the consumer.
+     * Each basket is copied while holding its lock, but baskets may change while the iteration is running.
+     *
+     * @param consumer receives the id of the customer and a copy of the basket
+     */
+    public void forEach(BiConsumer<String, Basket> consumer) {
+        for (String customerId : baskets.keySet()) {
+            Basket basket = get(customerId, false);
+            if (basket != null) {
+                consumer.accept(customerId, basket);
+            }
+        }
+    }
+
+    /**
+     * Registers the listener that is told about every change, replacing the previous one.
+     *
+     * @param listener the listener, or null to stop listening
+     */
+    public void setListener(BasketStoreListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setEvictionListener(BiConsumer<String, Basket> listener) {
+        this.evictionListener = listener;
+    }
+
+    @Override
+    public int size() {
+        return baskets.size();
+    }
+
+    @Override
+    public BasketStoreStatistics statistics() {
+        return new BasketStoreStatistics(baskets.size(), idleEvictions.get(), absoluteEvictions.get());
+    }
+
+    /**
+     * Evicts the baskets that expired since the previous sweep.
+     * Runs on the scheduler thread once per tick of the expiry wheel.
+     */
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void sweep() {
+        if (expires()) {
+            sweep(clock.getAsLong());
+        }
+    }
+
+    /**
+     * Evicts the baskets that are expired at the given time.
+     * The cost is proportional to the number of baskets that became due, not to the number of live baskets.
+     *
+     * @param now the current time in milliseconds
+     */
+    synchronized void sweep(long now) {
+        for (E entry = registrations.poll(); entry != null; entry = registrations.poll()) {
+            wheel.schedule(entry, deadline(entry));
+        }
+        wheel.advance(now, entry -> {
+            long deadline = expire(entry, now);
+            if (deadline > now) {
+                wheel.schedule(entry, deadline);
+            }
+        });
+    }
+
+    /**
+     * Index of the lock stripe of the customer, between 0 and the number of stripes.
+     *
+     * @param customerId the id of the customer
+     * @return the index of the stripe
+     */
+    protected int stripeIndex(String customerId) {
+        int h = customerId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Number of lock stripes, always a power of two.
+     *
+     * @return the number of stripes
+     */
+    protected int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Removes the entry if it is still the basket of its customer and its deadline has passed.
+     *
+     * @return the new deadline of the entry if it is still alive, or a negative value if it is gone
+     */
+    private long expire(E entry, long now) {
+        ReentrantLock lock = stripeOf(entry.customerId);
+        lock.lock();
+        try {
+            if (baskets.get(entry.customerId) != entry) {
+                return -1;
+            }
+            long idleDeadline = idleTtlMillis > 0 ? entry.lastAccess + idleTtlMillis : Long.MAX_VALUE;
+            long absoluteDeadline = absoluteDeadline(entry);
+            if (idleDeadline > now && absoluteDeadline > now) {
+                return Math.min(idleDeadline, absoluteDeadline);
+            }
+            baskets.remove(entry.customerId);
+            BiConsumer<String, Basket> evicted = evictionListener;
+            Basket basket = evicted == null ? null : open(entry);
+            release(entry);
+            notifyRemoved(entry.customerId);
+            if (evicted != null) {
+                evicted.accept(entry.customerId, basket);
+            }
+            if (absoluteDeadline <= now) {
+                absoluteEvictions.incrementAndGet();
+            } else {
+                idleEvictions.incrementAndGet();
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long deadline(E entry) {
+        ReentrantLock lock = stripeOf(entry.customerId);
+        lock.lock();
+        try {
+            if (baskets.get(entry.customerId) != entry) {
+                return entry.lastAccess;
+            }
+            long idleDeadline = idleTtlMillis > 0 ? entry.lastAccess + idleTtlMillis : Long.MAX_VALUE;
+            return Math.min(idleDeadline, absoluteDeadline(entry));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long absoluteDeadline(E entry) {
+        if (absoluteTtlMillis <= 0) {
+            return Long.MAX_VALUE;
+        }
+        LocalDateTime pickup = pickupTime(entry);
+        if (pickup == null) {
+            return Long.MAX_VALUE;
+        }
+        return pickup.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + absoluteTtlMillis;
+    }
+
+    private void notifyStored(String customerId, Basket basket) {
+        BasketStoreListener current = listener;
+        if (current != null) {
+            current.stored(customerId, basket);
+        }
+    }
+
+    private void notifyRemoved(String customerId) {
+        BasketStoreListener current = listener;
+        if (current != null) {
+            current.removed(customerId);
+        }
+    }
+
+    private boolean expires() {
+        return idleTtlMillis > 0 || absoluteTtlMillis > 0;
+    }
+
+    private ReentrantLock stripeOf(String customerId) {
+        return stripes[stripeIndex(customerId)];
+    }
+
+    /**
+     * Bookkeeping of one live basket, subclasses add the basket itself.
+     */
+    protected static class Entry {
+        final String customerId;
+        volatile long lastAccess;
+
+        protected Entry(String customerId) {
+            this.customerId = customerId;
+        }
+
+        public String getCustomerId() {
+            return customerId;
+        }
+    }
+}
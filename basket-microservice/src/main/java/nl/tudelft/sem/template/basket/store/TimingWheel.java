@@ -0,0 +1,134 @@
+package nl.tudelft.sem.template.basket.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel.
+ * Level 0 has one bucket per tick; every next level has buckets that span a whole rotation of the level below.
+ * Timers are placed in the lowest level whose horizon covers their deadline and move down one level each time
+ * the level below completes a rotation, so advancing the wheel by one tick only touches the buckets that are due.
+ * Deadlines beyond the horizon of the highest level are parked at the horizon and placed again once in range.
+ * The wheel is not thread-safe and is meant to be owned by a single sweeper thread.
+ *
+ * @param <E> the type of the scheduled items
+ */
+public class TimingWheel<E> {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Timer<E>>> buckets = new ArrayList<>();
+    private long currentTick;
+    private int pending;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param tickMillis the length of one tick in milliseconds
+     * @param startMillis the current time in milliseconds
+     */
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (int i = 0; i < LEVELS * SIZE; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedules an item. Deadlines in the past fire on the next tick.
+     *
+     * @param item           the item to schedule
+     * @param deadlineMillis the time at which the item is due, in milliseconds
+     */
+    public void schedule(E item, long deadlineMillis) {
+        place(new Timer<>(item, Math.max(deadlineMillis / tickMillis, currentTick)));
+        pending++;
+    }
+
+    /**
+     * Advances the wheel up to the given time and hands every item that became due to the consumer.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @param expired   receives the items that are due
+     */
+    public void advance(long nowMillis, Consumer<E> expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick <= target) {
+            int index = (int) (currentTick & MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            List<Timer<E>> due = bucket(0, index);
+            currentTick++;
+            if (!due.isEmpty()) {
+                // items rescheduled by the consumer land on the next tick at the earliest
+                buckets.set(index, new ArrayList<>());
+                pending -= due.size();
+                for (Timer<E> timer : due) {
+                    expired.accept(timer.item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of items that are scheduled and have not fired yet.
+     *
+     * @return the number of pending items
+     */
+    public int size() {
+        return pending;
+    }
+
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int index = (int) ((currentTick >>> (BITS * level)) & MASK);
+        List<Timer<E>> timers = bucket(level, index);
+        if (!timers.isEmpty()) {
+            buckets.set(level * SIZE + index, new ArrayList<>());
+            for (Timer<E> timer : timers) {
+                place(timer);
+            }
+        }
+        if (index == 0) {
+            cascade(level + 1);
+        }
+    }
+
+    private void place(Timer<E> timer) {
+        long delta = timer.tick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                int index = (int) ((timer.tick >>> (BITS * level)) & MASK);
+                bucket(level, index).add(timer);
+                return;
+            }
+        }
+        // Beyond the horizon: park it in the last reachable bucket, it is placed again when that bucket cascades.
+        long horizon = currentTick + (1L << (BITS * LEVELS)) - 1;
+        int index = (int) ((horizon >>> (BITS * (LEVELS - 1))) & MASK);
+        bucket(LEVELS - 1, index).add(timer);
+    }
+
+    private List<Timer<E>> bucket(int level, int index) {
+        return buckets.get(level * SIZE + index);
+    }
+
+    private static final class Timer<E> {
+        private final E item;
+        private final long tick;
+
+        private Timer(E item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
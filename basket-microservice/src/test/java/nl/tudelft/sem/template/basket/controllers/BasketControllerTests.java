@@ -4,6 +4,8 @@ import commons.*;
 import commons.authentication.AuthenticationManager;
 import commons.authentication.JwtTokenVerify;
 import nl.tudelft.sem.template.basket.builder.PizzaBuilder;
+import nl.tudelft.sem.template.basket.models.BasketOperationModel;
+import nl.tudelft.sem.template.basket.models.Checkout;
 import nl.tudelft.sem.template.basket.models.PizzaRequestModel;
 import nl.tudelft.sem.template.basket.services.BasketService;
 import nl.tudelft.sem.template.basket.services.CouponService;
@@ -26,12 +28,18 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -67,7 +75,8 @@ public class BasketControllerTests {
         when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
         when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
         when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
-        when(basketService.getBasket("ExampleUser")).thenReturn(new Basket("ExampleUser"));
+        when(basketService.checkout(eq("ExampleUser"), any()))
+                .thenReturn(new Checkout(Checkout.Status.CHECKED_OUT, new Basket("ExampleUser"), null));
 
         ResultActions resultActions = mockMvc.perform(get("/api/basket/get")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -76,6 +85,86 @@ public class BasketControllerTests {
         resultActions.andExpect(status().isOk());
     }
 
+    @Test
+    public void checkoutDeletesSingleUseCoupon() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        Coupon coupon = new Coupon("ONCE01");
+        when(basketService.checkout(eq("ExampleUser"), any())).thenReturn(new Checkout(Checkout.Status.CHECKED_OUT,
+                new Basket("ExampleUser", new BasketInfo(List.of(), 3.00, coupon)), null));
+        when(couponService.getByCode("ONCE01")).thenReturn(coupon);
+
+        mockMvc.perform(get("/api/basket/get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk());
+        verify(couponService).delete(coupon);
+    }
+
+    @Test
+    public void checkoutWithTakenCouponIsConflict() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        Coupon coupon = new Coupon("ONCE01");
+        when(basketService.checkout(eq("ExampleUser"), any())).thenReturn(new Checkout(Checkout.Status.COUPON_TAKEN,
+                new Basket("ExampleUser", new BasketInfo(List.of(), 3.00)), coupon));
+
+        mockMvc.perform(get("/api/basket/get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isConflict());
+        verify(couponService, never()).delete(any());
+    }
+
+    @Test
+    public void usedCouponIsNotApplied() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        Coupon coupon = new Coupon("ONCE01");
+        when(basketService.getBasket("ExampleUser")).thenReturn(new Basket("ExampleUser"));
+        when(couponService.getByCode("ONCE01")).thenReturn(coupon);
+        when(basketService.couponTaken("ExampleUser", coupon)).thenReturn(true);
+
+        MvcResult result = mockMvc.perform(post("/api/basket/applyCoupon")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .content("ONCE01"))
+                .andExpect(status().isBadRequest()).andReturn();
+        assertThat(result.getResponse().getContentAsString()).isEqualTo("Coupon code: ONCE01 has already been used.");
+        verify(basketService, never()).applyCouponToBasket(anyString(), any());
+    }
+
+    @Test
+    public void getBasketNotModified() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        Basket basket = new Basket("ExampleUser");
+        when(basketService.checkout(eq("ExampleUser"), any())).thenAnswer(invocation -> {
+            Predicate<Basket> notModified = invocation.getArgument(1);
+            return notModified.test(basket) ? new Checkout(Checkout.Status.NOT_MODIFIED, basket, null)
+                    : new Checkout(Checkout.Status.CHECKED_OUT, basket, null);
+        });
+
+        mockMvc.perform(get("/api/basket/get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .header("If-None-Match", "\"" + basket.getVersion() + "\""))
+                .andExpect(status().isNotModified());
+        verify(couponService, never()).delete(any());
+    }
+
     @Test
     public void addPizzaToBasketInvalid() throws Exception {
         when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
@@ -85,7 +174,7 @@ public class BasketControllerTests {
         when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
         when(basketService.getBasket("ExampleUser")).thenReturn(null);
         when(pizzaService.findByName(anyString())).thenReturn(new Pizza("Test", List.of()));
-        when(builder.build()).thenReturn(null);
+        when(builder.build(anyString(), any())).thenReturn(null);
 
         ResultActions resultActions = mockMvc.perform(post("/api/basket/addPizza")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -111,7 +200,7 @@ public class BasketControllerTests {
         when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
         when(basketService.getBasket("ExampleUser")).thenReturn(new Basket("ExampleUser"));
         when(pizzaService.findByName(anyString())).thenReturn(new Pizza("Test", List.of()));
-        when(builder.build()).thenReturn(new Pizza("Test", List.of()));
+        when(builder.build(anyString(), any())).thenReturn(new Pizza("Test", List.of()));
 
         ResultActions resultActions = mockMvc.perform(post("/api/basket/addPizza")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -183,7 +272,7 @@ public class BasketControllerTests {
 
         PizzaRequestModel model = new PizzaRequestModel("My Pizza", List.of("Pickles", "Cheese"));
         when(basketService.getBasket("ExampleUser")).thenReturn(null);
-        when(ingredientService.getByName(anyString())).thenReturn(null);
+        when(ingredientService.getByNames(any())).thenReturn(Arrays.asList(null, null));
 
         ResultActions resultActions = mockMvc.perform(post("/api/basket/addPizza/custom")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -214,8 +303,8 @@ public class BasketControllerTests {
         when(basketService.getBasket("ExampleUser")).thenReturn(
                 new Basket("ExampleUser", new BasketInfo(List.of(new Pizza("My Pizza",
                     List.of(ingredient))), 1.00)));
-        when(ingredientService.getByName(anyString())).thenReturn(new Ingredient());
-        when(builder.build()).thenReturn(new Pizza("My Pizza", List.of(ingredient)));
+        when(ingredientService.getByNames(any())).thenReturn(List.of(new Ingredient(), new Ingredient()));
+        when(builder.build(anyString(), any())).thenReturn(new Pizza("My Pizza", List.of(ingredient)));
 
         ResultActions resultActions = mockMvc.perform(post("/api/basket/addPizza/custom")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -364,6 +453,37 @@ public class BasketControllerTests {
                 + "Current price: €90.00");
     }
 
+    @Test
+    public void bestCouponApplied() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+
+        Ingredient ingredient = new Ingredient("Cheese", 1.99);
+        when(basketService.getBasket("ExampleUser")).thenReturn(
+                new Basket("ExampleUser", new BasketInfo(List.of(new Pizza("My Pizza",
+                    List.of(ingredient))), 90.00)));
+        Coupon reusable = new Coupon("abcd12", 'F', true);
+        when(couponService.reusableCoupons()).thenReturn(List.of(reusable));
+        when(basketService.applyBestCoupon("ExampleUser", List.of(reusable))).thenReturn(reusable);
+
+        MvcResult result = mockMvc.perform(post("/api/basket/applyBestCoupon")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk()).andReturn();
+        assertThat(result.getResponse().getContentAsString()).isEqualTo("Coupon code: abcd12 is the best coupon "
+                + "for your basket.\nBuy-one-get-one-free coupon has been applied.\nCurrent price: €90.00");
+
+        when(couponService.getByCode("wxyz12")).thenReturn(null);
+        mockMvc.perform(post("/api/basket/applyBestCoupon")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .content("[\"wxyz12\"]"))
+                .andExpect(status().isBadRequest());
+        verify(basketService).applyBestCoupon("ExampleUser", List.of());
+    }
+
     @Test
     public void couponAppliedGetOneFree() throws Exception {
         when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
@@ -545,4 +665,122 @@ public class BasketControllerTests {
         assertThat(responseBody).isEqualTo("Pizzas:\n" + "My Pizza | EUR 4.99\n" + "\n\nTotal: EUR 90.00"
                 + "\nCoupon applied: " + "abcd (30.0% discount coupon)" + "\n\nYour order will be ready at 10/10 2:2.");
     }
+
+    @Test
+    public void applyBatchValid() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        Ingredient ingredient = new Ingredient("Cheese", 1.99);
+        Pizza pizza = new Pizza("Margherita", List.of(ingredient));
+        Coupon coupon = new Coupon("HALF", 'D', 50, false);
+        when(basketService.getBasket("ExampleUser")).thenReturn(new Basket("ExampleUser"));
+        when(pizzaService.findByName("Margherita")).thenReturn(pizza);
+        when(ingredientService.getByNames(List.of("Cheese"))).thenReturn(List.of(ingredient));
+        when(couponService.getByCode("HALF")).thenReturn(coupon);
+        when(builder.build("Margherita", List.of(ingredient))).thenReturn(pizza);
+        when(builder.build("Cheesy", List.of(ingredient))).thenReturn(new Pizza("Cheesy", List.of(ingredient)));
+        BasketInfo info = new BasketInfo(List.of(pizza, pizza, pizza), 12.50);
+        info.setCoupon(coupon);
+        when(basketService.applyBatch(anyString(), any(), any(), any())).thenReturn(new Basket("ExampleUser", info));
+
+        List<BasketOperationModel> operations = List.of(
+                new BasketOperationModel("add", "Margherita", null, null),
+                new BasketOperationModel("add", "Margherita", null, null),
+                new BasketOperationModel("custom", "Cheesy", List.of("Cheese"), null),
+                new BasketOperationModel("remove", "Cheesy", null, null),
+                new BasketOperationModel("coupon", null, null, "HALF"));
+        MvcResult result = mockMvc.perform(post("/api/basket/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .content(JsonUtil.serialize(operations))).andExpect(status().isOk()).andReturn();
+
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualTo("Basket updated: 3 pizzas, coupon HALF, total price: €12.50");
+        verify(pizzaService, times(1)).findByName("Margherita");
+        verify(basketService, times(1)).applyBatch(eq("ExampleUser"),
+                eq(List.of(pizza, pizza, new Pizza("Cheesy", List.of(ingredient)))), eq(List.of("Cheesy")),
+                eq(List.of(coupon)));
+    }
+
+    @Test
+    public void applyBatchInvalidPizza() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        when(pizzaService.findByName(anyString())).thenReturn(null);
+
+        List<BasketOperationModel> operations = List.of(new BasketOperationModel("add", "My Pizza", null, null));
+        MvcResult result = mockMvc.perform(post("/api/basket/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .content(JsonUtil.serialize(operations))).andExpect(status().isBadRequest()).andReturn();
+
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualTo("There is no such pizza as My Pizza on the menu.");
+        verify(basketService, never()).applyBatch(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void applyBatchRejected() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        when(basketService.applyBatch(anyString(), any(), any(), any())).thenReturn(null);
+
+        List<BasketOperationModel> operations = List.of(new BasketOperationModel("remove", "My Pizza", null, null));
+        mockMvc.perform(post("/api/basket/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .content(JsonUtil.serialize(operations))).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getOverviewNotModified() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+        Basket basket = new Basket("ExampleUser");
+        String eTag = "\"" + basket.getVersion() + "\"";
+        when(basketService.getBasket("ExampleUser")).thenReturn(basket);
+
+        mockMvc.perform(get("/api/basket/overview")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk()).andExpect(header().string("ETag", eTag));
+        mockMvc.perform(get("/api/basket/overview")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        basket.nextVersion();
+        mockMvc.perform(get("/api/basket/overview")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer MockedToken")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isOk()).andExpect(header().string("ETag", "\"" + basket.getVersion() + "\""));
+    }
+
+    @Test
+    public void streamBasketChanges() throws Exception {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+
+        mockMvc.perform(get("/api/basket/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted());
+    }
 }
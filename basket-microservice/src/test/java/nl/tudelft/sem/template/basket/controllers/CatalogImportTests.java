@@ -0,0 +1,107 @@
+package nl.tudelft.sem.template.basket.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Pizza;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import nl.tudelft.sem.template.basket.models.ImportResult;
+import nl.tudelft.sem.template.basket.services.CatalogImportService;
+import nl.tudelft.sem.template.basket.services.CouponService;
+import nl.tudelft.sem.template.basket.services.IngredientService;
+import nl.tudelft.sem.template.basket.services.PizzaService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CatalogImportTests {
+
+    @Autowired
+    private transient CatalogImportService importService;
+    @Autowired
+    private transient IngredientService ingredientService;
+    @Autowired
+    private transient PizzaService pizzaService;
+    @Autowired
+    private transient CouponService couponService;
+
+    @Test
+    void importsValidRowsAndRejectsTheRestTest() throws IOException {
+        ImportResult ingredients = importService.importIngredients(stream("name,price\n"
+                + "Basil, 0.80\n"
+                + "Olives,1.20\n"
+                + "Rucola,1.10\n"
+                + "Olives,1.50\n"
+                + "Capers,-1\n"
+                + "Anchovies\n"), true);
+        assertThat(ingredients.getImported()).isEqualTo(3);
+        assertThat(ingredients.getRejected()).isEqualTo(3);
+        assertThat(ingredients.getErrors()).hasSize(3);
+        assertThat(ingredientService.getByName("Rucola").getId()).isNotNull();
+
+        ImportResult pizzas = importService.importPizzas(stream("["
+                + "{\"name\": \"Verde\", \"ingredients\": [\"Basil\", \"Rucola\"]},"
+                + "{\"name\": \"Nera\", \"ingredients\": [\"Olives\", \"Basil\"]},"
+                + "{\"name\": \"Other Verde\", \"ingredients\": [\"Rucola\", \"Basil\"]},"
+                + "{\"name\": \"Bianca\", \"ingredients\": [\"Truffle\"]}"
+                + "]"), false);
+        assertThat(pizzas.getImported()).isEqualTo(2);
+        assertThat(pizzas.getRejected()).isEqualTo(2);
+        Pizza verde = pizzaService.findByName("Verde");
+        assertThat(verde.getIngredients()).extracting("name").containsExactlyInAnyOrder("Basil", "Rucola");
+
+        ImportResult coupons = importService.importCoupons(stream("code,type,rate,limitedTime\n"
+                + "BULK01,D,0.25,true\n"
+                + "bulk01,F,0,false\n"
+                + "BULK2,F,0,false\n"), true);
+        assertThat(coupons.getImported()).isEqualTo(1);
+        assertThat(coupons.getRejected()).isEqualTo(2);
+        assertThat(couponService.getByCode("bulk01").getRate()).isEqualTo(0.25);
+    }
+
+    @Test
+    void importsLargeFileInBatchesTest() throws IOException {
+        int rows = 50_000;
+        StringBuilder csv = new StringBuilder("name,price\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Topping ").append(i).append(',').append(1 + i % 5).append('\n');
+        }
+        int before = ingredientService.findAll().size();
+
+        ImportResult result = importService.importIngredients(stream(csv.toString()), true);
+
+        assertThat(result.getImported()).isEqualTo(rows);
+        assertThat(ingredientService.findAll()).hasSize(before + rows);
+    }
+
+    @Test
+    void rejectsJsonElementsThatAreNotRowsTest() throws IOException {
+        ImportResult result = importService.importIngredients(stream("["
+                + "{\"name\": \"Saffron\", \"price\": 4.20},"
+                + "{\"name\": \"Paprika\", \"price\": \"cheap\"},"
+                + "42,"
+                + "[\"Garlic\", 0.30],"
+                + "{\"name\": \"Oregano\", \"price\": 0.40}"
+                + "]"), false);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getErrors()).hasSize(3);
+        assertThat(ingredientService.getByName("Oregano")).isNotNull();
+        assertThat(ingredientService.getByName("Paprika")).isNull();
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,137 @@
+package nl.tudelft.sem.template.basket.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import nl.tudelft.sem.template.basket.services.CouponRedemptionLedger;
+import nl.tudelft.sem.template.basket.services.PermissiveCouponRedemptionLedger;
+import org.junit.jupiter.api.Test;
+
+public class CouponRedemptionLedgerTests {
+
+    private static final int CUSTOMERS = 5_000;
+    private static final int THREADS = 32;
+
+    @Test
+    void oneOfManyConcurrentBasketsGetsHotCode() throws Exception {
+        CouponRedemptionLedger ledger = new CouponRedemptionLedger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> reserved = new ArrayList<>(CUSTOMERS);
+            for (int i = 0; i < CUSTOMERS; i++) {
+                String customer = "customer" + i;
+                String code = i % 2 == 0 ? "HOTS01" : "hots01";
+                reserved.add(pool.submit(() -> {
+                    start.await();
+                    return ledger.reserve(code, customer);
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            String winner = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                if (reserved.get(i).get(10, TimeUnit.SECONDS)) {
+                    winners++;
+                    winner = "customer" + i;
+                }
+            }
+            assertThat(winners).isEqualTo(1);
+
+            List<Future<Boolean>> committed = new ArrayList<>(CUSTOMERS);
+            for (int i = 0; i < CUSTOMERS; i++) {
+                String customer = "customer" + i;
+                committed.add(pool.submit(() -> ledger.commit("HOTS01", customer)));
+            }
+            int redeemed = 0;
+            for (Future<Boolean> commit : committed) {
+                if (commit.get(10, TimeUnit.SECONDS)) {
+                    redeemed++;
+                }
+            }
+            assertThat(redeemed).isEqualTo(1);
+            assertThat(ledger.isRedeemed("HOTS01")).isTrue();
+            assertThat(ledger.reserve("HOTS01", winner)).isFalse();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void releasedCodeCanBeReservedAgain() {
+        CouponRedemptionLedger ledger = new CouponRedemptionLedger();
+
+        assertThat(ledger.reserve("ABCD12", "first")).isTrue();
+        assertThat(ledger.reserve("ABCD12", "first")).isTrue();
+        assertThat(ledger.isAvailable("abcd12", "second")).isFalse();
+        assertThat(ledger.release("ABCD12", "second")).isFalse();
+        assertThat(ledger.commit("ABCD12", "second")).isFalse();
+
+        assertThat(ledger.release("ABCD12", "first")).isTrue();
+        assertThat(ledger.reserve("ABCD12", "second")).isTrue();
+        assertThat(ledger.commit("ABCD12", "second")).isTrue();
+        assertThat(ledger.release("ABCD12", "second")).isFalse();
+        assertThat(ledger.isAvailable("ABCD12", "second")).isFalse();
+    }
+
+    @Test
+    void expiredReservationCanBeTaken() {
+        CouponRedemptionLedger ledger = new CouponRedemptionLedger(Duration.ofNanos(1));
+
+        assertThat(ledger.reserve("ABCD12", "first")).isTrue();
+        assertThat(ledger.isAvailable("ABCD12", "second")).isTrue();
+        assertThat(ledger.reserve("ABCD12", "second")).isTrue();
+
+        assertThat(ledger.commit("ABCD12", "second")).isTrue();
+        // the first basket checks out too late, the coupon has been redeemed by the second one
+        assertThat(ledger.commit("ABCD12", "first")).isFalse();
+    }
+
+    @Test
+    void releasedExpiredAndRedeemedEntriesArePruned() {
+        CouponRedemptionLedger ledger = new CouponRedemptionLedger(Duration.ofNanos(1));
+        assertThat(ledger.reserve("AAAA11", "first")).isTrue();
+        assertThat(ledger.release("AAAA11", "first")).isTrue();
+        assertThat(ledger.reserve("BBBB22", "first")).isTrue();
+        assertThat(ledger.commit("CCCC33", "first")).isTrue();
+
+        ledger.prune();
+
+        assertThat(ledger.size()).isZero();
+        assertThat(ledger.isRedeemed("CCCC33")).isFalse();
+        assertThat(ledger.reserve("CCCC33", "second")).isTrue();
+    }
+
+    @Test
+    void liveReservationsAreKept() {
+        CouponRedemptionLedger ledger = new CouponRedemptionLedger();
+        assertThat(ledger.reserve("AAAA11", "first")).isTrue();
+        assertThat(ledger.commit("BBBB22", "first")).isTrue();
+
+        ledger.prune();
+
+        assertThat(ledger.size()).isEqualTo(2);
+        assertThat(ledger.isAvailable("AAAA11", "second")).isFalse();
+        assertThat(ledger.isRedeemed("BBBB22")).isTrue();
+        assertThat(ledger.commit("BBBB22", "first")).isTrue();
+    }
+
+    @Test
+    void permissiveLedgerLetsEveryBasketUseTheCode() {
+        CouponRedemptionLedger ledger = new PermissiveCouponRedemptionLedger();
+
+        assertThat(ledger.reserve("ONCE01", "Alice")).isTrue();
+        assertThat(ledger.reserve("ONCE01", "Bob")).isTrue();
+        assertThat(ledger.commit("ONCE01", "Alice")).isTrue();
+        assertThat(ledger.commit("ONCE01", "Bob")).isTrue();
+        assertThat(ledger.isAvailable("ONCE01", "Carol")).isTrue();
+        assertThat(ledger.size()).isZero();
+    }
+}
@@ -0,0 +1,87 @@
+package nl.tudelft.sem.template.basket.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import commons.Coupon;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import nl.tudelft.sem.template.basket.repositories.CouponRepository;
+import nl.tudelft.sem.template.basket.services.CouponService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+/**
+ * Lookup benchmark for the coupon index.
+ * Loads 100k coupons and looks their codes up in random case, comparing the index with the linear scan over all
+ * coupons it replaces. Besides the numbers it checks that every code is found no matter its case.
+ * Left out of the tests, run it with the benchmark task.
+ */
+@Tag("benchmark")
+public class CouponServiceBenchmark {
+
+    private static final int COUPONS = 100_000;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int SCANS = 200;
+
+    @Test
+    void looksUpOneHundredThousandCodes(TestReporter reporter) {
+        List<Coupon> coupons = new ArrayList<>(COUPONS);
+        for (int i = 0; i < COUPONS; i++) {
+            coupons.add(new Coupon(code(i)));
+        }
+        CouponRepository repository = mock(CouponRepository.class);
+        when(repository.findAll()).thenReturn(coupons);
+        CouponService service = new CouponService(repository);
+
+        for (int i = 0; i < COUPONS; i++) {
+            assertThat(service.getByCode(code(i).toLowerCase(Locale.ROOT))).isSameAs(coupons.get(i));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            String code = code(random.nextInt(COUPONS));
+            if (service.getByCode(random.nextBoolean() ? code : code.toLowerCase(Locale.ROOT)) != null) {
+                found++;
+            }
+        }
+        long indexNanos = System.nanoTime() - start;
+        assertThat(found).isEqualTo(LOOKUPS);
+
+        start = System.nanoTime();
+        found = 0;
+        for (int i = 0; i < SCANS; i++) {
+            String code = code(random.nextInt(COUPONS)).toLowerCase(Locale.ROOT);
+            for (Coupon coupon : coupons) {
+                if (coupon.getCode().equalsIgnoreCase(code)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        long scanNanos = System.nanoTime() - start;
+        assertThat(found).isEqualTo(SCANS);
+
+        reporter.publishEntry("index lookups/s", String.valueOf(LOOKUPS * 1_000_000_000L / Math.max(1, indexNanos)));
+        reporter.publishEntry("scan lookups/s", String.valueOf(SCANS * 1_000_000_000L / Math.max(1, scanNanos)));
+    }
+
+    /**
+     * Distinct code in the coupon format (4 letters, 2 digits) for every number below 100k.
+     */
+    private static String code(int i) {
+        char[] letters = new char[4];
+        int rest = i / 100;
+        for (int l = 3; l >= 0; l--) {
+            letters[l] = (char) ('A' + rest % 26);
+            rest /= 26;
+        }
+        return new String(letters) + String.format("%02d", i % 100);
+    }
+}
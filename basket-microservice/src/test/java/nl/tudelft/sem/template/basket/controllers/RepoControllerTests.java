@@ -4,7 +4,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -37,6 +40,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import java.util.Arrays;
 import java.util.List;
 
 @SpringBootTest
@@ -445,7 +449,7 @@ public class RepoControllerTests {
         when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
         when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
         when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
-        when(ingredientService.getByName(anyString())).thenReturn(null);
+        when(ingredientService.getByNames(ArgumentMatchers.any())).thenReturn(Arrays.asList(null, null));
 
         PizzaRequestModel model = new PizzaRequestModel("My Pizza", List.of("Pickles", "Cheese"));
         ResultActions resultActions = mockMvc.perform(post("/api/repo//pizzas/addToRepo")
@@ -471,7 +475,8 @@ public class RepoControllerTests {
         when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
         when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
         when(pizzaService.invalid(ArgumentMatchers.any())).thenReturn(true);
-        when(ingredientService.getByName(anyString())).thenReturn(new Ingredient("Pickles", 1.00));
+        when(ingredientService.getByNames(ArgumentMatchers.any()))
+                .thenReturn(List.of(new Ingredient("Pickles", 1.00), new Ingredient("Cheese", 1.00)));
 
         PizzaRequestModel model = new PizzaRequestModel("My Pizza", List.of("Pickles", "Cheese"));
         ResultActions resultActions = mockMvc.perform(post("/api/repo//pizzas/addToRepo")
@@ -497,7 +502,8 @@ public class RepoControllerTests {
         when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
         when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
         when(pizzaService.invalid(ArgumentMatchers.any())).thenReturn(false);
-        when(ingredientService.getByName(anyString())).thenReturn(new Ingredient("Pickles", 1.00));
+        when(ingredientService.getByNames(ArgumentMatchers.any()))
+                .thenReturn(List.of(new Ingredient("Pickles", 1.00), new Ingredient("Cheese", 1.00)));
 
         PizzaRequestModel model = new PizzaRequestModel("My Pizza", List.of("Pickles", "Cheese"));
         ResultActions resultActions = mockMvc.perform(post("/api/repo//pizzas/addToRepo")
@@ -516,4 +522,120 @@ public class RepoControllerTests {
                 .isEqualTo("My Pizza is added to the repository.");
     }
 
+    @Test
+    public void getIngredientPagesTest() throws Exception {
+        Ingredient ingredient = new Ingredient("Cheese", 1.99);
+        Ingredient ingredient2 = new Ingredient("Salami", 2.87);
+        Ingredient ingredient3 = new Ingredient("Tomato Sauce", 0.99);
+        when(ingredientService.ingredients()).thenReturn(List.of(ingredient, ingredient2, ingredient3));
+        when(ingredientService.version()).thenReturn(7L);
+        mockCustomer();
+
+        MvcResult first = mockMvc.perform(get("/api/repo/ingredients/page?limit=2&fields=name")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].name").value("Salami"))
+                .andExpect(jsonPath("$.items[0].price").doesNotExist())
+                .andExpect(jsonPath("$.next").value("7.2"));
+
+        MvcResult second = mockMvc.perform(get("/api/repo/ingredients/page?limit=2&cursor=7.2")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name").value("Tomato Sauce"))
+                .andExpect(jsonPath("$.items[0].price").value(0.99))
+                .andExpect(jsonPath("$.next").isEmpty());
+    }
+
+    @Test
+    public void getPageOfChangedCatalogTest() throws Exception {
+        when(couponService.coupons()).thenReturn(List.of(new Coupon("EXPL01"), new Coupon("EXPL02", 'F')));
+        when(couponService.version()).thenReturn(3L);
+        mockCustomer();
+
+        mockMvc.perform(get("/api/repo/coupons/page?cursor=2.1")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/api/repo/coupons/page?fields=code,strategy")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isBadRequest());
+
+        MvcResult result = mockMvc.perform(get("/api/repo/coupons/page?fields=code,type")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].code").value("EXPL02"))
+                .andExpect(jsonPath("$.items[1].type").value("F"));
+    }
+
+    @Test
+    public void getPizzaPageTest() throws Exception {
+        Ingredient ingredient = new Ingredient("Cheese", 1.99);
+        Pizza pizza1 = new Pizza("My pizza", List.of(ingredient));
+        Pizza pizza2 = new Pizza("My pizza 2", List.of(ingredient));
+        when(pizzaService.menu()).thenReturn(List.of(pizza1, pizza2));
+        when(pizzaService.version()).thenReturn(1L);
+        mockCustomer();
+
+        MvcResult result = mockMvc.perform(get("/api/repo/pizzas/page?limit=1")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name").value("My pizza"))
+                .andExpect(jsonPath("$.items[0].ingredients[0].name").value("Cheese"))
+                .andExpect(jsonPath("$.next").value("1.1"));
+    }
+
+@Test
+    public void getIngredientsIsSerializedOncePerVersionTest() throws Exception {
+        when(ingredientService.findAll()).thenReturn(List.of(new Ingredient("Cheese", 1.99)));
+        when(ingredientService.version()).thenReturn(4L);
+        mockCustomer();
+
+        MvcResult first = mockMvc.perform(get("/api/repo/ingredients")
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].name").value("Cheese"))
+                .andReturn();
+        String eTag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/repo/ingredients")
+                .header("Authorization", "Bearer MockedToken")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/repo/ingredients")
+                .header("Authorization", "Bearer MockedToken")
+                .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", not(eTag)));
+        verify(ingredientService, times(1)).findAll();
+
+        when(ingredientService.version()).thenReturn(5L);
+        when(ingredientService.findAll()).thenReturn(List.of(new Ingredient("Salami", 2.87)));
+        mockMvc.perform(get("/api/repo/ingredients")
+                .header("Authorization", "Bearer MockedToken")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Salami"));
+    }
+
+    private void mockCustomer() {
+        when(mockAuthenticationManager.getNetId()).thenReturn("ExampleUser");
+        when(mockAuthenticationManager.getRole()).thenReturn("customer");
+        when(mockJwtTokenVerify.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerify.getUserIdFromToken(anyString())).thenReturn("ExampleUser");
+        when(mockJwtTokenVerify.getUserRoleFromToken(anyString())).thenReturn(new UserRole("customer"));
+    }
+
 }
@@ -2,6 +2,7 @@ package nl.tudelft.sem.template.basket.controllers;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import commons.Coupon;
 import commons.Ingredient;
@@ -22,10 +23,17 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.List;
 
 @SpringBootTest
@@ -71,10 +79,66 @@ public class ServiceTests {
         Ingredient ingredient2 = new Ingredient("Salami", 2.87);
         Ingredient ingredient3 = new Ingredient("Tomato Sauce", 0.99);
         ingredientRepository.saveAll(List.of(ingredient, ingredient2, ingredient3));
-        when(ingredientRepository.findAll()).thenReturn(List.of(ingredient, ingredient2, ingredient3));
+        when(ingredientRepository.findAllReadOnly()).thenReturn(List.of(ingredient, ingredient2, ingredient3));
         assertThat(ingredientService.findAll()).containsAll(List.of(ingredient, ingredient2, ingredient3));
     }
 
+    @Test
+    void ingredientsAreLookedUpInOnePassTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient salami = new Ingredient("Salami", 2.87);
+        ReflectionTestUtils.setField(cheese, "id", 1L);
+        ReflectionTestUtils.setField(salami, "id", 2L);
+        when(ingredientRepository.findAllReadOnly()).thenReturn(List.of(cheese, salami));
+
+        assertThat(ingredientService.getByNames(List.of("Salami", "Pickles", "Cheese")))
+                .containsExactly(salami, null, cheese);
+        assertThat(ingredientService.getByIds(List.of(1L, 3L))).containsExactly(cheese, null);
+        assertThat(ingredientService.getByName("Cheese")).isSameAs(cheese);
+        assertThat(ingredientService.findById(2L)).isSameAs(salami);
+        assertThat(ingredientService.exists("Salami")).isTrue();
+        assertThat(ingredientService.exists("Pickles")).isFalse();
+        verify(ingredientRepository, times(1)).findAllReadOnly();
+    }
+
+    @Test
+    void savedIngredientIsAddedToCatalogTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient pickles = new Ingredient("Pickles", 1.00);
+        ReflectionTestUtils.setField(cheese, "id", 1L);
+        ReflectionTestUtils.setField(pickles, "id", 2L);
+        when(ingredientRepository.findAllReadOnly()).thenReturn(List.of(cheese));
+        when(ingredientRepository.save(any())).thenReturn(pickles);
+        assertThat(ingredientService.exists("Pickles")).isFalse();
+
+        ingredientService.save(new Ingredient("Pickles", 1.00));
+
+        assertThat(ingredientService.getByName("Pickles")).isSameAs(pickles);
+        assertThat(ingredientService.findAll()).containsExactly(cheese, pickles);
+        verify(ingredientRepository, times(1)).findAllReadOnly();
+    }
+
+    @Test
+    void newIngredientPriceIsOnlyShownOnceSavedTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        ReflectionTestUtils.setField(cheese, "id", 1L);
+        when(ingredientRepository.findAllReadOnly()).thenReturn(List.of(cheese));
+        when(ingredientRepository.save(any())).thenThrow(new IllegalStateException("database is down"));
+
+        assertThatThrownBy(() -> ingredientService.updatePrice("Cheese", 2.50))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(ingredientService.getByName("Cheese")).isSameAs(cheese);
+        assertThat(cheese.getPrice()).isEqualTo(1.99);
+
+        doAnswer(invocation -> invocation.getArgument(0)).when(ingredientRepository).save(any());
+        Ingredient updated = ingredientService.updatePrice("Cheese", 2.50);
+
+        assertThat(updated.getId()).isEqualTo(1L);
+        assertThat(ingredientService.getByName("Cheese")).isSameAs(updated);
+        assertThat(ingredientService.getByName("Cheese").getPrice()).isEqualTo(2.50);
+        assertThat(cheese.getPrice()).isEqualTo(1.99);
+    }
+
     @Test
     void pizzaExistsTest() {
         Ingredient ingredient = new Ingredient("Cheese", 1.99);
@@ -83,7 +147,7 @@ public class ServiceTests {
         ingredientRepository.saveAll(List.of(ingredient, ingredient2, ingredient3));
         Pizza pizza = new Pizza("Margherita Pizza", List.of(ingredient, ingredient2, ingredient3));
         pizzaRepository.save(pizza);
-        when(pizzaRepository.findAll()).thenReturn(List.of(pizza));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(pizza));
         assertThat(pizzaService.exists(pizza)).isTrue();
     }
 
@@ -99,6 +163,36 @@ public class ServiceTests {
         assertThat(pizzaService.exists(pizza2)).isFalse();
     }
 
+    @Test
+    void pizzaCatalogIsCachedTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Pizza margherita = new Pizza("Margherita", List.of(cheese));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita));
+
+        assertThat(pizzaService.findByName("Margherita")).isSameAs(margherita);
+        assertThat(pizzaService.findByName("Hawaii")).isNull();
+        assertThat(pizzaService.exists(new Pizza("Other", List.of(new Ingredient("Cheese", 1.99))))).isTrue();
+        assertThat(pizzaService.findAll()).containsExactly(margherita);
+        verify(pizzaRepository, times(1)).findAllWithIngredients();
+    }
+
+    @Test
+    void pizzaCatalogIsInvalidatedOnSaveTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Pizza margherita = new Pizza("Margherita", List.of(cheese));
+        Pizza hawaii = new Pizza("Hawaii", List.of(cheese, new Ingredient("Pineapple", 0.99)));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita));
+        assertThat(pizzaService.findByName("Hawaii")).isNull();
+        long version = pizzaService.version();
+
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita, hawaii));
+        pizzaService.save(hawaii);
+
+        assertThat(pizzaService.findByName("Hawaii")).isSameAs(hawaii);
+        assertThat(pizzaService.version()).isGreaterThan(version);
+        verify(pizzaRepository, times(2)).findAllWithIngredients();
+    }
+
     @Test
     void couponRepositoryTest() {
         Coupon discount = new Coupon("EXPL01");
@@ -125,5 +219,168 @@ public class ServiceTests {
         assertThat(couponRepository.findAll()).doesNotContain(a);
     }
 
-}
+    @Test
+    void couponCodeIsCaseInsensitiveTest() {
+        Coupon a = new Coupon("TEST01");
+        when(couponRepository.findAll()).thenReturn(List.of(a));
+        assertThat(couponService.getByCode("test01")).isSameAs(a);
+        assertThat(couponService.getByCode("TeSt01")).isSameAs(a);
+        assertThat(couponService.exists("test01")).isTrue();
+        assertThat(couponService.getByCode("TEST02")).isNull();
+        assertThat(couponService.getByCode(null)).isNull();
+        verify(couponRepository, times(1)).findAll();
+    }
+
+    @Test
+    void couponIndexFollowsSaveAndDeleteTest() {
+        Coupon a = new Coupon("TEST01");
+        Coupon b = new Coupon("test02");
+        ReflectionTestUtils.setField(a, "id", 1L);
+        ReflectionTestUtils.setField(b, "id", 2L);
+        when(couponRepository.findAll()).thenReturn(List.of(a));
+        assertThat(couponService.exists("TEST02")).isFalse();
+
+        when(couponRepository.save(b)).thenReturn(b);
+        couponService.save(b);
+        assertThat(couponService.getByCode("TEST02")).isSameAs(b);
+
+        couponService.delete(a);
+        assertThat(couponService.getByCode("test01")).isNull();
+        assertThat(couponService.findAll()).containsExactly(b);
+        verify(couponRepository, times(1)).findAll();
+    }
+
+    @Test
+    void deletingStaleCouponKeepsNewerOneTest() {
+        Coupon old = new Coupon("TEST01");
+        Coupon replacement = new Coupon("test01");
+        ReflectionTestUtils.setField(old, "id", 1L);
+        ReflectionTestUtils.setField(replacement, "id", 2L);
+        when(couponRepository.findAll()).thenReturn(List.of(replacement));
+
+        couponService.delete(old);
+        assertThat(couponService.getByCode("TEST01")).isSameAs(replacement);
+    }
 
+    @Test
+    void findAllWithoutAllergensTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient salami = new Ingredient("Salami", 2.87);
+        Ingredient tomato = new Ingredient("Tomato Sauce", 0.99);
+        Pizza margherita = new Pizza("Margherita", List.of(tomato, cheese));
+        Pizza salamiPizza = new Pizza("Salami", List.of(tomato, cheese, salami));
+        Pizza marinara = new Pizza("Marinara", List.of(tomato));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita, salamiPizza, marinara));
+
+        assertThat(pizzaService.findAllWithout(List.of(salami))).containsExactly(margherita, marinara);
+        assertThat(pizzaService.findAllWithout(List.of(new Ingredient("Cheese", 5.00), salami)))
+                .containsExactly(marinara);
+        assertThat(pizzaService.findAllWithout(Arrays.asList(null, new Ingredient("Pineapple", 1.00))))
+                .containsExactly(margherita, salamiPizza, marinara);
+        verify(pizzaRepository, times(1)).findAllWithIngredients();
+    }
+
+    @Test
+    void filterOutPizzasKeepsEveryPizzaOnceTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient salami = new Ingredient("Salami", 2.87);
+        Ingredient ham = new Ingredient("Ham", 2.50);
+        Pizza margherita = new Pizza("Margherita", List.of(cheese));
+        Pizza salamiPizza = new Pizza("Salami", List.of(cheese, salami));
+
+        assertThat(pizzaService.filterOutPizzas(List.of(salami, ham), List.of(margherita, salamiPizza)))
+                .containsExactly(margherita);
+    }
+
+    @Test
+    void filteredMenusAreCachedPerAllergenSetTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient salami = new Ingredient("Salami", 2.87);
+        Pizza margherita = new Pizza("Margherita", List.of(cheese));
+        Pizza salamiPizza = new Pizza("Salami", List.of(cheese, salami));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita, salamiPizza));
+
+        List<Pizza> first = pizzaService.findAllWithout(List.of(salami));
+        assertThat(pizzaService.findAllWithout(List.of(new Ingredient("Pineapple", 1.00), salami))).isSameAs(first);
+        assertThat(pizzaService.getMenuCacheStatistics().getHits()).isEqualTo(1);
+        assertThat(pizzaService.getMenuCacheStatistics().getMisses()).isEqualTo(1);
+        assertThat(pizzaService.getMenuCacheStatistics().getHitRate()).isEqualTo(0.5);
+
+        Pizza pepperoni = new Pizza("Pepperoni", List.of(cheese));
+        pizzaService.save(pepperoni);
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita, salamiPizza, pepperoni));
+        assertThat(pizzaService.findAllWithout(List.of(salami))).containsExactly(margherita, pepperoni);
+        assertThat(pizzaService.getMenuCacheStatistics().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void pizzaWithSameIngredientsInOtherOrderExistsTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient salami = new Ingredient("Salami", 2.87);
+        Ingredient tomato = new Ingredient("Tomato Sauce", 0.99);
+        when(pizzaRepository.findAllWithIngredients())
+                .thenReturn(List.of(new Pizza("Salami", List.of(tomato, cheese, salami))));
+
+        assertThat(pizzaService.exists(new Pizza("Other", List.of(salami, tomato, cheese)))).isTrue();
+        assertThat(pizzaService.exists(new Pizza("Other", List.of(new Ingredient("Cheese", 3.00), salami, tomato))))
+                .isTrue();
+        assertThat(pizzaService.exists(new Pizza("Other", List.of(salami, cheese)))).isFalse();
+    }
+
+    @Test
+    void savedPizzasAreCheckedWithoutReloadingTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Ingredient salami = new Ingredient("Salami", 2.87);
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of());
+
+        for (int i = 0; i < 100; i++) {
+            Pizza pizza = new Pizza("Pizza " + i, i % 2 == 0 ? List.of(cheese) : List.of(salami));
+            assertThat(pizzaService.invalid(pizza)).isEqualTo(i >= 2);
+            pizzaService.save(pizza);
+        }
+        assertThat(pizzaService.exists(new Pizza("Pizza 42", List.of(cheese, salami)))).isTrue();
+        verify(pizzaRepository, times(1)).findAllWithIngredients();
+    }
+
+    @Test
+    void priceChangeRepricesOnlyAffectedPizzasTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 1.99),
+                new Ingredient("Tomato", 1.50)));
+        Pizza cheesy = new Pizza("Cheesy", List.of(new Ingredient("Cheese", 1.99), new Ingredient("Cheese", 1.99)));
+        Pizza marinara = new Pizza("Marinara", List.of(new Ingredient("Tomato", 1.50)));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita, cheesy, marinara));
+        long version = pizzaService.version();
+
+        assertThat(pizzaService.reprice(new Ingredient("Cheese", 2.50))).isEqualTo(2);
+        assertThat(pizzaService.findByName("Margherita").getPrice()).isEqualTo(7.00);
+        assertThat(pizzaService.findByName("Cheesy").getPrice()).isEqualTo(8.00);
+        assertThat(pizzaService.findByName("Marinara")).isSameAs(marinara);
+        assertThat(pizzaService.menu()).extracting(Pizza::getName).containsExactly("Margherita", "Cheesy", "Marinara");
+        // the pizzas of the old catalog are left as they were
+        assertThat(margherita.getPrice()).isEqualTo(6.49);
+        assertThat(margherita.getIngredients().get(0).getPrice()).isEqualTo(1.99);
+        assertThat(pizzaService.version()).isGreaterThan(version);
+        verify(pizzaRepository).updatePrices(List.of(pizzaService.findByName("Margherita"),
+                pizzaService.findByName("Cheesy")));
+
+        assertThat(pizzaService.reprice(new Ingredient("Cheese", 2.50))).isEqualTo(0);
+        verify(pizzaRepository, times(1)).updatePrices(any());
+        verify(pizzaRepository, times(1)).findAllWithIngredients();
+    }
+
+    @Test
+    void failedPriceUpdateKeepsMenuTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 1.99)));
+        when(pizzaRepository.findAllWithIngredients()).thenReturn(List.of(margherita));
+        doThrow(new IllegalStateException("database is down")).when(pizzaRepository).updatePrices(any());
+        long version = pizzaService.version();
+
+        assertThatThrownBy(() -> pizzaService.reprice(new Ingredient("Cheese", 2.50)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(pizzaService.findByName("Margherita")).isSameAs(margherita);
+        assertThat(margherita.getPrice()).isEqualTo(4.99);
+        assertThat(pizzaService.version()).isEqualTo(version);
+    }
+
+}
@@ -0,0 +1,83 @@
+package nl.tudelft.sem.template.basket.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Ingredient;
+import commons.Pizza;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Checks that loading the menu takes the same number of SQL statements no matter how many pizzas are on it.
+ * The repository calls run outside of a transaction, so touching an ingredient that was not fetched with its pizza
+ * would fail instead of silently firing another query.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class MenuQueryTests {
+
+    @Autowired
+    private transient PizzaRepository pizzaRepository;
+
+    @Autowired
+    private transient IngredientRepository ingredientRepository;
+
+    @Autowired
+    private transient EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void menuIsLoadedInConstantNumberOfStatements() {
+        long small = statementsToLoadMenu();
+
+        List<Ingredient> ingredients = ingredientRepository.saveAll(List.of(new Ingredient("Flour", 0.50),
+                new Ingredient("Basil", 0.80), new Ingredient("Olives", 1.20)));
+        List<Pizza> pizzas = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            pizzas.add(new Pizza("Pizza " + i, List.of(ingredients.get(i % 3), ingredients.get((i + 1) % 3))));
+        }
+        pizzaRepository.saveAll(pizzas);
+
+        assertThat(statementsToLoadMenu()).isEqualTo(small).isEqualTo(1);
+    }
+
+    @Test
+    void ingredientsAreLoadedInOneStatement() {
+        Statistics statistics = statistics();
+        statistics.clear();
+        List<Ingredient> all = ingredientRepository.findAllReadOnly();
+        assertThat(all).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private long statementsToLoadMenu() {
+        Statistics statistics = statistics();
+        statistics.clear();
+        List<Pizza> menu = pizzaRepository.findAllWithIngredients();
+        int ingredients = 0;
+        for (Pizza pizza : menu) {
+            ingredients += pizza.getIngredients().size();
+            for (Ingredient ingredient : pizza.getIngredients()) {
+                assertThat(ingredient.getName()).isNotNull();
+            }
+        }
+        assertThat(ingredients).isPositive();
+        assertThat(menu).doesNotHaveDuplicates();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,90 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Ingredient;
+import commons.Pizza;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Benchmark for the basket journal.
+ * Journals the same number of basket changes from 1 up to 16 threads and reports the throughput of every run, then
+ * reports how long it takes to restore 200,000 baskets from a snapshot. Besides the numbers it checks that every
+ * basket is restored. Left out of the tests, run it with the benchmark task.
+ */
+@Tag("benchmark")
+public class BasketJournalBenchmark {
+
+    private static final int CHANGES = 200_000;
+
+    @TempDir
+    Path directory;
+
+    private final Pizza hawaii = new Pizza("Hawaii",
+            List.of(new Ingredient("Pineapple", 0.99), new Ingredient("Ham", 3.00)));
+
+    @Test
+    void appendsFromOneToSixteenThreads(TestReporter reporter) throws IOException, InterruptedException {
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            InMemoryBasketStore store = new InMemoryBasketStore(64);
+            Path run = directory.resolve("threads-" + threads);
+            long nanos;
+            try (BasketJournal journal = BasketJournal.open(store, run, 4 << 20, Duration.ofMillis(10),
+                    Duration.ofDays(1))) {
+                CountDownLatch done = new CountDownLatch(threads);
+                int perThread = CHANGES / threads;
+                long start = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    String prefix = "thread" + t + "-";
+                    new Thread(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            store.create(prefix + i);
+                        }
+                        done.countDown();
+                    }).start();
+                }
+                done.await();
+                nanos = System.nanoTime() - start;
+            }
+            reporter.publishEntry("changes/s with " + threads + " threads",
+                    String.valueOf(CHANGES * 1_000_000_000L / Math.max(1, nanos)));
+
+            InMemoryBasketStore restored = new InMemoryBasketStore(64);
+            try (BasketJournal journal = BasketJournal.open(restored, run, 4 << 20, Duration.ofMillis(10),
+                    Duration.ofDays(1))) {
+                assertThat(restored.size()).isEqualTo(CHANGES / threads * threads);
+            }
+        }
+    }
+
+    @Test
+    void replaysSnapshot(TestReporter reporter) throws IOException {
+        InMemoryBasketStore store = new InMemoryBasketStore(64);
+        try (BasketJournal journal = BasketJournal.open(store, directory, 64 << 20, Duration.ofMillis(10),
+                Duration.ofDays(1))) {
+            for (int i = 0; i < CHANGES; i++) {
+                String customer = "customer" + i;
+                store.create(customer);
+                store.update(customer, basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+            }
+            journal.snapshot();
+        }
+
+        InMemoryBasketStore restored = new InMemoryBasketStore(64);
+        long begin = System.nanoTime();
+        try (BasketJournal journal = BasketJournal.open(restored, directory, 64 << 20, Duration.ofMillis(10),
+                Duration.ofDays(1))) {
+            long millis = (System.nanoTime() - begin) / 1_000_000;
+            reporter.publishEntry("ms to replay " + CHANGES + " baskets", String.valueOf(millis));
+            assertThat(restored.size()).isEqualTo(CHANGES);
+        }
+    }
+}
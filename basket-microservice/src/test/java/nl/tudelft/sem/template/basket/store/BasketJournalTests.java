@@ -0,0 +1,216 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Basket;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BasketJournalTests {
+
+    private static final int SEGMENT_SIZE = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    private Pizza margherita;
+    private Pizza hawaii;
+
+    @BeforeEach
+    void setup() {
+        margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        hawaii = new Pizza("Hawaii", List.of(new Ingredient("Pineapple", 0.99), new Ingredient("Ham", 3.00)));
+    }
+
+    @Test
+    void basketsSurviveRestart() throws IOException {
+        LocalDateTime pickup = LocalDateTime.of(2030, 1, 2, 18, 30);
+        InMemoryBasketStore store = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(store)) {
+            store.create("Alice");
+            store.update("Alice", basket -> {
+                basket.getBasketInfo().getPizzas().addAll(List.of(margherita, margherita, hawaii));
+                basket.getBasketInfo().setCoupon(new Coupon("HALF", 'D', 50, true));
+                basket.getBasketInfo().setPrice(12.34);
+                basket.getBasketInfo().setStoreId(4);
+                basket.setTime(pickup);
+                basket.setVersion(42);
+                return basket;
+            });
+            store.create("Bob");
+            store.create("Carol");
+            store.remove("Bob");
+        }
+
+        InMemoryBasketStore restored = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(restored)) {
+            assertThat(restored.size()).isEqualTo(2);
+            assertThat(restored.get("Bob")).isNull();
+            Basket alice = restored.get("Alice");
+            assertThat(alice.getBasketInfo().getPizzas()).containsExactly(margherita, margherita, hawaii);
+            assertThat(alice.getBasketInfo().getCoupon().getCode()).isEqualTo("HALF");
+            assertThat(alice.getBasketInfo().getCoupon().getRate()).isEqualTo(50);
+            assertThat(alice.getBasketInfo().getPrice()).isEqualTo(12.34);
+            assertThat(alice.getBasketInfo().getStoreId()).isEqualTo(4);
+            assertThat(alice.getTime()).isEqualTo(pickup);
+            assertThat(alice.getVersion()).isEqualTo(42);
+        }
+    }
+
+    @Test
+    void menuPizzasKeepTheirIds() throws IOException {
+        Pizza first = Pizza.immutableOf(7L, "Margherita", margherita.getIngredients());
+        Pizza second = Pizza.immutableOf(8L, "Margherita", margherita.getIngredients());
+        InMemoryBasketStore store = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(store)) {
+            store.create("Alice");
+            store.update("Alice", basket -> basket.getBasketInfo().getPizzas().addAll(List.of(first, second, margherita)));
+        }
+
+        InMemoryBasketStore restored = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(restored)) {
+            List<Pizza> pizzas = restored.get("Alice").getBasketInfo().getPizzas();
+            assertThat(pizzas).containsExactly(first, second, margherita);
+            assertThat(pizzas).extracting(Pizza::getId).containsExactly(7L, 8L, null);
+        }
+    }
+
+    @Test
+    void recordsAreVisibleWithoutClose() throws IOException {
+        InMemoryBasketStore store = new InMemoryBasketStore(8);
+        BasketJournal crashed = open(store);
+        store.create("Alice");
+        store.update("Alice", basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+
+        InMemoryBasketStore restored = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(restored)) {
+            assertThat(restored.get("Alice").getBasketInfo().getPizzas()).containsExactly(hawaii);
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void snapshotReplacesOldSegments() throws IOException {
+        InMemoryBasketStore store = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(store)) {
+            for (int i = 0; i < 100; i++) {
+                store.create("customer" + i);
+            }
+            journal.snapshot();
+            store.update("customer0", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+            store.remove("customer1");
+            journal.snapshot();
+            store.create("late");
+        }
+
+        assertThat(files("snapshot-")).hasSize(1);
+        assertThat(files("wal-")).hasSize(1);
+        InMemoryBasketStore restored = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(restored)) {
+            assertThat(restored.size()).isEqualTo(100);
+            assertThat(restored.get("customer0").getBasketInfo().getPizzas()).containsExactly(margherita);
+            assertThat(restored.get("customer1")).isNull();
+            assertThat(restored.get("late")).isNotNull();
+        }
+    }
+
+    @Test
+    void tornRecordIsIgnored() throws IOException {
+        InMemoryBasketStore store = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(store)) {
+            store.create("Alice");
+            store.update("Alice", basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+        }
+        Path segment = files("wal-").get(0);
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            long end = 0;
+            while (file.read(buffer.clear(), end) == 4 && buffer.getInt(0) != 0) {
+                end += 8 + buffer.getInt(0);
+            }
+            // a record header whose body never made it to disk
+            file.write(ByteBuffer.allocate(8).putInt(0, 40).putInt(4, 12345), end);
+        }
+
+        InMemoryBasketStore restored = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(restored)) {
+            assertThat(restored.get("Alice").getBasketInfo().getPizzas()).containsExactly(hawaii);
+            restored.create("Bob");
+        }
+        InMemoryBasketStore again = new InMemoryBasketStore(8);
+        try (BasketJournal journal = open(again)) {
+            assertThat(again.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void offHeapStoreCanBeJournaled() throws IOException {
+        OffHeapBasketStore store = new OffHeapBasketStore(8);
+        try (BasketJournal journal = open(store)) {
+            store.create("Alice");
+            store.update("Alice", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+        }
+
+        OffHeapBasketStore restored = new OffHeapBasketStore(8);
+        try (BasketJournal journal = open(restored)) {
+            assertThat(restored.get("Alice").getBasketInfo().getPizzas()).containsExactly(margherita);
+        }
+    }
+
+    @Test
+    void concurrentAppendsAcrossSegmentsAreKept() throws IOException, InterruptedException {
+        int threads = 8;
+        int basketsPerThread = 2_000;
+        InMemoryBasketStore store = new InMemoryBasketStore(64);
+        try (BasketJournal journal = BasketJournal.open(store, directory, 1 << 14, Duration.ofMillis(1),
+                Duration.ofDays(1))) {
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                String prefix = "thread" + t + "-";
+                new Thread(() -> {
+                    for (int i = 0; i < basketsPerThread; i++) {
+                        store.create(prefix + i);
+                        store.update(prefix + i, basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+                    }
+                    done.countDown();
+                }).start();
+            }
+            done.await();
+        }
+
+        InMemoryBasketStore restored = new InMemoryBasketStore(64);
+        try (BasketJournal journal = open(restored)) {
+            assertThat(restored.size()).isEqualTo(threads * basketsPerThread);
+            assertThat(restored.get("thread7-1999").getBasketInfo().getPizzas()).containsExactly(hawaii);
+        }
+    }
+
+    private BasketJournal open(StripedBasketStore<?> store) throws IOException {
+        return BasketJournal.open(store, directory, SEGMENT_SIZE, Duration.ofMillis(10), Duration.ofDays(1));
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
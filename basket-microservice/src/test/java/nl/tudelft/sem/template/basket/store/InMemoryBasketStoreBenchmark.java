@@ -0,0 +1,81 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Ingredient;
+import commons.Pizza;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+/**
+ * Contention benchmark for the basket store.
+ * Runs the same mix of reads and writes from 1 up to 64 threads and reports the throughput of every run.
+ * Besides the numbers it checks that no update was lost at any level of concurrency.
+ * Left out of the tests, run it with the benchmark task.
+ */
+@Tag("benchmark")
+public class InMemoryBasketStoreBenchmark {
+
+    private static final int CUSTOMERS = 1024;
+    private static final int OPS_PER_THREAD = 20_000;
+
+    private final Pizza pizza = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+
+    @Test
+    void scalesFromOneToSixtyFourThreads(TestReporter reporter) throws InterruptedException {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            InMemoryBasketStore store = new InMemoryBasketStore();
+            for (int c = 0; c < CUSTOMERS; c++) {
+                store.create("customer" + c);
+            }
+
+            LongAdder writes = new LongAdder();
+            long nanos = run(store, threads, writes);
+
+            long pizzas = 0;
+            for (int c = 0; c < CUSTOMERS; c++) {
+                pizzas += store.remove("customer" + c).getBasketInfo().getPizzas().size();
+            }
+            assertThat(pizzas).isEqualTo(writes.sum());
+
+            long ops = (long) threads * OPS_PER_THREAD;
+            reporter.publishEntry("ops/s with " + threads + " threads",
+                    String.valueOf(ops * 1_000_000_000L / Math.max(1, nanos)));
+        }
+    }
+
+    private long run(InMemoryBasketStore store, int threads, LongAdder writes) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        String customer = "customer" + random.nextInt(CUSTOMERS);
+                        if (random.nextInt(4) == 0) {
+                            store.update(customer, basket -> basket.getBasketInfo().getPizzas().add(pizza));
+                            writes.increment();
+                        } else {
+                            store.get(customer);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+}
@@ -0,0 +1,171 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Basket;
+import commons.Ingredient;
+import commons.Pizza;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryBasketStoreTests {
+
+    private InMemoryBasketStore store;
+    private Pizza pizza;
+
+    @BeforeEach
+    void setup() {
+        store = new InMemoryBasketStore(8);
+        pizza = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+    }
+
+    @Test
+    void createIsIdempotent() {
+        store.create("User");
+        store.update("User", basket -> basket.getBasketInfo().getPizzas().add(pizza));
+        store.create("User");
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.get("User").getBasketInfo().getPizzas()).hasSize(1);
+    }
+
+    @Test
+    void getReturnsDetachedSnapshot() {
+        store.create("User");
+        Basket snapshot = store.get("User");
+        snapshot.getBasketInfo().getPizzas().add(pizza);
+
+        assertThat(store.get("User").getBasketInfo().getPizzas()).isEmpty();
+    }
+
+    @Test
+    void updateOfMissingBasketReturnsNull() {
+        assertThat(store.<Object>update("Nobody", basket -> basket)).isNull();
+        assertThat(store.get("Nobody")).isNull();
+    }
+
+    @Test
+    void rejectedUpdateIsNotStored() {
+        List<String> stored = new ArrayList<>();
+        store.create("User");
+        store.setListener(new BasketStoreListener() {
+            @Override
+            public void stored(String customerId, Basket basket) {
+                stored.add(customerId);
+            }
+
+            @Override
+            public void removed(String customerId) {
+                // only changes are counted
+            }
+        });
+
+        assertThat(store.<Object>update("User", basket -> null)).isNull();
+        assertThat(stored).isEmpty();
+
+        store.update("User", basket -> basket.getBasketInfo().getPizzas().add(pizza));
+        assertThat(stored).containsExactly("User");
+    }
+
+    @Test
+    void removeReturnsBasketOnlyOnce() {
+        store.create("User");
+
+        assertThat(store.remove("User")).isNotNull();
+        assertThat(store.remove("User")).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws InterruptedException {
+        int threads = 16;
+        int perThread = 500;
+        store.create("Shared");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    store.update("Shared", basket -> basket.getBasketInfo().getPizzas().add(pizza));
+                    store.get("Shared");
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(store.get("Shared").getBasketInfo().getPizzas()).hasSize(threads * perThread);
+    }
+
+    @Test
+    void idleBasketsAreEvicted() {
+        AtomicLong now = new AtomicLong(0);
+        InMemoryBasketStore expiring = new InMemoryBasketStore(8, Duration.ofMinutes(1), Duration.ZERO, now::get);
+        expiring.create("Idle");
+        expiring.create("Active");
+
+        for (int second = 1; second <= 90; second++) {
+            now.set(second * 1000L);
+            if (second % 30 == 0) {
+                expiring.get("Active");
+            }
+            expiring.sweep(now.get());
+        }
+
+        assertThat(expiring.get("Idle")).isNull();
+        assertThat(expiring.get("Active")).isNotNull();
+        assertThat(expiring.statistics()).isEqualTo(new BasketStoreStatistics(1, 1, 0));
+    }
+
+    @Test
+    void basketsPastPickupTimeAreEvicted() {
+        long start = LocalDateTime.of(2020, 1, 1, 12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        AtomicLong now = new AtomicLong(start);
+        InMemoryBasketStore expiring = new InMemoryBasketStore(8, Duration.ofHours(1), Duration.ofMinutes(10), now::get);
+        expiring.create("User");
+        expiring.update("User", basket -> {
+            basket.setTime(LocalDateTime.of(2020, 1, 1, 12, 5));
+            return basket;
+        });
+
+        now.set(start + Duration.ofMinutes(14).toMillis());
+        expiring.sweep(now.get());
+        assertThat(expiring.get("User")).isNotNull();
+
+        now.set(start + Duration.ofMinutes(15).toMillis());
+        expiring.sweep(now.get());
+        assertThat(expiring.get("User")).isNull();
+        assertThat(expiring.statistics().getAbsoluteEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void removedBasketsAreNotCountedAsEvicted() {
+        AtomicLong now = new AtomicLong(0);
+        InMemoryBasketStore expiring = new InMemoryBasketStore(8, Duration.ofSeconds(5), Duration.ZERO, now::get);
+        expiring.create("User");
+        expiring.sweep(0);
+        expiring.remove("User");
+        expiring.create("User");
+
+        now.set(5_000);
+        expiring.sweep(now.get());
+
+        assertThat(expiring.statistics()).isEqualTo(new BasketStoreStatistics(0, 1, 0));
+    }
+}
@@ -0,0 +1,241 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Basket;
+import commons.BasketInfo;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import commons.PriceTotals;
+import commons.strategies.CustomStrategy;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapBasketStoreTests {
+
+    private OffHeapBasketStore store;
+    private Pizza margherita;
+    private Pizza hawaii;
+
+    @BeforeEach
+    void setup() {
+        store = new OffHeapBasketStore(8);
+        Ingredient cheese = new Ingredient("Cheese", 2.00);
+        margherita = new Pizza("Margherita", List.of(cheese));
+        hawaii = new Pizza("Hawaii", List.of(cheese, new Ingredient("Pineapple", 0.99), new Ingredient("Ham", 3.00)));
+    }
+
+    @Test
+    void basketSurvivesRoundTrip() {
+        Coupon coupon = new Coupon("PIZZA30", 'D', 30, false);
+        LocalDateTime pickup = LocalDateTime.of(2030, 5, 17, 18, 45, 12, 500);
+        store.create("User");
+        store.update("User", basket -> {
+            basket.getBasketInfo().getPizzas().addAll(List.of(margherita, margherita, hawaii, margherita));
+            basket.getBasketInfo().setCoupon(coupon);
+            basket.getBasketInfo().setPrice(17.45);
+            basket.getBasketInfo().setStoreId(3);
+            basket.setTime(pickup);
+            basket.setVersion(42);
+            return basket;
+        });
+
+        Basket basket = store.get("User");
+
+        assertThat(basket.getBasketInfo().getPizzas()).containsExactly(margherita, margherita, hawaii, margherita);
+        assertThat(basket.getBasketInfo().getCoupon()).isSameAs(coupon);
+        assertThat(basket.getBasketInfo().getPrice()).isEqualTo(17.45);
+        assertThat(basket.getBasketInfo().getStoreId()).isEqualTo(3);
+        assertThat(basket.getTime()).isEqualTo(pickup);
+        assertThat(basket.getVersion()).isEqualTo(42);
+    }
+
+    @Test
+    void priceIsKeptExactly() {
+        store.create("User");
+        store.update("User", basket -> {
+            basket.getBasketInfo().setPrice(17.455);
+            return true;
+        });
+
+        assertThat(store.get("User").getBasketInfo().getPrice()).isEqualTo(17.455);
+    }
+
+    @Test
+    void customCouponsWithTheSameCodeAreKeptApart() {
+        Coupon first = new Coupon("CUSTOM", 'C', 0, true, new CustomStrategy(List.of(margherita), 4.00));
+        Coupon second = new Coupon("CUSTOM", 'C', 0, true, new CustomStrategy(List.of(hawaii), 6.00));
+        store.create("First");
+        store.create("Second");
+        store.update("First", basket -> {
+            basket.getBasketInfo().setCoupon(first);
+            return true;
+        });
+        store.update("Second", basket -> {
+            basket.getBasketInfo().setCoupon(second);
+            return true;
+        });
+
+        assertThat(store.get("First").getBasketInfo().getCoupon()).isSameAs(first);
+        assertThat(store.get("Second").getBasketInfo().getCoupon()).isSameAs(second);
+    }
+
+    @Test
+    void valuesBeyondTheDictionariesAreStoredInline() {
+        BasketCodec codec = new BasketCodec();
+        Basket filler = new Basket("Filler");
+        for (int i = 0; i < BasketCodec.MAX_PIZZA_CODES + BasketCodec.MAX_INGREDIENT_CODES; i++) {
+            filler.getBasketInfo().setPizzas(List.of(new Pizza("pizza" + i, List.of(new Ingredient("topping" + i, 1.00)))));
+            filler.getBasketInfo().setCoupon(new Coupon("CODE" + i, 'D', 10, false));
+            codec.encode(filler);
+        }
+        Pizza truffle = new Pizza("Truffle", List.of(new Ingredient("Truffle", 7.25)));
+        Coupon coupon = new Coupon("LAST01", 'D', 15, true);
+        Basket basket = new Basket("User", new BasketInfo(List.of(truffle, truffle), 17.50, coupon));
+
+        Basket decoded = codec.decode("User", ByteBuffer.wrap(codec.encode(basket)));
+
+        assertThat(decoded.getBasketInfo().getPizzas()).containsExactly(truffle, truffle);
+        assertThat(decoded.getBasketInfo().getPrice()).isEqualTo(17.50);
+        Coupon inline = decoded.getBasketInfo().getCoupon();
+        assertThat(inline.getCode()).isEqualTo("LAST01");
+        assertThat(inline.getRate()).isEqualTo(15);
+        assertThat(inline.isLimitedTime()).isTrue();
+        assertThat(inline.calculatePrice(List.of(truffle))).isEqualTo(coupon.calculatePrice(List.of(truffle)));
+    }
+
+    @Test
+    void consecutiveUpdatesKeepTheRunningTotals() {
+        store.create("User");
+        PriceTotals first = store.update("User", basket -> {
+            basket.getBasketInfo().getPizzas().add(margherita);
+            return basket.getBasketInfo().totals();
+        });
+        PriceTotals second = store.update("User", basket -> {
+            basket.getBasketInfo().getPizzas().add(hawaii);
+            return basket.getBasketInfo().totals();
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.subtotal()).isCloseTo(margherita.getPrice() + hawaii.getPrice(), Offset.offset(1e-9));
+        assertThat(store.get("User").getBasketInfo().getPizzas()).containsExactly(margherita, hawaii);
+    }
+
+    @Test
+    void getReturnsDetachedSnapshot() {
+        store.create("User");
+        Basket snapshot = store.get("User");
+        snapshot.getBasketInfo().getPizzas().add(margherita);
+
+        assertThat(store.get("User").getBasketInfo().getPizzas()).isEmpty();
+    }
+
+    @Test
+    void failedUpdateLeavesBasketUnchanged() {
+        store.create("User");
+        store.update("User", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+
+        try {
+            store.update("User", basket -> {
+                basket.getBasketInfo().getPizzas().add(hawaii);
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException expected) {
+            // the change is not kept
+        }
+
+        assertThat(store.get("User").getBasketInfo().getPizzas()).containsExactly(margherita);
+    }
+
+    @Test
+    void removeReturnsBasketOnlyOnce() {
+        store.create("User");
+        store.update("User", basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+
+        assertThat(store.remove("User").getBasketInfo().getPizzas()).containsExactly(hawaii);
+        assertThat(store.remove("User")).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void freedBlocksAreReused() {
+        for (int round = 0; round < 100; round++) {
+            for (int c = 0; c < 1000; c++) {
+                store.create("customer" + c);
+                store.update("customer" + c, basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+            }
+            for (int c = 0; c < 1000; c++) {
+                store.remove("customer" + c);
+            }
+        }
+        long reserved = store.reservedBytes();
+        for (int c = 0; c < 1000; c++) {
+            store.create("customer" + c);
+            store.update("customer" + c, basket -> basket.getBasketInfo().getPizzas().add(hawaii));
+        }
+
+        assertThat(store.reservedBytes()).isEqualTo(reserved);
+    }
+
+    @Test
+    void largeBasketsMoveToLargerBlocks() {
+        store.create("User");
+        for (int i = 0; i < 500; i++) {
+            Pizza pizza = i % 2 == 0 ? margherita : hawaii;
+            store.update("User", basket -> basket.getBasketInfo().getPizzas().add(pizza));
+        }
+
+        assertThat(store.get("User").getBasketInfo().getPizzas()).hasSize(500);
+    }
+
+    @Test
+    void idleBasketsAreEvicted() {
+        AtomicLong now = new AtomicLong(0);
+        OffHeapBasketStore expiring = new OffHeapBasketStore(8, Duration.ofMinutes(1), Duration.ZERO, now::get);
+        expiring.create("Idle");
+
+        now.set(60_000);
+        expiring.sweep(now.get());
+
+        assertThat(expiring.get("Idle")).isNull();
+        assertThat(expiring.statistics()).isEqualTo(new BasketStoreStatistics(0, 1, 0));
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws InterruptedException {
+        int threads = 8;
+        int perThread = 200;
+        store.create("Shared");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    store.update("Shared", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(store.get("Shared").getBasketInfo().getPizzas()).hasSize(threads * perThread);
+    }
+}
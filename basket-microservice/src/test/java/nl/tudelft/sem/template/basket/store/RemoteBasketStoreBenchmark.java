@@ -0,0 +1,94 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Ingredient;
+import commons.Pizza;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+/**
+ * Throughput of one basket node against three basket nodes sharing one basket store server.
+ * Every node is a separate {@link RemoteBasketStore} with its own connections, and gets the same number of client
+ * threads, so three nodes serve three times the clients. Besides the numbers it checks that no update was lost.
+ * Left out of the tests, run it with the benchmark task.
+ */
+@Tag("benchmark")
+public class RemoteBasketStoreBenchmark {
+
+    private static final int CUSTOMERS = 256;
+    private static final int THREADS_PER_NODE = 4;
+    private static final int OPS_PER_THREAD = 2_000;
+
+    private final Pizza pizza = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+
+    @Test
+    void oneNodeAgainstThreeNodes(TestReporter reporter) throws IOException, InterruptedException {
+        for (int nodeCount : new int[] {1, 3}) {
+            try (BasketStoreServer server = new BasketStoreServer(0)) {
+                InetSocketAddress address = new InetSocketAddress("localhost", server.getPort());
+                List<RemoteBasketStore> nodes = new ArrayList<>();
+                for (int n = 0; n < nodeCount; n++) {
+                    nodes.add(new RemoteBasketStore(address, THREADS_PER_NODE));
+                }
+                for (int c = 0; c < CUSTOMERS; c++) {
+                    nodes.get(0).create("customer" + c);
+                }
+
+                LongAdder writes = new LongAdder();
+                long nanos = run(nodes, writes);
+
+                long pizzas = 0;
+                for (int c = 0; c < CUSTOMERS; c++) {
+                    pizzas += nodes.get(c % nodeCount).remove("customer" + c).getBasketInfo().getPizzas().size();
+                }
+                assertThat(pizzas).isEqualTo(writes.sum());
+                nodes.forEach(RemoteBasketStore::close);
+
+                long ops = (long) nodeCount * THREADS_PER_NODE * OPS_PER_THREAD;
+                reporter.publishEntry("ops/s with " + nodeCount + " nodes",
+                        String.valueOf(ops * 1_000_000_000L / Math.max(1, nanos)));
+            }
+        }
+    }
+
+    private long run(List<RemoteBasketStore> nodes, LongAdder writes) throws InterruptedException {
+        int threads = nodes.size() * THREADS_PER_NODE;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            RemoteBasketStore store = nodes.get(t % nodes.size());
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        String customer = "customer" + random.nextInt(CUSTOMERS);
+                        if (random.nextInt(4) == 0) {
+                            store.update(customer, basket -> basket.getBasketInfo().getPizzas().add(pizza));
+                            writes.increment();
+                        } else {
+                            store.get(customer);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+}
@@ -0,0 +1,206 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Basket;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import commons.strategies.CustomStrategy;
+import commons.strategies.PizzaCatalog;
+import commons.strategies.StrategyConverter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.tudelft.sem.template.basket.services.BasketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class RemoteBasketStoreTests {
+
+    private BasketStoreServer server;
+    private final List<RemoteBasketStore> nodes = new ArrayList<>();
+    private Pizza margherita;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = new BasketStoreServer(0);
+        margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        nodes.forEach(RemoteBasketStore::close);
+        server.close();
+    }
+
+    @Test
+    void nodesShareBaskets() {
+        RemoteBasketStore first = node();
+        RemoteBasketStore second = node();
+        LocalDateTime pickup = LocalDateTime.of(2030, 1, 2, 18, 30);
+
+        first.create("Alice");
+        second.update("Alice", basket -> {
+            basket.getBasketInfo().getPizzas().add(margherita);
+            basket.getBasketInfo().setCoupon(new Coupon("HALF", 'D', 50, true));
+            basket.getBasketInfo().setStoreId(3);
+            basket.setTime(pickup);
+            return basket;
+        });
+
+        Basket basket = first.get("Alice");
+        assertThat(basket.getBasketInfo().getPizzas()).containsExactly(margherita);
+        assertThat(basket.getBasketInfo().getCoupon().getCode()).isEqualTo("HALF");
+        assertThat(basket.getBasketInfo().getStoreId()).isEqualTo(3);
+        assertThat(basket.getTime()).isEqualTo(pickup);
+        assertThat(first.size()).isEqualTo(1);
+    }
+
+    @Test
+    void createKeepsExistingBasket() {
+        RemoteBasketStore first = node();
+        RemoteBasketStore second = node();
+
+        first.create("Alice");
+        first.update("Alice", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+
+        assertThat(second.create("Alice").getBasketInfo().getPizzas()).containsExactly(margherita);
+    }
+
+    @Test
+    void removeIsSeenByOtherNodes() {
+        RemoteBasketStore first = node();
+        RemoteBasketStore second = node();
+
+        first.create("Alice");
+        assertThat(second.remove("Alice")).isNotNull();
+
+        assertThat(first.get("Alice")).isNull();
+        assertThat((Boolean) first.update("Alice", basket -> true)).isNull();
+        assertThat(second.remove("Alice")).isNull();
+    }
+
+    @Test
+    void concurrentUpdatesFromSeveralNodesAreNotLost() throws InterruptedException {
+        List<RemoteBasketStore> stores = List.of(node(), node(), node());
+        stores.get(0).create("Alice");
+        int updatesPerNode = 200;
+
+        CountDownLatch done = new CountDownLatch(stores.size());
+        for (RemoteBasketStore store : stores) {
+            new Thread(() -> {
+                for (int i = 0; i < updatesPerNode; i++) {
+                    store.update("Alice", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        assertThat(stores.get(1).get("Alice").getBasketInfo().getPizzas()).hasSize(stores.size() * updatesPerNode);
+    }
+
+    @Test
+    void customCouponSurvivesRoundTrip() {
+        Pizza bbqChicken = new Pizza("BBQ Chicken", List.of(new Ingredient("Chicken", 4.00)));
+        PizzaCatalog catalog = Mockito.mock(PizzaCatalog.class);
+        Mockito.when(catalog.findByName("BBQ Chicken")).thenReturn(bbqChicken);
+        Mockito.when(catalog.findByName("Margherita")).thenReturn(margherita);
+        RemoteBasketStore first = node();
+        RemoteBasketStore second = node(new StrategyConverter(catalog));
+        Coupon custom = new Coupon("COMBO", 'C', 0, true, new CustomStrategy(List.of(bbqChicken, margherita), 5.00));
+        first.create("Alice");
+        first.update("Alice", basket -> {
+            basket.getBasketInfo().getPizzas().addAll(List.of(margherita, bbqChicken));
+            basket.getBasketInfo().setCoupon(custom);
+            return basket;
+        });
+
+        Coupon coupon = second.update("Alice", basket -> basket.getBasketInfo().getCoupon());
+        assertThat(coupon.getType()).isEqualTo('C');
+        assertThat(coupon.getStrategy().toString()).isEqualTo(custom.getStrategy().toString());
+        assertThat(coupon.calculatePrice(List.of(margherita, bbqChicken))).isEqualTo(3 + 5.00);
+    }
+
+    @Test
+    void basketServiceRunsOnRemoteStore() {
+        BasketService first = new BasketService(node());
+        BasketService second = new BasketService(node());
+
+        first.createBasket("Alice");
+        first.addPizzaToBasket("Alice", margherita);
+        second.addPizzaToBasket("Alice", margherita);
+
+        assertThat(second.getBasket("Alice").getBasketInfo().getPizzas()).hasSize(2);
+        assertThat(first.getBasket("Alice").getBasketInfo().getPrice()).isEqualTo(3.0 + 2 * margherita.getPrice());
+    }
+
+    @Test
+    void serverCanListenOnAllAddresses() throws IOException {
+        try (BasketStoreServer shared = new BasketStoreServer(null, 0, Duration.ZERO)) {
+            RemoteBasketStore store = new RemoteBasketStore(new InetSocketAddress("localhost", shared.getPort()), 1);
+            nodes.add(store);
+            store.create("Alice");
+
+            assertThat(shared.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void serverDropsClientThatSendsBadLength() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeByte(BasketStoreServer.PUT);
+            out.writeUTF("Alice");
+            out.writeLong(0);
+            out.writeInt(-1);
+            out.flush();
+
+            assertThat(new DataInputStream(socket.getInputStream()).read()).isEqualTo(-1);
+        }
+        assertThat(server.size()).isZero();
+    }
+
+    @Test
+    void idleBasketsExpireOnTheServer() throws IOException {
+        AtomicLong now = new AtomicLong(0);
+        try (BasketStoreServer expiring = new BasketStoreServer(InetAddress.getLoopbackAddress(), 0,
+                Duration.ofMinutes(1), now::get)) {
+            RemoteBasketStore store = new RemoteBasketStore(new InetSocketAddress("localhost", expiring.getPort()), 1);
+            nodes.add(store);
+            store.create("Idle");
+            store.create("Busy");
+
+            now.set(50_000);
+            store.update("Busy", basket -> basket.getBasketInfo().getPizzas().add(margherita));
+            now.set(60_000);
+            expiring.sweep(now.get());
+
+            assertThat(store.get("Idle")).isNull();
+            assertThat(store.get("Busy").getBasketInfo().getPizzas()).containsExactly(margherita);
+        }
+    }
+
+    private RemoteBasketStore node() {
+        return node(new StrategyConverter());
+    }
+
+    private RemoteBasketStore node(StrategyConverter strategies) {
+        RemoteBasketStore store = new RemoteBasketStore(new InetSocketAddress("localhost", server.getPort()), 4,
+                RemoteBasketStore.DEFAULT_TIMEOUT, strategies);
+        nodes.add(store);
+        return store;
+    }
+}
@@ -0,0 +1,84 @@
+package nl.tudelft.sem.template.basket.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTests {
+
+    private TimingWheel<String> wheel;
+    private List<String> fired;
+
+    @BeforeEach
+    void setup() {
+        wheel = new TimingWheel<>(1000, 0);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    void firesOnlyOnceDue() {
+        wheel.schedule("a", 5_000);
+
+        wheel.advance(4_999, fired::add);
+        assertThat(fired).isEmpty();
+
+        wheel.advance(5_000, fired::add);
+        assertThat(fired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDeadlinesFireOnNextTick() {
+        wheel.advance(10_000, fired::add);
+        wheel.schedule("late", 1_000);
+
+        wheel.advance(10_999, fired::add);
+        assertThat(fired).isEmpty();
+        wheel.advance(11_000, fired::add);
+        assertThat(fired).containsExactly("late");
+    }
+
+    @Test
+    void cascadesFromHigherLevels() {
+        long hour = 3_600_000L;
+        long day = 24 * hour;
+        wheel.schedule("hour", hour);
+        wheel.schedule("day", day);
+
+        wheel.advance(hour - 1_000, fired::add);
+        assertThat(fired).isEmpty();
+        wheel.advance(hour, fired::add);
+        assertThat(fired).containsExactly("hour");
+        wheel.advance(day, fired::add);
+        assertThat(fired).containsExactly("hour", "day");
+    }
+
+    @Test
+    void deadlinesBeyondHorizonAreKept() {
+        long farAway = 1000L * (1L << 26);
+        wheel.schedule("far", farAway);
+
+        wheel.advance(farAway - 1_000, fired::add);
+        assertThat(fired).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        wheel.advance(farAway, fired::add);
+        assertThat(fired).containsExactly("far");
+    }
+
+    @Test
+    void rescheduledItemsFireOnLaterTick() {
+        wheel.schedule("again", 1_000);
+        List<Long> ticks = new ArrayList<>();
+        long[] now = {1_000};
+
+        wheel.advance(now[0], item -> {
+            ticks.add(now[0]);
+            wheel.schedule(item, now[0]);
+        });
+        assertThat(ticks).hasSize(1);
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+}
@@ -5,13 +5,28 @@ import commons.Coupon;
 import commons.Ingredient;
 import commons.Pizza;
 import nl.tudelft.sem.template.basket.builder.PizzaBuilder;
+import nl.tudelft.sem.template.basket.models.Checkout;
+import nl.tudelft.sem.template.basket.services.BasketEventService;
 import nl.tudelft.sem.template.basket.services.BasketService;
+import nl.tudelft.sem.template.basket.services.CouponRedemptionLedger;
+import nl.tudelft.sem.template.basket.store.InMemoryBasketStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class UtilsTest {
 
@@ -27,16 +42,91 @@ public class UtilsTest {
 
     @Test
     void fullBuilderTest() {
-        builder.setName("4 Cheese");
         Ingredient ingredient = new Ingredient("Cheese", 1.99);
         Ingredient ingredient2 = new Ingredient("Salami", 2.87);
         Ingredient ingredient3 = new Ingredient("Tomato Sauce", 0.99);
-        builder.setIngredients(List.of(ingredient, ingredient2, ingredient3));
-        Pizza pizza = builder.build();
+        Pizza pizza = builder.build("4 Cheese", List.of(ingredient, ingredient2, ingredient3));
         assertThat(pizza.getName()).isEqualTo("4 Cheese");
         assertThat(pizza.getIngredients()).containsAll(List.of(ingredient, ingredient2, ingredient3));
     }
 
+    @Test
+    void builderInternsPizzasTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Pizza pizza = builder.build("Margherita", List.of(cheese));
+        Pizza same = builder.build("Margherita", List.of(new Ingredient("Cheese", 1.99)));
+        Pizza other = builder.build("Margherita", List.of(new Ingredient("Cheese", 2.49)));
+
+        assertThat(same).isSameAs(pizza);
+        assertThat(other).isNotSameAs(pizza).isNotEqualTo(pizza);
+        assertThat(builder.build("Margherita", List.of(cheese))).isSameAs(pizza);
+        assertThat(builder.internedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void builderDropsLeastRecentlyBuiltPizzaTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Pizza margherita = builder.build("Margherita", List.of(cheese));
+        Pizza first = builder.build("Custom 0", List.of(cheese));
+        for (int i = 1; i < PizzaBuilder.MAX_INTERNED + 1000; i++) {
+            builder.build("Custom " + i, List.of(cheese));
+            if (i % 1000 == 0) {
+                assertThat(builder.build("Margherita", List.of(cheese))).isSameAs(margherita);
+            }
+        }
+
+        assertThat(builder.internedCount()).isEqualTo(PizzaBuilder.MAX_INTERNED);
+        assertThat(builder.build("Margherita", List.of(cheese))).isSameAs(margherita);
+        assertThat(builder.build("Custom 0", List.of(cheese))).isNotSameAs(first).isEqualTo(first);
+    }
+
+    @Test
+    void concurrentBuildsShareOnePizzaTest() throws InterruptedException {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        int threads = 8;
+        Pizza[] built = new Pizza[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    builder.build("Custom " + (thread * 5_000 + i), List.of(cheese));
+                    built[thread] = builder.build("Margherita", List.of(cheese));
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        assertThat(built).allSatisfy(pizza -> assertThat(pizza).isSameAs(built[0]));
+        assertThat(builder.internedCount()).isLessThanOrEqualTo(PizzaBuilder.MAX_INTERNED);
+    }
+
+    @Test
+    void menuPizzaKeepsItsIdsTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        ReflectionTestUtils.setField(cheese, "id", 3L);
+        Pizza menuPizza = new Pizza("Margherita", List.of(cheese));
+        ReflectionTestUtils.setField(menuPizza, "id", 7L);
+
+        Pizza pizza = builder.build(menuPizza);
+
+        assertThat(pizza.getId()).isEqualTo(7L);
+        assertThat(pizza.getIngredients().get(0).getId()).isEqualTo(3L);
+        assertThat(builder.build(menuPizza)).isSameAs(pizza);
+        assertThat(builder.build("Margherita", List.of(cheese))).isNotSameAs(pizza).isNotEqualTo(pizza);
+    }
+
+    @Test
+    void builderDoesNotShareMutableIngredientsTest() {
+        Ingredient cheese = new Ingredient("Cheese", 1.99);
+        Pizza pizza = builder.build("Margherita", List.of(cheese));
+        cheese.setPrice(5.00);
+
+        assertThat(pizza.getIngredients().get(0).getPrice()).isEqualTo(1.99);
+        assertThat(builder.build("Margherita", List.of(cheese))).isNotSameAs(pizza);
+    }
+
     @Test
     void createBasketTest() {
         basketService.createBasket("User");
@@ -87,6 +177,113 @@ public class UtilsTest {
         assertThat(basketService.applyCouponToBasket("User", coupon3)).isFalse();
     }
 
+    @Test
+    void singleUseCouponIsInOneBasketTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        Coupon coupon = new Coupon("ONCE01", 'D', 30, false);
+        basketService.createBasket("User");
+        basketService.createBasket("Other");
+        basketService.addPizzaToBasket("User", margherita);
+        basketService.addPizzaToBasket("Other", margherita);
+
+        assertThat(basketService.applyCouponToBasket("User", coupon)).isTrue();
+        assertThat(basketService.couponTaken("Other", coupon)).isTrue();
+        assertThat(basketService.applyCouponToBasket("Other", coupon)).isFalse();
+        assertThat(basketService.applyBestCoupon("Other", List.of(coupon))).isNull();
+
+        // removing the coupon gives it back
+        basketService.removeCouponFromBasket("User");
+        assertThat(basketService.applyCouponToBasket("Other", coupon)).isTrue();
+        assertThat(basketService.applyCouponToBasket("User", coupon)).isFalse();
+
+        // checking out redeems it for good
+        Basket checkedOut = basketService.checkout("Other").getBasket();
+        assertThat(checkedOut.getBasketInfo().getCoupon().getCode()).isEqualTo("ONCE01");
+        assertThat(basketService.applyCouponToBasket("User", coupon)).isFalse();
+        assertThat(basketService.couponTaken("User", new Coupon("ONCE01", true))).isFalse();
+    }
+
+    @Test
+    void evictedBasketReleasesSingleUseCouponTest() {
+        AtomicLong now = new AtomicLong();
+        InMemoryBasketStore store = new InMemoryBasketStore(8, Duration.ofMinutes(30), Duration.ZERO, now::get);
+        BasketService service = new BasketService(store);
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        Coupon coupon = new Coupon("ONCE01", 'D', 30, false);
+        service.createBasket("User");
+        service.createBasket("Other");
+        service.addPizzaToBasket("User", margherita);
+        assertThat(service.applyCouponToBasket("User", coupon)).isTrue();
+
+        now.set(Duration.ofMinutes(20).toMillis());
+        assertThat(service.couponTaken("Other", coupon)).isTrue();
+        service.getBasket("Other");
+        now.set(Duration.ofMinutes(31).toMillis());
+        store.sweep();
+
+        assertThat(service.getBasket("User")).isNull();
+        assertThat(service.couponTaken("Other", coupon)).isFalse();
+        assertThat(service.applyCouponToBasket("Other", coupon)).isTrue();
+    }
+
+    @Test
+    void checkoutKeepsBasketTheCallerHasTest() {
+        BasketService service = new BasketService();
+        service.createBasket("User");
+        long version = service.getBasket("User").getVersion();
+
+        Checkout kept = service.checkout("User", basket -> basket.getVersion() == version);
+        assertThat(kept.getStatus()).isEqualTo(Checkout.Status.NOT_MODIFIED);
+        assertThat(service.getBasket("User")).isNotNull();
+
+        service.addPizzaToBasket("User", new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00))));
+        Checkout checkout = service.checkout("User", basket -> basket.getVersion() == version);
+        assertThat(checkout.getStatus()).isEqualTo(Checkout.Status.CHECKED_OUT);
+        assertThat(checkout.getBasket().getBasketInfo().getPizzas()).hasSize(1);
+        assertThat(service.getBasket("User")).isNull();
+    }
+
+    @Test
+    void checkoutWithTakenCouponKeepsBasketTest() {
+        CouponRedemptionLedger ledger = new CouponRedemptionLedger(Duration.ofNanos(1));
+        BasketService service = new BasketService(new InMemoryBasketStore(), new BasketEventService(), ledger);
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        Coupon coupon = new Coupon("ONCE01", 'D', 50, false);
+        service.createBasket("User");
+        service.createBasket("Other");
+        service.addPizzaToBasket("User", margherita);
+        service.addPizzaToBasket("Other", margherita);
+
+        // the reservation of the first basket lapses at once, so the second basket can take the coupon
+        assertThat(service.applyCouponToBasket("User", coupon)).isTrue();
+        assertThat(service.applyCouponToBasket("Other", coupon)).isTrue();
+        assertThat(service.checkout("Other").getStatus()).isEqualTo(Checkout.Status.CHECKED_OUT);
+
+        Checkout checkout = service.checkout("User");
+        assertThat(checkout.getStatus()).isEqualTo(Checkout.Status.COUPON_TAKEN);
+        assertThat(checkout.getCoupon().getCode()).isEqualTo("ONCE01");
+        assertThat(checkout.getBasket().getBasketInfo().getCoupon()).isNull();
+        assertThat(checkout.getBasket().getBasketInfo().getPrice()).isEqualTo(3 + margherita.getPrice());
+        assertThat(service.getBasket("User").getBasketInfo().getCoupon()).isNull();
+
+        assertThat(service.checkout("User").getStatus()).isEqualTo(Checkout.Status.CHECKED_OUT);
+        assertThat(service.checkout("User").getStatus()).isEqualTo(Checkout.Status.NO_BASKET);
+    }
+
+    @Test
+    void replacedSingleUseCouponIsReleasedTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        basketService.createBasket("User");
+        basketService.createBasket("Other");
+        basketService.addPizzaToBasket("User", margherita);
+
+        assertThat(basketService.applyCouponToBasket("User", new Coupon("LOWW01", 'D', 10, false))).isTrue();
+        assertThat(basketService.applyCouponToBasket("User", new Coupon("HIGH01", 'D', 50, false))).isTrue();
+
+        assertThat(basketService.applyCouponToBasket("Other", new Coupon("LOWW01", 'D', 10, false))).isTrue();
+        assertThat(basketService.couponTaken("Other", new Coupon("HIGH01", 'D', 50, false))).isTrue();
+    }
+
     @Test
     void removeCouponTest() {
         Ingredient ingredient = new Ingredient("Cheese", 2.00);
@@ -100,4 +297,91 @@ public class UtilsTest {
         Basket basket = basketService.getBasket("User");
         assertThat(basket.getBasketInfo().getCoupon()).isNull();
     }
+
+    @Test
+    void applyBestCouponTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        Pizza salami = new Pizza("Salami", List.of(new Ingredient("Cheese", 2.00), new Ingredient("Salami", 3.00)));
+        basketService.createBasket("User");
+        basketService.addPizzaToBasket("User", salami);
+        basketService.addPizzaToBasket("User", salami);
+
+        List<Coupon> candidates = new ArrayList<>();
+        for (int rate = 1; rate < 40; rate++) {
+            candidates.add(new Coupon("DISC" + rate, 'D', rate, true));
+        }
+        candidates.add(new Coupon("FREE01", 'F', 0, true));
+        Coupon best = basketService.applyBestCoupon("User", candidates);
+
+        // half of two equal pizzas beats every discount below 50%
+        assertThat(best.getCode()).isEqualTo("FREE01");
+        assertThat(basketService.getBasket("User").getBasketInfo().getPrice()).isEqualTo(3.0 + salami.getPrice());
+
+        // none of the discounts is cheaper than the coupon that is applied now
+        assertThat(basketService.applyBestCoupon("User", candidates.subList(0, 39))).isNull();
+        assertThat(basketService.getBasket("User").getBasketInfo().getCoupon().getCode()).isEqualTo("FREE01");
+
+        basketService.addPizzaToBasket("User", margherita);
+        best = basketService.applyBestCoupon("User", List.of(new Coupon("HALF01", 'D', 50, true)));
+        assertThat(best.getCode()).isEqualTo("HALF01");
+        assertThat(basketService.applyBestCoupon("Nobody", candidates)).isNull();
+    }
+
+    @Test
+    void applyBatchTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        Pizza salami = new Pizza("Salami", List.of(new Ingredient("Cheese", 2.00), new Ingredient("Salami", 3.00)));
+        basketService.createBasket("User");
+        basketService.addPizzaToBasket("User", salami);
+
+        Basket basket = basketService.applyBatch("User", List.of(margherita, margherita, salami), List.of("Salami"),
+                List.of(new Coupon("TEN", 'D', 10, false), new Coupon("HALF", 'D', 50, false)));
+
+        assertThat(basket.getBasketInfo().getPizzas()).containsExactly(margherita, margherita, salami);
+        assertThat(basket.getBasketInfo().getCoupon().getCode()).isEqualTo("HALF");
+        double subtotal = 2 * margherita.getPrice() + salami.getPrice();
+        assertThat(basket.getBasketInfo().getPrice()).isEqualTo(3 + subtotal - subtotal * 50 / 100);
+        assertThat(basketService.getBasket("User").getBasketInfo().getPrice())
+                .isEqualTo(basket.getBasketInfo().getPrice());
+    }
+
+    @Test
+    void applyBatchIsAtomicTest() {
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+        basketService.createBasket("User");
+
+        Basket basket = basketService.applyBatch("User", List.of(margherita), List.of("Margherita", "Margherita"),
+                List.of());
+
+        assertThat(basket).isNull();
+        assertThat(basketService.getBasket("User").getBasketInfo().getPizzas()).isEmpty();
+    }
+
+    @Test
+    void changesArePublishedTest() {
+        BasketEventService events = mock(BasketEventService.class);
+        BasketService service = new BasketService(new InMemoryBasketStore(), events);
+        Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+
+        service.addPizzaToBasket("User", margherita);
+        verify(events, never()).publish(any(), any(), any(), any());
+
+        service.createBasket("User");
+        service.addPizzaToBasket("User", margherita);
+        service.checkout("User");
+        verify(events).publish(eq("User"), eq("pizzaAdded"), eq("Margherita"), any(Basket.class));
+        verify(events).publish(eq("User"), eq("removed"), isNull(), isNull());
+    }
+
+    @Test
+    void streamsPerCustomerAreLimitedTest() {
+        BasketEventService events = new BasketEventService();
+        for (int i = 0; i < 20; i++) {
+            events.subscribe("User");
+        }
+        events.publish("User", "pizzaAdded", "Margherita", new Basket("User"));
+
+        assertThat(events.subscriberCount("User")).isEqualTo(8);
+        assertThat(events.subscriberCount("Other")).isZero();
+    }
 }
@@ -2,30 +2,69 @@ package commons;
 
 import java.text.DecimalFormat;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings("PMD")
 public class Basket {
 
+    /**
+     * Source of basket versions, so that a new basket never gets a version that an earlier basket of the same
+     * customer had. Starts at the current time in microseconds, so versions keep growing across restarts.
+     */
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis() * 1000);
+
     private String customerId;
     private LocalDateTime time;
     private BasketInfo basketInfo;
+    private long version;
 
     public Basket(String customerId, BasketInfo basketInfo) {
         this.basketInfo = basketInfo;
         this.customerId = customerId;
         this.time = LocalDateTime.now().plusHours(1);
+        this.version = VERSIONS.incrementAndGet();
     }
 
     public Basket(String customerId) {
         this.basketInfo = new BasketInfo();
         this.customerId = customerId;
         this.time = LocalDateTime.now().plusHours(1);
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Copy constructor, creates a detached snapshot of the given basket.
+     * The pizza list is copied, so the snapshot is not affected by later changes to the original.
+     *
+     * @param other the basket to copy
+     */
+    public Basket(Basket other) {
+        this.customerId = other.customerId;
+        this.time = other.time;
+        this.basketInfo = new BasketInfo(other.basketInfo);
+        this.version = other.version;
     }
 
     public BasketInfo getBasketInfo() {
         return basketInfo;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gives the basket a new version, which must be done on every change to the basket.
+     * The new version is always higher than the previous one.
+     */
+    public void nextVersion() {
+        this.version = Math.max(version + 1, VERSIONS.incrementAndGet());
+    }
+
     public LocalDateTime getTime() { return this.time; }
 
     public void setTime(LocalDateTime time) { this.time = time; }
@@ -1,18 +1,17 @@
 package commons;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class BasketInfo {
 
-    private List<Pizza> pizzas;
+    private PizzaList pizzas;
     private double price;
     private Coupon coupon;
     private int storeId;
 
     @SuppressWarnings("PMD")
     public BasketInfo() {
-        this.pizzas = new ArrayList<>();
+        this.pizzas = new PizzaList();
         this.price = 3.0;
         this.coupon = null;
         this.storeId = -1;
@@ -20,7 +19,7 @@ public class BasketInfo {
 
     @SuppressWarnings("PMD")
     public BasketInfo(List<Pizza> pizzas, double price) {
-        this.pizzas = pizzas;
+        this.pizzas = wrap(pizzas);
         this.price = price;
         this.coupon = null;
         this.storeId = -1;
@@ -28,20 +27,38 @@ public class BasketInfo {
 
     @SuppressWarnings("PMD")
     public BasketInfo(List<Pizza> pizzas, double price, int storeId) {
-        this.pizzas = pizzas;
+        this.pizzas = wrap(pizzas);
         this.price = price;
         this.coupon = null;
         this.storeId = storeId;
     }
 
     public BasketInfo(List<Pizza> pizzas, double price, Coupon coupon) {
-        this.pizzas = pizzas;
+        this.pizzas = wrap(pizzas);
         this.price = price;
         this.coupon = coupon;
     }
 
+    /**
+     * Copy constructor, the list of pizzas is copied into a new list.
+     *
+     * @param other the basket info to copy
+     */
+    public BasketInfo(BasketInfo other) {
+        this.pizzas = wrap(other.pizzas);
+        this.price = other.price;
+        this.coupon = other.coupon;
+        this.storeId = other.storeId;
+    }
+
+    /**
+     * Replaces the pizzas of the basket.
+     * The pizzas are copied into a list that keeps the price totals of the basket up to date.
+     *
+     * @param pizzas the new pizzas, or null
+     */
     public void setPizzas(List<Pizza> pizzas) {
-        this.pizzas = pizzas;
+        this.pizzas = wrap(pizzas);
     }
 
     public void setPrice(double price) {
@@ -72,5 +89,32 @@ public class BasketInfo {
         return storeId;
     }
 
+    /**
+     * Running totals of the pizzas in the basket, updated on every change to the list of pizzas.
+     *
+     * @return the price totals of the basket
+     */
+    public PriceTotals totals() {
+        return pizzas == null ? new PriceTotals() : pizzas.totals();
+    }
+
+    /**
+     * Price of the basket including the service fee, with the applied coupon if there is one.
+     * Computed from the running totals, so it does not depend on the number of pizzas for discount and
+     * buy-one-get-one-free coupons.
+     *
+     * @return the price of the basket
+     */
+    public double calculatePrice() {
+        if (coupon == null) {
+            return 3.0 + totals().subtotal();
+        }
+        return coupon.calculatePrice(totals());
+    }
+
+    private static PizzaList wrap(List<Pizza> pizzas) {
+        return pizzas == null ? null : new PizzaList(pizzas);
+    }
+
 
 }
@@ -1,5 +1,6 @@
 package commons;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import commons.strategies.*;
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -15,7 +16,8 @@ public class Coupon {
      * Key attribute and is generated automatically in creation.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_seq")
+    @SequenceGenerator(name = "coupon_seq", sequenceName = "coupon_seq", allocationSize = 50)
     @Column(name = "COUPON_ID")
     long id;
 
@@ -116,6 +118,23 @@ public class Coupon {
         }
     }
 
+    /**
+     * Creates a coupon with the given strategy, for example a stored custom coupon.
+     *
+     * @param code the activation code of the coupon.
+     * @param type the type of the coupon.
+     * @param rate the discount rate of the coupon (only applicable for discount coupons; 0 for other types).
+     * @param limitedTime true if this coupon can be used multiple times, false otherwise.
+     * @param strategy the strategy to calculate the new price with.
+     */
+    public Coupon(String code, char type, double rate, boolean limitedTime, PriceStrategy strategy) {
+        this.code = code;
+        this.type = type;
+        this.rate = type == 'D' ? rate : 0;
+        this.limitedTime = limitedTime;
+        this.strategy = strategy;
+    }
+
     /**
      * When only activation code is passed on as the argument,
      * a default coupon is created which is a 30% discount coupon that expires after use.
@@ -208,8 +227,13 @@ public class Coupon {
 
     public boolean isLimitedTime() { return limitedTime; }
 
+    @JsonIgnore
+    public PriceStrategy getStrategy() { return strategy; }
+
     public double calculatePrice(List<Pizza> pizzas) { return this.strategy.calculatePrice(pizzas); }
 
+    public double calculatePrice(PriceTotals totals) { return this.strategy.calculatePrice(totals); }
+
     public String getMessage() { return this.strategy.getMessage(); }
 
 }
\ No newline at end of file
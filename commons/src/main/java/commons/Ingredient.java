@@ -9,7 +9,9 @@ import java.util.Objects;
 public class Ingredient {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids come from a pooled sequence instead of an identity column, so Hibernate can batch the inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_seq")
+    @SequenceGenerator(name = "ingredient_seq", sequenceName = "ingredient_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -27,6 +29,18 @@ public class Ingredient {
         this.price = price;
     }
 
+    /**
+     * Copy of this ingredient with another price, which keeps the id so it can be saved over the stored ingredient.
+     *
+     * @param price the new price
+     * @return the copy
+     */
+    public Ingredient withPrice(Double price) {
+        Ingredient copy = new Ingredient(name, price);
+        copy.id = id;
+        return copy;
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,6 +1,10 @@
 package commons;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -10,7 +14,9 @@ import java.util.Objects;
 public class Pizza {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids come from a pooled sequence instead of an identity column, so Hibernate can batch the inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pizza_seq")
+    @SequenceGenerator(name = "pizza_seq", sequenceName = "pizza_seq", allocationSize = 50)
     @Column(name = "id")
     Long id;
 
@@ -28,6 +34,16 @@ public class Pizza {
     @Column(name = "price")
     private Double price;
 
+    /**
+     * Whether this pizza is an immutable value, created by {@link #immutableOf(Long, String, List)}.
+     */
+    private transient boolean immutable;
+
+    /**
+     * The hash code of an immutable pizza, computed once when it is created.
+     */
+    private transient int hash;
+
     public Pizza() {
     }
 
@@ -37,6 +53,40 @@ public class Pizza {
         this.price = Math.round(calculatePrice(ingredients) * 100.0) / 100.0; // Round to 2 decimal places
     }
 
+    /**
+     * Creates a pizza that cannot be changed anymore, so it can be shared by many baskets.
+     * The ingredients are copied into an unmodifiable list, so later changes to the given ingredients
+     * (for example a new price in the database) do not affect the pizza, and its hash code is computed once.
+     *
+     * @param name        the name of the pizza
+     * @param ingredients the ingredients of the pizza
+     * @return the immutable pizza
+     */
+    public static Pizza immutableOf(String name, List<Ingredient> ingredients) {
+        return immutableOf(null, name, ingredients);
+    }
+
+    /**
+     * Creates a pizza that cannot be changed anymore, like {@link #immutableOf(String, List)}, with the id of a
+     * pizza in the database. The copied ingredients keep their ids as well.
+     *
+     * @param id          the id of the pizza, or null if it is not stored
+     * @param name        the name of the pizza
+     * @param ingredients the ingredients of the pizza
+     * @return the immutable pizza
+     */
+    public static Pizza immutableOf(Long id, String name, List<Ingredient> ingredients) {
+        List<Ingredient> copies = new ArrayList<>(ingredients.size());
+        for (Ingredient ingredient : ingredients) {
+            copies.add(ingredient.withPrice(ingredient.getPrice()));
+        }
+        Pizza pizza = new Pizza(name, Collections.unmodifiableList(copies));
+        pizza.id = id;
+        pizza.hash = Objects.hash(pizza.name, pizza.ingredients, pizza.price);
+        pizza.immutable = true;
+        return pizza;
+    }
+
     /**
      * Method calculating the price of the pizza based on its ingredients + profit margin.
      *
@@ -52,11 +102,59 @@ public class Pizza {
         return totalPrice;
     }
 
+    /**
+     * Recalculates the price from the current prices of the ingredients, for when the price of an ingredient changed.
+     *
+     * @return true if the price has changed
+     */
+    public boolean updatePrice() {
+        if (immutable) {
+            throw new UnsupportedOperationException("The price of an immutable pizza cannot be changed");
+        }
+        Double updated = Math.round(calculatePrice(ingredients) * 100.0) / 100.0;
+        if (updated.equals(price)) {
+            return false;
+        }
+        price = updated;
+        return true;
+    }
+
+    /**
+     * Copy of this pizza in which every ingredient with the name of the given ingredient is replaced by it, with the
+     * price calculated again. The copy keeps the id, so it can be written over the stored pizza, and this pizza is
+     * left as it is.
+     *
+     * @param replacement the ingredient with its new price
+     * @return the repriced copy
+     */
+    public Pizza withIngredient(Ingredient replacement) {
+        List<Ingredient> replaced = new ArrayList<>(ingredients.size());
+        for (Ingredient ingredient : ingredients) {
+            replaced.add(Objects.equals(ingredient.getName(), replacement.getName()) ? replacement : ingredient);
+        }
+        Pizza copy = new Pizza(name, replaced);
+        copy.id = id;
+        return copy;
+    }
+
+    /**
+     * Id of the pizza in the database, which is left out of the JSON of the pizza.
+     *
+     * @return the id, or null if the pizza has not been saved
+     */
+    @JsonIgnore
+    public Long getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
+        if (immutable) {
+            throw new UnsupportedOperationException("The name of an immutable pizza cannot be changed");
+        }
         this.name = name;
     }
 
@@ -74,6 +172,9 @@ public class Pizza {
         }
 
         Pizza pizza = (Pizza) o;
+        if (immutable && pizza.immutable && hash != pizza.hash) {
+            return false;
+        }
 
         if (id != null ? !id.equals(pizza.id) : pizza.id != null) {
             return false;
@@ -95,6 +196,9 @@ public class Pizza {
 
     @Override
     public int hashCode() {
+        if (immutable) {
+            return hash;
+        }
         return Objects.hash(name, ingredients, price);
     }
 }
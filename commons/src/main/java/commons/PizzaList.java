@@ -0,0 +1,86 @@
+package commons;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The pizzas of a basket.
+ * Behaves like an {@link ArrayList}, but keeps the {@link PriceTotals} of the basket up to date on every change,
+ * whichever way the list is changed. The totals are only built once they are asked for.
+ */
+@SuppressWarnings("PMD")
+public class PizzaList extends AbstractList<Pizza> implements RandomAccess {
+
+    private final ArrayList<Pizza> pizzas;
+    private PriceTotals totals;
+
+    public PizzaList() {
+        this.pizzas = new ArrayList<>();
+    }
+
+    public PizzaList(Collection<Pizza> pizzas) {
+        this.pizzas = new ArrayList<>(pizzas);
+    }
+
+    /**
+     * Running totals of the pizzas in this list.
+     *
+     * @return the totals, built on the first call
+     */
+    public PriceTotals totals() {
+        if (totals == null) {
+            totals = new PriceTotals(pizzas);
+        }
+        return totals;
+    }
+
+    @Override
+    public Pizza get(int index) {
+        return pizzas.get(index);
+    }
+
+    @Override
+    public int size() {
+        return pizzas.size();
+    }
+
+    @Override
+    public Pizza set(int index, Pizza pizza) {
+        Pizza old = pizzas.set(index, pizza);
+        if (totals != null) {
+            totals.remove(old);
+            totals.add(pizza);
+        }
+        return old;
+    }
+
+    @Override
+    public void add(int index, Pizza pizza) {
+        pizzas.add(index, pizza);
+        modCount++;
+        if (totals != null) {
+            totals.add(pizza);
+        }
+    }
+
+    @Override
+    public void clear() {
+        pizzas.clear();
+        modCount++;
+        if (totals != null) {
+            totals = new PriceTotals();
+        }
+    }
+
+    @Override
+    public Pizza remove(int index) {
+        Pizza old = pizzas.remove(index);
+        modCount++;
+        if (totals != null) {
+            totals.remove(old);
+        }
+        return old;
+    }
+}
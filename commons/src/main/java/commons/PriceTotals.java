@@ -0,0 +1,197 @@
+package commons;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals of the pizzas in a basket, kept up to date on every add and remove.
+ * Holds the subtotal, how many of each pizza there are, the prices of the pizzas with each name, and the pizza prices
+ * split into the cheaper half and the more expensive half, so that every coupon strategy can price a basket without
+ * walking over its pizzas.
+ * Adding or removing a pizza costs O(log n). Prices are kept in cents, so totals do not drift over many changes.
+ */
+@SuppressWarnings("PMD")
+public class PriceTotals {
+
+    private long subtotalCents;
+    private final Map<Pizza, Integer> counts = new HashMap<>();
+    // multisets of prices in cents per pizza name, which is how the basket and custom coupons tell pizzas apart
+    private final Map<String, TreeMap<Long, Integer>> named = new HashMap<>();
+    private final Map<String, Integer> namedCounts = new HashMap<>();
+
+    // multisets of prices in cents; every price in cheaper is at most every price in dearer
+    private final TreeMap<Long, Integer> cheaper = new TreeMap<>();
+    private final TreeMap<Long, Integer> dearer = new TreeMap<>();
+    private int cheaperSize;
+    private int dearerSize;
+    private long cheaperCents;
+
+    /**
+     * Creates totals of an empty basket.
+     */
+    public PriceTotals() {
+    }
+
+    /**
+     * Creates totals of the given pizzas.
+     *
+     * @param pizzas the pizzas in the basket
+     */
+    public PriceTotals(Iterable<Pizza> pizzas) {
+        for (Pizza pizza : pizzas) {
+            add(pizza);
+        }
+    }
+
+    /**
+     * Accounts for a pizza that was added to the basket.
+     *
+     * @param pizza the added pizza
+     */
+    public void add(Pizza pizza) {
+        long cents = cents(pizza);
+        subtotalCents += cents;
+        counts.merge(pizza, 1, Integer::sum);
+        named.computeIfAbsent(pizza.getName(), n -> new TreeMap<>()).merge(cents, 1, Integer::sum);
+        namedCounts.merge(pizza.getName(), 1, Integer::sum);
+        if (cheaperSize > 0 && cents < cheaper.lastKey()) {
+            cheaper.merge(cents, 1, Integer::sum);
+            cheaperSize++;
+            cheaperCents += cents;
+        } else {
+            dearer.merge(cents, 1, Integer::sum);
+            dearerSize++;
+        }
+        rebalance();
+    }
+
+    /**
+     * Accounts for a pizza that was removed from the basket.
+     *
+     * @param pizza the removed pizza, must have been added before
+     */
+    public void remove(Pizza pizza) {
+        long cents = cents(pizza);
+        subtotalCents -= cents;
+        counts.computeIfPresent(pizza, (p, count) -> count == 1 ? null : count - 1);
+        TreeMap<Long, Integer> prices = named.get(pizza.getName());
+        if (prices != null) {
+            take(prices, cents);
+            if (prices.isEmpty()) {
+                named.remove(pizza.getName());
+            }
+        }
+        namedCounts.computeIfPresent(pizza.getName(), (n, count) -> count == 1 ? null : count - 1);
+        if (cheaper.containsKey(cents)) {
+            take(cheaper, cents);
+            cheaperSize--;
+            cheaperCents -= cents;
+        } else {
+            take(dearer, cents);
+            dearerSize--;
+        }
+        rebalance();
+    }
+
+    /**
+     * Number of pizzas in the basket.
+     *
+     * @return the number of pizzas
+     */
+    public int count() {
+        return cheaperSize + dearerSize;
+    }
+
+    /**
+     * Sum of the prices of all pizzas.
+     *
+     * @return the subtotal
+     */
+    public double subtotal() {
+        return subtotalCents / 100.0;
+    }
+
+    /**
+     * Sum of the prices of the cheapest half of the pizzas, rounded down for an odd number of pizzas.
+     * These are the pizzas that are free with a buy-one-get-one-free coupon.
+     *
+     * @return the price of the cheapest half
+     */
+    public double cheapestHalf() {
+        return cheaperCents / 100.0;
+    }
+
+    /**
+     * Whether the basket holds at least one pizza equal to the given one.
+     *
+     * @param pizza the pizza to look for
+     * @return true if the basket contains the pizza
+     */
+    public boolean contains(Pizza pizza) {
+        return counts.containsKey(pizza);
+    }
+
+    /**
+     * Number of pizzas in the basket with the given name.
+     *
+     * @param name the name of the pizzas
+     * @return the number of pizzas with that name
+     */
+    public int count(String name) {
+        return namedCounts.getOrDefault(name, 0);
+    }
+
+    /**
+     * Sum of the prices of the most expensive pizzas with the given name.
+     * Takes O(d) for d different prices of pizzas with that name, which is usually one.
+     *
+     * @param name the name of the pizzas
+     * @param n    the number of pizzas to sum, at most {@link #count(String)}
+     * @return the price of the n most expensive pizzas with that name
+     */
+    public double dearest(String name, int n) {
+        TreeMap<Long, Integer> prices = named.get(name);
+        if (prices == null || n <= 0) {
+            return 0;
+        }
+        long total = 0;
+        for (Map.Entry<Long, Integer> price : prices.descendingMap().entrySet()) {
+            int taken = Math.min(n, price.getValue());
+            total += taken * price.getKey();
+            n -= taken;
+            if (n == 0) {
+                break;
+            }
+        }
+        return total / 100.0;
+    }
+
+    private void rebalance() {
+        int target = count() / 2;
+        while (cheaperSize > target) {
+            long cents = cheaper.lastKey();
+            take(cheaper, cents);
+            cheaperSize--;
+            cheaperCents -= cents;
+            dearer.merge(cents, 1, Integer::sum);
+            dearerSize++;
+        }
+        while (cheaperSize < target) {
+            long cents = dearer.firstKey();
+            take(dearer, cents);
+            dearerSize--;
+            cheaper.merge(cents, 1, Integer::sum);
+            cheaperSize++;
+            cheaperCents += cents;
+        }
+    }
+
+    private static void take(TreeMap<Long, Integer> prices, long cents) {
+        prices.computeIfPresent(cents, (c, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static long cents(Pizza pizza) {
+        return pizza.getPrice() == null ? 0 : Math.round(pizza.getPrice() * 100);
+    }
+}
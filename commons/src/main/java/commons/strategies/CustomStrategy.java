@@ -1,61 +1,170 @@
 package commons.strategies;
 
 import commons.Pizza;
+import commons.PriceTotals;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A child class of PriceStrategy for custom coupons.
  * Contains the list of pizzas that this coupon is valid for,
  * and the new price of the combination of pizzas.
+ * A custom coupon loaded from the database only has references to the pizzas of its combination, which are looked up
+ * in the menu the first time the coupon is used. Until all of them are found, the coupon is not valid for any basket.
+ * Stored strategies are shared by every coupon with the same stored form, so the pizzas that were found are kept
+ * together with the version of the menu they were found in, and looked up again once the menu has changed.
  */
 @SuppressWarnings("PMD")
 public class CustomStrategy implements PriceStrategy {
 
     /**
-     * The combination of pizzas that this coupon is valid for.
+     * The stored references to the pizzas of the combination, or null if the pizzas were given.
      */
-    List<Pizza> combination;
+    private final List<String> references;
+
+    /**
+     * The menu that the stored references are looked up in, or null if there is none.
+     */
+    private final PizzaCatalog catalog;
 
     /**
      * The discounted price.
      * For example, if this coupon is for pizza A and B,
      * the price for pizza A + pizza B is replaced by this newPrice.
      */
-    double newPrice;
+    final double newPrice;
+
+    /**
+     * The pizzas of the combination, or null until they have been found on the menu.
+     */
+    private volatile Resolved resolved;
 
     public CustomStrategy(List<Pizza> combination, double newPrice) {
-        this.combination = combination;
+        this(null, null, Collections.unmodifiableList(new ArrayList<>(combination)), newPrice);
+    }
+
+    private CustomStrategy(List<String> references, PizzaCatalog catalog, List<Pizza> combination, double newPrice) {
+        this.references = references;
+        this.catalog = catalog;
         this.newPrice = newPrice;
+        this.resolved = combination == null ? null : new Resolved(combination, 0);
     }
 
     /**
-     * First calculates the original price of the list.
-     * Then this method checks if the list contains all the pizzas that this coupon is valid for,
-     * and calculates the new price by subtracting the original prices and adding the discounted price.
+     * Creates a custom strategy from its stored form, whose pizzas are looked up when it is first used.
+     *
+     * @param references the stored references to the pizzas, "#" followed by the id or the encoded name of a pizza
+     * @param newPrice   the discounted price
+     * @param catalog    the menu the pizzas are looked up in, or null if there is none
+     * @return the custom strategy
+     */
+    static CustomStrategy stored(List<String> references, double newPrice, PizzaCatalog catalog) {
+        return new CustomStrategy(Collections.unmodifiableList(new ArrayList<>(references)), catalog, null, newPrice);
+    }
+
+    /**
+     * The pizzas of the combination, looked up in the menu if the strategy was stored.
+     *
+     * @return the pizzas, or null if not all of them are on the menu
+     */
+    public List<Pizza> getCombination() {
+        Resolved current = resolve();
+        return current == null ? null : current.combination;
+    }
+
+    /**
+     * Returns the pizzas of the combination, looking them up again if the menu has changed since they were found.
+     */
+    private Resolved resolve() {
+        Resolved current = resolved;
+        if (references == null || catalog == null) return current;
+
+        long version = catalog.version();
+        if (current != null && current.version == version) return current;
+
+        List<Pizza> found = new ArrayList<>(references.size());
+        for (String reference : references) {
+            Pizza pizza = reference.startsWith("#")
+                    ? catalog.findById(Long.valueOf(reference.substring(1)))
+                    : catalog.findByName(URLDecoder.decode(reference, StandardCharsets.UTF_8));
+            if (pizza == null) {
+                // not valid on this menu, looked up again once the menu has the pizza
+                resolved = null;
+                return null;
+            }
+            found.add(pizza);
+        }
+        current = new Resolved(Collections.unmodifiableList(found), version);
+        resolved = current;
+        return current;
+    }
+
+    private static Map<String, Integer> count(List<Pizza> pizzas) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Pizza p : pizzas) counts.merge(p.getName(), 1, Integer::sum);
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Calculates the new price of the list of pizzas from its price totals.
      *
      * @param pizzas the list of pizzas in the Basket.
      * @return the new price after the coupon is applied. Returns the same price if this coupon is not valid for this basket.
      */
     @Override
     public double calculatePrice(List<Pizza> pizzas) {
-        double price = 3.0;
+        return calculatePrice(new PriceTotals(pizzas));
+    }
 
-        for (Pizza p : pizzas) price += p.getPrice();
+    /**
+     * Calculates the new price of the basket from its subtotal and its pizzas counted by name.
+     * Pizzas are matched by name, like the basket removes them, so the price of a pizza in the basket does not have
+     * to be the price it had when the coupon was made. The combination is applied as many times as the basket holds
+     * all of its pizzas, as long as every application makes the basket cheaper. Each application takes the most
+     * expensive matching pizzas that are left, so the matches are disjoint and save as much as possible.
+     * Takes O(k * m) for m different pizzas in the combination that is applied k times, whatever the size of the basket.
+     *
+     * @param totals the price totals of the basket
+     * @return the new price after the coupon is applied. Returns the same price if this coupon is not valid for this basket.
+     */
+    @Override
+    public double calculatePrice(PriceTotals totals) {
+        double price = 3.0 + totals.subtotal();
+        Resolved current = resolve();
+        if (current == null || current.needed.isEmpty()) return price;
+        Map<String, Integer> needed = current.needed;
 
-        double discount = newPrice;
+        int times = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> need : needed.entrySet()) {
+            times = Math.min(times, totals.count(need.getKey()) / need.getValue());
+        }
 
-        for (Pizza p : combination) {
-            if (!pizzas.contains(p)) return price;
-            else discount -= p.getPrice();
+        // every next application takes cheaper pizzas than the one before, so stop at the first that saves nothing
+        double saved = 0;
+        for (int k = 1; k <= times; k++) {
+            double replaced = 0;
+            for (Map.Entry<String, Integer> need : needed.entrySet()) {
+                int count = need.getValue();
+                replaced += totals.dearest(need.getKey(), k * count) - totals.dearest(need.getKey(), (k - 1) * count);
+            }
+            if (replaced <= newPrice) break;
+            saved += replaced - newPrice;
         }
 
-        return price + discount;
+        return price - saved;
     }
 
     /**
      * String representation which is used when storing this class in Coupon database.
      * Has character 'C' to indicate that this coupon is a custom coupon,
-     * followed by list of pizzas in combination and the newPrice at the end.
+     * followed by a reference to every pizza in the combination and the newPrice at the end.
+     * A pizza on the menu is referred to by "#" and its id, another pizza by its URL encoded name.
      *
      * @return a String representation of this class.
      */
@@ -63,7 +172,12 @@ public class CustomStrategy implements PriceStrategy {
         StringBuilder sb = new StringBuilder();
         sb.append("C ");
 
-        for (Pizza p : combination) sb.append(p.getName()).append(" ");
+        if (references != null) {
+            // the stored form stays the same, also when the pizzas have been found on the menu
+            for (String reference : references) sb.append(reference).append(" ");
+        } else {
+            for (Pizza p : resolved.combination) sb.append(reference(p)).append(" ");
+        }
         sb.append(newPrice);
 
         return sb.toString();
@@ -72,4 +186,30 @@ public class CustomStrategy implements PriceStrategy {
     public String getMessage() {
         return "Coupon has been applied.\n";
     }
+
+    /**
+     * The stored reference to a pizza, its id if it is on the menu, otherwise its name without spaces.
+     */
+    private static String reference(Pizza p) {
+        if (p.getId() != null) return "#" + p.getId();
+        return URLEncoder.encode(p.getName(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The pizzas of the combination with how many of each name it needs, and the version of the menu they were found in.
+     */
+    private static final class Resolved {
+        private final List<Pizza> combination;
+        /**
+         * How many pizzas of each name the combination needs, in the order they first appear in the combination.
+         */
+        private final Map<String, Integer> needed;
+        private final long version;
+
+        private Resolved(List<Pizza> combination, long version) {
+            this.combination = combination;
+            this.needed = count(combination);
+            this.version = version;
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package commons.strategies;
 
 import commons.Pizza;
+import commons.PriceTotals;
 
-import java.text.DecimalFormat;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
 
 /**
@@ -15,9 +17,7 @@ public class DiscountStrategy implements PriceStrategy {
     /**
      * Discount rate of the coupon.
      */
-
-    double rate;
-    DecimalFormat df = new DecimalFormat("0.00");
+    final double rate;
 
     public DiscountStrategy(double rate) {
         this.rate = rate;
@@ -39,6 +39,17 @@ public class DiscountStrategy implements PriceStrategy {
         return newPrice;
     }
 
+    /**
+     * Calculates the new price of the basket by applying the discount to its subtotal.
+     *
+     * @param totals the price totals of the basket
+     * @return the price after the discount is applied.
+     */
+    @Override
+    public double calculatePrice(PriceTotals totals) {
+        return 3.0 + totals.subtotal() - totals.subtotal() * (rate / 100);
+    }
+
     /**
      * String representation which is used when storing this class in Coupon database.
      * Has character 'D' at the beginning to indicate that this is a discount coupon,
@@ -47,7 +58,8 @@ public class DiscountStrategy implements PriceStrategy {
      * @return the String representation of this class.
      */
     public String toString() {
-        return "D " + df.format(rate);
+        // rounded like DecimalFormat("0.00"), but always with a dot and without a formatter per strategy
+        return "D " + BigDecimal.valueOf(rate).setScale(2, RoundingMode.HALF_EVEN).toPlainString();
     }
 
     public String getMessage() {
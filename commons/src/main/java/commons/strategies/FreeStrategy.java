@@ -1,7 +1,8 @@
 package commons.strategies;
 
 import commons.Pizza;
-import java.util.Collections;
+import commons.PriceTotals;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -16,7 +17,7 @@ public class FreeStrategy implements PriceStrategy {
     /**
      * Calculates the new price of the Basket after this coupon is applied.
      * First looks at how many pizzas are stored in the Basket (i.e., number of pizzas in the list)
-     * and sorts the list by increasing order of price.
+     * and sorts a copy of the list by increasing order of price, the list itself is left as it is.
      * Calculates the new price by adding the prices of all the pizzas, but skipping the first n pizzas.
      *
      * @param pizzas the list of pizzas in the basket.
@@ -27,9 +28,10 @@ public class FreeStrategy implements PriceStrategy {
         int n = pizzas.size() / 2;  // number of pizzas that are free
         double newPrice = 3.0;
 
-        Collections.sort(pizzas, (o1, o2) -> Double.compare(o1.getPrice(), o2.getPrice()));
+        List<Pizza> sorted = new ArrayList<>(pizzas);
+        sorted.sort((o1, o2) -> Double.compare(o1.getPrice(), o2.getPrice()));
 
-        for (Pizza p : pizzas) {
+        for (Pizza p : sorted) {
             if (n > 0) {        // skip the first n pizzas, because these are free.
                 n--;
                 continue;
@@ -41,6 +43,17 @@ public class FreeStrategy implements PriceStrategy {
         return newPrice;
     }
 
+    /**
+     * Calculates the new price of the basket by leaving the cheapest half of the pizzas out of its subtotal.
+     *
+     * @param totals the price totals of the basket
+     * @return the new price after this coupon is applied.
+     */
+    @Override
+    public double calculatePrice(PriceTotals totals) {
+        return 3.0 + totals.subtotal() - totals.cheapestHalf();
+    }
+
     /**
      * String representation which is used when storing this class in Coupon database.
      * Has character 'F' to indicate that this is a buy-one-get-one-free coupon.
@@ -0,0 +1,32 @@
+package commons.strategies;
+
+import commons.Pizza;
+
+/**
+ * The pizzas on the menu, which the pizzas of stored custom coupons are looked up in.
+ */
+public interface PizzaCatalog {
+
+    /**
+     * Looks up a pizza on the menu by its id.
+     *
+     * @param id the id of the pizza
+     * @return the pizza, or null if there is no pizza with that id
+     */
+    Pizza findById(Long id);
+
+    /**
+     * Looks up a pizza on the menu by its name.
+     *
+     * @param name the name of the pizza
+     * @return the pizza, or null if there is no pizza with that name
+     */
+    Pizza findByName(String name);
+
+    /**
+     * Version of the menu, which changes every time the menu is changed.
+     *
+     * @return the version of the menu
+     */
+    long version();
+}
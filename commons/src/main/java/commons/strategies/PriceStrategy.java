@@ -1,12 +1,21 @@
 package commons.strategies;
 
 import commons.Pizza;
+import commons.PriceTotals;
 import java.util.List;
 
 public interface PriceStrategy {
 
     public double calculatePrice(List<Pizza> pizzas);
 
+    /**
+     * Calculates the price of a basket from its running totals instead of its list of pizzas.
+     *
+     * @param totals the price totals of the basket
+     * @return the price after this coupon is applied
+     */
+    public double calculatePrice(PriceTotals totals);
+
     public String toString();
 
     public String getMessage();
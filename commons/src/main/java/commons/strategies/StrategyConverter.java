@@ -1,38 +1,84 @@
 package commons.strategies;
 
-
-import commons.Pizza;
-
 import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
-import java.util.ArrayList;
+import org.springframework.context.annotation.Lazy;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Stores the strategy of a coupon as a String, see the toString methods of the strategies for the formats.
+ * Strategies are immutable, so every stored form is parsed once and the same strategy is given to every coupon that
+ * has it, instead of a new strategy per loaded coupon. The pizzas of custom coupons are looked up in the catalog the
+ * converter was made with, the first time the coupon is used. Hibernate makes its converter through Spring, which
+ * passes it the menu of the application, if there is one.
+ */
 @SuppressWarnings("PMD")
 @Converter
 public class StrategyConverter implements AttributeConverter<PriceStrategy, String> {
+
+    /**
+     * Maximum number of parsed strategies that are kept, after which new stored forms are parsed every time.
+     */
+    static final int MAX_CACHED = 4096;
+
+    private static final FreeStrategy FREE = new FreeStrategy();
+
+    private final Map<String, PriceStrategy> parsed = new ConcurrentHashMap<>();
+    private final PizzaCatalog catalog;
+
+    /**
+     * Creates a converter without a menu, so custom coupons it reads are not valid for any basket.
+     */
+    public StrategyConverter() {
+        this(null);
+    }
+
+    /**
+     * Creates a converter that looks up the pizzas of custom coupons in the given menu.
+     * The menu is only used once a custom coupon is used, so Spring may pass a lazy reference to it while the
+     * repositories that the menu needs are still being made.
+     *
+     * @param catalog the menu
+     */
+    public StrategyConverter(@Lazy PizzaCatalog catalog) {
+        this.catalog = catalog;
+    }
+
     @Override
-    public String convertToDatabaseColumn(PriceStrategy attribute) { return attribute.toString(); }
+    public String convertToDatabaseColumn(PriceStrategy attribute) {
+        return attribute == null ? null : attribute.toString();
+    }
 
     @Override
     public PriceStrategy convertToEntityAttribute(String dbData) {
+        if (dbData == null || dbData.isEmpty()) return null;
+
+        PriceStrategy cached = parsed.get(dbData);
+        if (cached != null) return cached;
+
+        PriceStrategy strategy = parse(dbData);
+        if (parsed.size() < MAX_CACHED) {
+            PriceStrategy raced = parsed.putIfAbsent(dbData, strategy);
+            if (raced != null) return raced;
+        }
+        return strategy;
+    }
+
+    private PriceStrategy parse(String dbData) {
         char type = dbData.charAt(0);
 
-        if (type == 'D') return new DiscountStrategy(Double.parseDouble(dbData.split(" ")[1]
+        if (type == 'D') return new DiscountStrategy(Double.parseDouble(dbData.substring(1).trim()
             .replace(",", ".")));
-        else if (type == 'F') return new FreeStrategy();
+        else if (type == 'F') return FREE;
         else {
-            List<Pizza> pizzas = new ArrayList<>();
-
-            String[] names = dbData.split(" ");
-            for (int i = 0; i < names.length - 1; i++) {
-                // TODO: get pizzas from database and add to pizzas
-            }
+            String[] parts = dbData.trim().split(" ");
+            List<String> references = Arrays.asList(parts).subList(1, parts.length - 1);
+            double price = Double.parseDouble(parts[parts.length - 1].replace(",", "."));
 
-            double price = Double.parseDouble(names[names.length - 1]);
-
-            return new CustomStrategy(pizzas, price);
+            return CustomStrategy.stored(references, price, catalog);
         }
-
     }
 }
@@ -84,4 +84,13 @@ public class BasketTest {
         Basket b2 = new Basket("customer2", info);
         assertTrue(b2.contains("Pizza"));
     }
+
+    @Test
+    void nextVersion() {
+        long version = basket.getVersion();
+        basket.nextVersion();
+        assertThat(basket.getVersion()).isGreaterThan(version);
+        assertThat(new Basket(basket).getVersion()).isEqualTo(basket.getVersion());
+        assertThat(new Basket("custId").getVersion()).isGreaterThan(basket.getVersion());
+    }
 }
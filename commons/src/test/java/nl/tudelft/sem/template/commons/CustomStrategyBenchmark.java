@@ -0,0 +1,93 @@
+package nl.tudelft.sem.template.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.Ingredient;
+import commons.Pizza;
+import commons.PriceTotals;
+import commons.strategies.CustomStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+/**
+ * Pricing benchmark for custom coupons on large baskets.
+ * Prices baskets of 100 to 800 pizzas with a combination of three pizzas, comparing the matcher over the running
+ * totals of the basket with the search through the list of pizzas it replaces, which compares every pizza of the
+ * combination with the pizzas of the basket one by one. Besides the numbers it checks that the combination is applied
+ * once for every disjoint match in the basket. Left out of the tests, run it with the benchmark task.
+ */
+@Tag("benchmark")
+public class CustomStrategyBenchmark {
+
+    private static final int[] SIZES = {100, 200, 400, 800};
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    void pricesBasketsOfHundredsOfPizzas(TestReporter reporter) {
+        List<Pizza> menu = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            List<Ingredient> ingredients = new ArrayList<>();
+            for (int j = 0; j <= i % 5; j++) {
+                ingredients.add(new Ingredient("topping" + (i + j), 0.25 * j + 1.5));
+            }
+            menu.add(Pizza.immutableOf("pizza" + i, ingredients));
+        }
+        List<Pizza> combination = List.of(menu.get(17), menu.get(18), menu.get(19));
+        CustomStrategy custom = new CustomStrategy(combination, 10.00);
+        Random random = new Random(42);
+
+        for (int size : SIZES) {
+            // the combination is at the end of the basket, which is the worst case for the list search
+            List<Pizza> basket = new ArrayList<>(size);
+            for (int i = 0; i < size - 6; i++) {
+                basket.add(menu.get(random.nextInt(17)));
+            }
+            basket.addAll(combination);
+            basket.addAll(combination);
+            PriceTotals totals = new PriceTotals(basket);
+
+            double saving = combination.stream().mapToDouble(Pizza::getPrice).sum() - 10.00;
+            assertThat(custom.calculatePrice(totals))
+                    .isCloseTo(3 + totals.subtotal() - 2 * saving, Offset.offset(1e-9));
+
+            double sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                sink += custom.calculatePrice(totals);
+            }
+            long matcherNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                sink += listSearch(basket, combination, 10.00);
+            }
+            long searchNanos = System.nanoTime() - start;
+            assertThat(sink).isPositive();
+
+            reporter.publishEntry("matcher ops/s with " + size + " pizzas",
+                    String.valueOf(ROUNDS * 1_000_000_000L / Math.max(1, matcherNanos)));
+            reporter.publishEntry("list search ops/s with " + size + " pizzas",
+                    String.valueOf(ROUNDS * 1_000_000_000L / Math.max(1, searchNanos)));
+        }
+    }
+
+    /**
+     * The list search the matcher replaced, which applies the combination at most once.
+     */
+    private static double listSearch(List<Pizza> pizzas, List<Pizza> combination, double newPrice) {
+        double price = 3.0;
+        for (Pizza p : pizzas) price += p.getPrice();
+
+        double discount = newPrice;
+        for (Pizza p : combination) {
+            if (!pizzas.contains(p)) return price;
+            else discount -= p.getPrice();
+        }
+        return price + discount;
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -118,4 +119,56 @@ public class PizzaTest {
     }
 
 
+
+    @Test
+    public void testImmutableOf() {
+        Pizza immutable = Pizza.immutableOf("Pepperoni Pizza", pizza.getIngredients());
+        assertThat(immutable).isEqualTo(pizza);
+        assertThat(immutable.hashCode()).isEqualTo(pizza.hashCode());
+        assertThat(immutable.getPrice()).isEqualTo(pizza.getPrice());
+    }
+
+    @Test
+    public void testImmutableOfCannotChange() {
+        Pizza immutable = Pizza.immutableOf("Pepperoni Pizza", pizza.getIngredients());
+        assertThatThrownBy(() -> immutable.setName("Hawaii")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> immutable.getIngredients().add(cheese))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testImmutableOfNotEqual() {
+        Pizza immutable = Pizza.immutableOf("Pepperoni Pizza", pizza.getIngredients());
+        Pizza other = Pizza.immutableOf("Pepperoni Pizza", List.of(cheese));
+        assertThat(immutable).isNotEqualTo(other);
+    }
+
+    @Test
+    public void testUpdatePrice() {
+        Ingredient ham = new Ingredient("Ham", 2.00);
+        Pizza hamPizza = new Pizza("Ham Pizza", new ArrayList<>(List.of(ham, cheese)));
+        assertThat(hamPizza.updatePrice()).isFalse();
+
+        ham.setPrice(2.50);
+        assertThat(hamPizza.updatePrice()).isTrue();
+        assertThat(hamPizza.getPrice()).isEqualTo(9.49);
+    }
+
+    @Test
+    public void testWithIngredientLeavesPizzaAsItIs() {
+        Ingredient ham = new Ingredient("Ham", 2.00);
+        Pizza hamPizza = new Pizza("Ham Pizza", List.of(ham, cheese));
+        Pizza repriced = hamPizza.withIngredient(new Ingredient("Ham", 2.50));
+
+        assertThat(repriced.getPrice()).isEqualTo(9.49);
+        assertThat(repriced.getIngredients()).extracting(Ingredient::getPrice).containsExactly(2.50, cheese.getPrice());
+        assertThat(hamPizza.getPrice()).isEqualTo(8.99);
+        assertThat(ham.getPrice()).isEqualTo(2.00);
+    }
+
+    @Test
+    public void testImmutableOfCannotBeRepriced() {
+        Pizza immutable = Pizza.immutableOf("Pepperoni Pizza", pizza.getIngredients());
+        assertThatThrownBy(immutable::updatePrice).isInstanceOf(UnsupportedOperationException.class);
+    }
 }
@@ -0,0 +1,126 @@
+package nl.tudelft.sem.template.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import commons.BasketInfo;
+import commons.Coupon;
+import commons.Ingredient;
+import commons.Pizza;
+import commons.PriceTotals;
+import commons.strategies.FreeStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PriceTotalsTest {
+
+    private final List<Pizza> menu = new ArrayList<>();
+    private BasketInfo info;
+
+    @BeforeEach
+    void setup() {
+        for (int i = 0; i < 10; i++) {
+            menu.add(new Pizza("pizza" + i, List.of(new Ingredient("topping" + i, 0.37 * i + 1.5))));
+        }
+        info = new BasketInfo();
+    }
+
+    @Test
+    void emptyBasket() {
+        PriceTotals totals = info.totals();
+
+        assertThat(totals.count()).isZero();
+        assertThat(totals.subtotal()).isZero();
+        assertThat(totals.cheapestHalf()).isZero();
+        assertThat(info.calculatePrice()).isEqualTo(3.0);
+    }
+
+    @Test
+    void cheapestHalfFollowsAddsAndRemoves() {
+        info.totals();
+        info.getPizzas().add(menu.get(5));
+        info.getPizzas().add(menu.get(1));
+        info.getPizzas().add(menu.get(9));
+        assertThat(info.totals().cheapestHalf()).isEqualTo(menu.get(1).getPrice());
+
+        info.getPizzas().add(menu.get(3));
+        assertThat(info.totals().cheapestHalf()).isEqualTo(cents(menu.get(1), menu.get(3)));
+
+        info.getPizzas().remove(menu.get(1));
+        assertThat(info.totals().cheapestHalf()).isEqualTo(menu.get(3).getPrice());
+        assertThat(info.totals().subtotal()).isEqualTo(cents(menu.get(3), menu.get(5), menu.get(9)));
+    }
+
+    @Test
+    void matchesStrategiesOverTheWholeList() {
+        Coupon discount = new Coupon("D30", 'D', 30, false);
+        Coupon free = new Coupon("BOGO", 'F');
+        Random random = new Random(42);
+        info.totals();
+
+        for (int step = 0; step < 2000; step++) {
+            List<Pizza> pizzas = info.getPizzas();
+            if (pizzas.isEmpty() || random.nextInt(3) > 0) {
+                pizzas.add(menu.get(random.nextInt(menu.size())));
+            } else {
+                pizzas.remove(random.nextInt(pizzas.size()));
+            }
+
+            List<Pizza> copy = new ArrayList<>(pizzas);
+            assertThat(info.totals().count()).isEqualTo(copy.size());
+            assertThat(discount.calculatePrice(info.totals()))
+                    .isCloseTo(discount.calculatePrice(copy), Offset.offset(1e-6));
+            assertThat(free.calculatePrice(info.totals()))
+                    .isCloseTo(free.calculatePrice(copy), Offset.offset(1e-6));
+        }
+    }
+
+    @Test
+    void containsCountsDuplicates() {
+        info.getPizzas().add(menu.get(2));
+        info.getPizzas().add(menu.get(2));
+        info.getPizzas().remove(0);
+
+        assertThat(info.totals().contains(menu.get(2))).isTrue();
+        info.getPizzas().remove(0);
+        assertThat(info.totals().contains(menu.get(2))).isFalse();
+    }
+
+    @Test
+    void pricesAreCountedPerName() {
+        Pizza dearer = new Pizza("pizza2", List.of(new Ingredient("topping9", 9.00)));
+        info.getPizzas().add(menu.get(2));
+        info.getPizzas().add(dearer);
+        info.getPizzas().add(menu.get(2));
+        info.getPizzas().add(menu.get(4));
+
+        assertThat(info.totals().count("pizza2")).isEqualTo(3);
+        assertThat(info.totals().count("pizza7")).isZero();
+        assertThat(info.totals().dearest("pizza2", 1)).isEqualTo(dearer.getPrice());
+        assertThat(info.totals().dearest("pizza2", 2)).isEqualTo(cents(dearer, menu.get(2)));
+
+        info.getPizzas().remove(dearer);
+        assertThat(info.totals().count("pizza2")).isEqualTo(2);
+        assertThat(info.totals().dearest("pizza2", 2)).isEqualTo(cents(menu.get(2), menu.get(2)));
+    }
+
+    @Test
+    void freeStrategyLeavesListOrderAlone() {
+        List<Pizza> pizzas = new ArrayList<>(List.of(menu.get(9), menu.get(0), menu.get(5)));
+
+        new FreeStrategy().calculatePrice(pizzas);
+
+        assertThat(pizzas).containsExactly(menu.get(9), menu.get(0), menu.get(5));
+    }
+
+    private static double cents(Pizza... pizzas) {
+        long total = 0;
+        for (Pizza pizza : pizzas) {
+            total += Math.round(pizza.getPrice() * 100);
+        }
+        return total / 100.0;
+    }
+}
@@ -0,0 +1,108 @@
+package nl.tudelft.sem.template.commons;
+
+import commons.Ingredient;
+import commons.Pizza;
+import commons.strategies.CustomStrategy;
+import commons.strategies.DiscountStrategy;
+import commons.strategies.FreeStrategy;
+import commons.strategies.PizzaCatalog;
+import commons.strategies.PriceStrategy;
+import commons.strategies.StrategyConverter;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StrategyConverterTest {
+
+    private final PizzaCatalog catalog = mock(PizzaCatalog.class);
+    private final StrategyConverter converter = new StrategyConverter(catalog);
+    private final Pizza margherita = new Pizza("Margherita", List.of(new Ingredient("Cheese", 2.00)));
+    private final Pizza bbqChicken = new Pizza("BBQ Chicken", List.of(new Ingredient("Chicken", 4.00)));
+
+    @Test
+    void testSameStoredFormGivesSameStrategy() {
+        PriceStrategy first = converter.convertToEntityAttribute("D 30.00");
+        PriceStrategy second = converter.convertToEntityAttribute("D 30.00");
+
+        assertThat(first).isInstanceOf(DiscountStrategy.class).isSameAs(second);
+        assertThat(converter.convertToDatabaseColumn(first)).isEqualTo("D 30.00");
+        assertThat(converter.convertToEntityAttribute("F")).isInstanceOf(FreeStrategy.class)
+                .isSameAs(converter.convertToEntityAttribute("F"));
+    }
+
+    @Test
+    void testDiscountWithCommaIsParsed() {
+        PriceStrategy discount = converter.convertToEntityAttribute("D 12,50");
+
+        assertThat(discount.calculatePrice(List.of(margherita))).isCloseTo(3 + 5.00 * 0.875, Offset.offset(1e-9));
+    }
+
+    @Test
+    void testCustomRoundTripByName() {
+        String stored = converter.convertToDatabaseColumn(new CustomStrategy(List.of(bbqChicken, margherita), 9.5));
+        assertThat(stored).isEqualTo("C BBQ+Chicken Margherita 9.5");
+
+        when(catalog.findByName("BBQ Chicken")).thenReturn(bbqChicken);
+        when(catalog.findByName("Margherita")).thenReturn(margherita);
+        CustomStrategy custom = (CustomStrategy) converter.convertToEntityAttribute(stored);
+
+        assertThat(custom.getCombination()).containsExactly(bbqChicken, margherita);
+        assertThat(custom.calculatePrice(List.of(margherita, bbqChicken))).isCloseTo(3 + 9.5, Offset.offset(1e-9));
+        assertThat(converter.convertToDatabaseColumn(custom)).isEqualTo(stored);
+    }
+
+    @Test
+    void testCustomIsResolvedById() {
+        when(catalog.findById(7L)).thenReturn(margherita);
+        CustomStrategy custom = (CustomStrategy) converter.convertToEntityAttribute("C #7 #7 6.0");
+
+        assertThat(custom.getCombination()).containsExactly(margherita, margherita);
+        assertThat(custom.calculatePrice(List.of(margherita, margherita, margherita)))
+                .isCloseTo(3 + 6.0 + margherita.getPrice(), Offset.offset(1e-9));
+    }
+
+    @Test
+    void testUnknownPizzaKeepsCouponInvalid() {
+        CustomStrategy custom = (CustomStrategy) converter.convertToEntityAttribute("C #404 1.0");
+
+        assertThat(custom.getCombination()).isNull();
+        assertThat(custom.calculatePrice(List.of(margherita))).isEqualTo(3 + margherita.getPrice());
+        assertThat(converter.convertToDatabaseColumn(custom)).isEqualTo("C #404 1.0");
+
+        // looked up again once the menu has the pizza
+        when(catalog.findById(404L)).thenReturn(margherita);
+        assertThat(custom.calculatePrice(List.of(margherita))).isCloseTo(3 + 1.0, Offset.offset(1e-9));
+    }
+
+    @Test
+    void testCustomIsLookedUpAgainWhenMenuChanges() {
+        when(catalog.findById(7L)).thenReturn(margherita);
+        CustomStrategy custom = (CustomStrategy) converter.convertToEntityAttribute("C #7 4.0");
+        assertThat(custom.getCombination()).containsExactly(margherita);
+
+        Pizza renamed = new Pizza("Margherita Classica", margherita.getIngredients());
+        when(catalog.findById(7L)).thenReturn(renamed);
+        assertThat(custom.getCombination()).containsExactly(margherita);
+
+        when(catalog.version()).thenReturn(1L);
+        assertThat(custom.getCombination()).containsExactly(renamed);
+        assertThat(custom.calculatePrice(List.of(renamed))).isCloseTo(3 + 4.0, Offset.offset(1e-9));
+        assertThat(custom.calculatePrice(List.of(margherita))).isEqualTo(3 + margherita.getPrice());
+        assertThat(converter.convertToDatabaseColumn(custom)).isEqualTo("C #7 4.0");
+    }
+
+    @Test
+    void testConverterWithoutMenuKeepsCustomInvalid() {
+        when(catalog.findById(7L)).thenReturn(margherita);
+        CustomStrategy custom = (CustomStrategy) new StrategyConverter().convertToEntityAttribute("C #7 4.0");
+
+        assertThat(custom.getCombination()).isNull();
+        assertThat(custom.calculatePrice(List.of(margherita))).isEqualTo(3 + margherita.getPrice());
+        assertThat(converter.convertToEntityAttribute("C #7 4.0")).isNotSameAs(custom);
+    }
+}
@@ -2,8 +2,11 @@ package nl.tudelft.sem.template.commons;
 
 import commons.Ingredient;
 import commons.Pizza;
+import commons.PriceTotals;
+import commons.strategies.CustomStrategy;
 import commons.strategies.DiscountStrategy;
 import commons.strategies.FreeStrategy;
+import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -128,6 +131,60 @@ public class StrategyTest {
         assertThat(free.calculatePrice(onlyOne) == pizzaOne.getPrice() + 3).isTrue();
     }
 
+    @Test
+    void testCustomCalculatePrice() {
+        CustomStrategy custom = new CustomStrategy(List.of(pizzaOne, pizzaTwo), 10.00);
+        double full = 3 + pizzaOne.getPrice() + pizzaTwo.getPrice() + pizzaThree.getPrice()
+                + pizzaFour.getPrice() + pizzaFive.getPrice();
+
+        assertThat(custom.calculatePrice(pizzas))
+                .isCloseTo(full - pizzaOne.getPrice() - pizzaTwo.getPrice() + 10.00, Offset.offset(1e-9));
+        assertThat(custom.calculatePrice(new PriceTotals(pizzas)))
+                .isCloseTo(custom.calculatePrice(pizzas), Offset.offset(1e-9));
+    }
+
+    @Test
+    void testCustomAppliesAsOftenAsBasketAllows() {
+        CustomStrategy custom = new CustomStrategy(List.of(pizzaOne, pizzaTwo), 12.00);
+        List<Pizza> basket = List.of(pizzaOne, pizzaTwo, pizzaOne, pizzaOne, pizzaTwo, pizzaThree);
+        double full = 3 + 3 * pizzaOne.getPrice() + 2 * pizzaTwo.getPrice() + pizzaThree.getPrice();
+
+        // two disjoint matches, the third pizza one has no pizza two left to go with
+        assertThat(custom.calculatePrice(basket))
+                .isCloseTo(full - 2 * (pizzaOne.getPrice() + pizzaTwo.getPrice() - 12.00), Offset.offset(1e-9));
+    }
+
+    @Test
+    void testCustomCountsPizzasOfCombination() {
+        CustomStrategy custom = new CustomStrategy(List.of(pizzaOne, pizzaOne), 5.00);
+        List<Pizza> basket = List.of(pizzaOne, pizzaTwo);
+
+        assertThat(custom.calculatePrice(basket))
+                .isCloseTo(3 + pizzaOne.getPrice() + pizzaTwo.getPrice(), Offset.offset(1e-9));
+    }
+
+    @Test
+    void testCustomTakesMostExpensiveMatches() {
+        Pizza dearOne = new Pizza("one", List.of(cheese, salami));
+        CustomStrategy custom = new CustomStrategy(List.of(pizzaOne), 5.00);
+        List<Pizza> basket = List.of(pizzaOne, dearOne, pizzaOne);
+
+        // every pizza one is replaced by 5.00, the dearest first
+        assertThat(custom.calculatePrice(basket)).isCloseTo(3 + 3 * 5.00, Offset.offset(1e-9));
+        assertThat(new CustomStrategy(List.of(pizzaOne), 7.50).calculatePrice(basket))
+                .isCloseTo(3 + 7.50 + 2 * pizzaOne.getPrice(), Offset.offset(1e-9));
+    }
+
+    @Test
+    void testCustomNeverRaisesPrice() {
+        CustomStrategy custom = new CustomStrategy(List.of(pizzaOne), 20.00);
+
+        assertThat(custom.calculatePrice(pizzas)).isCloseTo(3 + pizzaOne.getPrice() + pizzaTwo.getPrice()
+                + pizzaThree.getPrice() + pizzaFour.getPrice() + pizzaFive.getPrice(), Offset.offset(1e-9));
+        assertThat(new CustomStrategy(new ArrayList<>(), 0).calculatePrice(List.of(pizzaOne)))
+                .isEqualTo(3 + pizzaOne.getPrice());
+    }
+
     @Test
     void testFreeToString() {
         free = new FreeStrategy();